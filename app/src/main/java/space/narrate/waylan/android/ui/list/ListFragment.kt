@@ -115,6 +115,17 @@ class ListFragment: Fragment(), ListItemAdapter.ListItemListener {
                 ContextCompat.getDrawable(requireContext(), R.drawable.list_item_divider)
             )
             recyclerView.addItemDecoration(itemDivider)
+            recyclerView.addOnScrollListener(object : RecyclerView.OnScrollListener() {
+                override fun onScrolled(recyclerView: RecyclerView, dx: Int, dy: Int) {
+                    if (dy <= 0) return
+                    // Load the next page before the end of the list is reached
+                    val layoutManager = recyclerView.layoutManager as LinearLayoutManager
+                    val lastVisible = layoutManager.findLastVisibleItemPosition()
+                    if (lastVisible >= adapter.itemCount - PREFETCH_DISTANCE) {
+                        viewModel.onNearListEnd()
+                    }
+                }
+            })
 
             viewModel.listType.observe(this@ListFragment.viewLifecycleOwner) { type ->
                 appBar.title = getString(type.titleRes)
@@ -169,4 +180,9 @@ class ListFragment: Fragment(), ListItemAdapter.ListItemListener {
     override fun onBannerBottomButtonClicked() {
         viewModel.onBannerDismissClicked()
     }
+
+    companion object {
+        // How many items from the end of the list the next page starts loading
+        private const val PREFETCH_DISTANCE = 10
+    }
 }
\ No newline at end of file
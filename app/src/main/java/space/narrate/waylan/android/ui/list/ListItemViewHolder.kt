@@ -6,7 +6,6 @@ import android.widget.LinearLayout
 import androidx.appcompat.widget.AppCompatTextView
 import androidx.recyclerview.widget.RecyclerView
 import com.google.android.material.chip.ChipGroup
-import org.threeten.bp.OffsetDateTime
 import space.narrate.waylan.android.R
 import space.narrate.waylan.android.databinding.ListBannerLayoutBinding
 import space.narrate.waylan.android.databinding.ListItemLayoutBinding
@@ -58,7 +57,7 @@ sealed class ListItemViewHolder<T : ListItemModel>(val view: View): RecyclerView
         //Set synonym chips
         expandedChipGroup.removeAllViews()
         item.userWord.synonymPreview.forEach {syn ->
-          val synonym = Synonym(syn.key, OffsetDateTime.now(), OffsetDateTime.now())
+          val synonym = Synonym(syn.key)
           expandedChipGroup.addView(
             synonym.toChip(view.context, expandedChipGroup) {
               listener.onWordClicked(it.synonym, binding.root, false)
@@ -94,7 +93,7 @@ sealed class ListItemViewHolder<T : ListItemModel>(val view: View): RecyclerView
         //Set synonym chips
         expandedChipGroup.removeAllViews()
         item.globalWord.synonymPreview.forEach {
-          val synonym = Synonym(it.key, OffsetDateTime.now(), OffsetDateTime.now())
+          val synonym = Synonym(it.key)
           expandedChipGroup.addView(
             synonym.toChip(view.context, expandedChipGroup) {
               listener.onWordClicked(it.synonym, binding.root, false)
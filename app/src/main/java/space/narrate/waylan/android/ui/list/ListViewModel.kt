@@ -1,12 +1,20 @@
 package space.narrate.waylan.android.ui.list
 
+import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
+import androidx.lifecycle.viewModelScope
+import kotlinx.coroutines.launch
 import space.narrate.waylan.android.R
+import space.narrate.waylan.core.data.Result
+import space.narrate.waylan.core.data.firestore.Period
+import space.narrate.waylan.core.data.firestore.QueryPage
+import space.narrate.waylan.core.data.firestore.words.GlobalWord
 import space.narrate.waylan.core.repo.UserRepository
 import space.narrate.waylan.core.repo.WordRepository
 import space.narrate.waylan.core.ui.ListType
+import space.narrate.waylan.core.util.mapOnTransform
 import space.narrate.waylan.core.util.mapTransform
 import space.narrate.waylan.core.util.switchMapTransform
 
@@ -33,22 +41,45 @@ class ListViewModel(
         }
     }
 
+    // How many pages of the list are shown, growing as the end of the list is reached
+    private val pageCount: MutableLiveData<Int> = MutableLiveData(1)
+
+    // The trending words loaded after the first page, which is listened to live, and the last
+    // page they were loaded from
+    private val trendingPages: MutableLiveData<List<GlobalWord>> = MutableLiveData(emptyList())
+    private var trendingPage: QueryPage<GlobalWord>? = null
+    private var trendingFilter: List<Period> = emptyList()
+
+    // Incremented whenever the list is reset, so pages loaded for a previous list are dropped
+    private var pageGeneration = 0
+    private var isLoadingPage = false
+    private var isLastPage = false
+
     val list: LiveData<List<ListItemModel>> = listType
         .switchMapTransform { type ->
             @Suppress("UNCHECKED_CAST")
             when (type) {
                 ListType.TRENDING -> userRepository.trendingListFilterLive
                     .switchMapTransform { filter ->
-                        wordRepository.getGlobalWordTrending(LIST_LIMIT, filter)
+                        if (filter != trendingFilter) {
+                            trendingFilter = filter
+                            resetPages()
+                        }
+                        wordRepository.getGlobalWordTrending(PAGE_SIZE, filter)
+                            .mapOnTransform(trendingPages) { firstPage, pages ->
+                                (firstPage + pages).distinctBy { it.id }
+                            }
                     }
                     .mapTransform { globalWords ->
                         globalWords.map { ListItemModel.GlobalWordModel(it) }
                     }
-                ListType.RECENT -> wordRepository.getUserWordRecents(LIST_LIMIT)
+                ListType.RECENT -> pageCount
+                    .switchMapTransform { wordRepository.getUserWordRecents(it * PAGE_SIZE) }
                     .mapTransform { userWords ->
                         userWords.map { ListItemModel.UserWordModel(it) }
                     }
-                ListType.FAVORITE -> wordRepository.getUserWordFavorites(LIST_LIMIT)
+                ListType.FAVORITE -> pageCount
+                    .switchMapTransform { wordRepository.getUserWordFavorites(it * PAGE_SIZE) }
                     .mapTransform { userWords ->
                         userWords.map { ListItemModel.UserWordModel(it) }
                     }
@@ -62,9 +93,71 @@ class ListViewModel(
      * Set the current list type to be observed.
      */
     fun setListType(type: ListType) {
+        if (type != _listType.value) resetPages()
         _listType.value = type
     }
 
+    /**
+     * Load the next page of the list, when it's been scrolled near to its end, one at a time,
+     * until a page comes back short or [MAX_PAGES] have been loaded.
+     *
+     * Recents and favorites are loaded from the last word of the list on, including it, so a
+     * full page holds one word which is already shown. Trending words are loaded after the last
+     * page of them, as it was read, since the view counts of the live first page keep changing.
+     * The first page loaded after it reads the live page again, to have such a page to follow.
+     */
+    fun onNearListEnd() {
+        val type = listType.value ?: return
+        val pages = pageCount.value ?: 1
+        if (isLoadingPage || isLastPage || pages >= MAX_PAGES) return
+        val last = list.value?.lastOrNull() ?: return
+
+        isLoadingPage = true
+        val generation = pageGeneration
+        viewModelScope.launch {
+            when (last) {
+                is ListItemModel.GlobalWordModel -> {
+                    val after = trendingPage
+                    val limit = if (after == null) PAGE_SIZE * 2 else PAGE_SIZE
+                    val result = wordRepository.getGlobalWordTrendingPage(after, limit, trendingFilter)
+                    // Ignore pages of a list which has since been reset
+                    if (generation != pageGeneration) return@launch
+                    if (result is Result.Success) {
+                        trendingPage = result.data
+                        trendingPages.value = trendingPages.value.orEmpty() + result.data.items
+                        onPageLoaded(pages, result.data.items.size < limit)
+                    }
+                }
+                is ListItemModel.UserWordModel -> {
+                    val result = if (type == ListType.FAVORITE) {
+                        wordRepository.loadUserWordFavoritesPage(last.userWord, PAGE_SIZE)
+                    } else {
+                        wordRepository.loadUserWordRecentsPage(last.userWord, PAGE_SIZE)
+                    }
+                    if (generation != pageGeneration) return@launch
+                    if (result is Result.Success) {
+                        onPageLoaded(pages, result.data.size < PAGE_SIZE)
+                    }
+                }
+            }
+            isLoadingPage = false
+        }
+    }
+
+    private fun onPageLoaded(pages: Int, isShort: Boolean) {
+        isLastPage = isShort
+        pageCount.value = pages + 1
+    }
+
+    private fun resetPages() {
+        pageGeneration++
+        pageCount.value = 1
+        trendingPages.value = emptyList()
+        trendingPage = null
+        isLoadingPage = false
+        isLastPage = false
+    }
+
     /**
      * Generate the header data model which should be shown for this list type.
      */
@@ -99,7 +192,10 @@ class ListViewModel(
     }
 
     companion object {
-        private const val LIST_LIMIT = 25L
+        @VisibleForTesting
+        internal const val PAGE_SIZE = 25L
+        // The most pages to hold in memory, so even very long lists stay bounded
+        private const val MAX_PAGES = 80
     }
 }
 
@@ -25,6 +25,7 @@ class SearchItemAdapter(
             is SearchItemModel.WordModel -> VIEW_TYPE_WORD
             is SearchItemModel.UserWordModel -> VIEW_TYPE_USER_WORD
             is SearchItemModel.SuggestModel -> VIEW_TYPE_SUGGEST
+            is SearchItemModel.SoundAlikeModel -> VIEW_TYPE_SOUND_ALIKE
         }
     }
 
@@ -38,6 +39,7 @@ class SearchItemAdapter(
             VIEW_TYPE_WORD -> SearchItemViewHolder.WordViewHolder(parent, listener)
             VIEW_TYPE_USER_WORD -> SearchItemViewHolder.UserWordViewHolder(parent, listener)
             VIEW_TYPE_SUGGEST -> SearchItemViewHolder.SuggestViewHolder(parent, listener)
+            VIEW_TYPE_SOUND_ALIKE -> SearchItemViewHolder.SoundAlikeViewHolder(parent, listener)
             else ->
                 throw IllegalArgumentException("Unspupported viewType being inflated - $viewType")
         } as SearchItemViewHolder<SearchItemModel>
@@ -52,5 +54,6 @@ class SearchItemAdapter(
         private const val VIEW_TYPE_WORD = 3
         private const val VIEW_TYPE_USER_WORD = 4
         private const val VIEW_TYPE_SUGGEST = 5
+        private const val VIEW_TYPE_SOUND_ALIKE = 6
     }
 }
\ No newline at end of file
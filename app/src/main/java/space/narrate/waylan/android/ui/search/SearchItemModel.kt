@@ -65,4 +65,16 @@ sealed class SearchItemModel : Diffable<SearchItemModel> {
                     suggestItem.count == newOther.suggestItem.count
         }
     }
+
+    class SoundAlikeModel(val word: String) : SearchItemModel() {
+        override fun isSameAs(newOther: SearchItemModel): Boolean {
+            if (newOther !is SoundAlikeModel) return false
+            return word == newOther.word
+        }
+
+        override fun isContentSameAs(newOther: SearchItemModel): Boolean {
+            if (newOther !is SoundAlikeModel) return false
+            return word == newOther.word
+        }
+    }
 }
\ No newline at end of file
@@ -84,4 +84,20 @@ sealed class SearchItemViewHolder<T : SearchItemModel>(
         }
     }
 
+    class SoundAlikeViewHolder(
+        parent: ViewGroup,
+        private val listener: SearchItemAdapter.SearchItemListener
+    ) : SearchItemViewHolder<SearchItemModel.SoundAlikeModel>(
+        AdapterUtils.inflate(parent, R.layout.search_word_layout)
+    ) {
+        private val wordTextView: AppCompatTextView = view.findViewById(R.id.word_text_view)
+        private val wordIconView: AppCompatImageView = view.findViewById(R.id.word_icon_image_view)
+
+        override fun bind(item: SearchItemModel.SoundAlikeModel) {
+            view.setOnClickListener { listener.onWordClicked(item) }
+            wordTextView.text = item.word
+            wordIconView.setImageResource(R.drawable.ic_round_mic_24px)
+        }
+    }
+
 }
\ No newline at end of file
@@ -1,8 +1,14 @@
 package space.narrate.waylan.android.ui.search
 
 import androidx.lifecycle.LiveData
+import androidx.lifecycle.MediatorLiveData
 import androidx.lifecycle.MutableLiveData
 import androidx.lifecycle.ViewModel
+import androidx.lifecycle.asFlow
+import androidx.lifecycle.asLiveData
+import androidx.lifecycle.liveData
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
 import space.narrate.waylan.android.R
 import space.narrate.waylan.android.ui.search.ShelfActionModel.*
 import space.narrate.waylan.android.util.SoftInputModel
@@ -10,12 +16,12 @@ import space.narrate.waylan.core.data.firestore.users.UserWord
 import space.narrate.waylan.core.data.prefs.Orientation
 import space.narrate.waylan.core.data.prefs.RotationManager
 import space.narrate.waylan.core.data.prefs.RotationUtils
+import space.narrate.waylan.core.data.spell.SuggestResult
 import space.narrate.waylan.core.repo.AnalyticsRepository
 import space.narrate.waylan.core.repo.UserRepository
 import space.narrate.waylan.core.repo.WordRepository
 import space.narrate.waylan.core.ui.Navigator
 import space.narrate.waylan.core.ui.common.Event
-import space.narrate.waylan.core.util.MergedLiveData
 import space.narrate.waylan.core.util.mapTransform
 import space.narrate.waylan.core.util.switchMapTransform
 
@@ -31,6 +37,13 @@ class SearchViewModel(
 
     private val searchInput: MutableLiveData<String> = MutableLiveData()
 
+    // Suggestions for the latest input the user has settled on. Lookups for input which has
+    // since changed are cancelled rather than delivered.
+    @OptIn(FlowPreview::class, ExperimentalCoroutinesApi::class)
+    private val suggestions: LiveData<SuggestResult> = wordRepository
+        .getSuggestItems(searchInput.asFlow())
+        .asLiveData()
+
     val searchResults: LiveData<List<SearchItemModel>> = searchInput
         .switchMapTransform { if (it.isEmpty()) getRecent() else getSearch(it) }
         .mapTransform { if (it.isEmpty()) addHeader(it) else it }
@@ -96,19 +109,44 @@ class SearchViewModel(
     }
 
     private fun getSearch(input: String): LiveData<List<SearchItemModel>> {
-        return MergedLiveData(
-            wordRepository.getWordsetWords(input),
-            wordRepository.getSuggestItems(input)
-        ) { words, suggestions ->
-            val wordsModels = words.map { SearchItemModel.WordModel(it) }
-            val suggestModels = suggestions.map { SearchItemModel.SuggestModel(it) }
-            (wordsModels + suggestModels).distinctBy { item ->
-                when (item) {
-                    is SearchItemModel.WordModel -> item.word.word
-                    is SearchItemModel.SuggestModel -> item.suggestItem.term
-                    else -> ""
+        val words = liveData { emit(wordRepository.getWordsetWordsImmediate(input)) }
+        val soundAlikes = wordRepository.getSoundAlikes(input)
+
+        // Words are shown as soon as they're read from the index, and suggestions and
+        // sound-alikes are added as each arrives, rather than all waiting for the slowest
+        return MediatorLiveData<List<SearchItemModel>>().apply {
+            var wordModels: List<SearchItemModel>? = null
+            var suggestModels: List<SearchItemModel> = emptyList()
+            var soundAlikeModels: List<SearchItemModel> = emptyList()
+
+            fun merge() {
+                val models = wordModels ?: return
+                // Sound-alikes come last, as they're only a guess at what the user is looking for
+                value = (models + suggestModels + soundAlikeModels).distinctBy { item ->
+                    when (item) {
+                        is SearchItemModel.WordModel -> item.word.word
+                        is SearchItemModel.SuggestModel -> item.suggestItem.term
+                        is SearchItemModel.SoundAlikeModel -> item.word
+                        else -> ""
+                    }
                 }
             }
+
+            addSource(words) { result ->
+                wordModels = result.map { SearchItemModel.WordModel(it) }
+                merge()
+            }
+            // suggestions may still hold the result for earlier input, which is left out rather
+            // than shown alongside the words for this input
+            addSource(suggestions) { result ->
+                if (result.input != input) return@addSource
+                suggestModels = result.items.map { SearchItemModel.SuggestModel(it) }
+                merge()
+            }
+            addSource(soundAlikes) { result ->
+                soundAlikeModels = result.map { SearchItemModel.SoundAlikeModel(it) }
+                merge()
+            }
         }
     }
 
@@ -174,10 +212,12 @@ class SearchViewModel(
             is SearchItemModel.WordModel -> item.word.word
             is SearchItemModel.UserWordModel -> item.userWord.word
             is SearchItemModel.SuggestModel -> item.suggestItem.term
+            is SearchItemModel.SoundAlikeModel -> item.word
             else -> return
         }
 
         analyticsRepository.logSearchWordEvent(word, word, item::class.java.simpleName)
+        wordRepository.learnWord(word)
         _shouldShowDetails.value = Event(word)
     }
 
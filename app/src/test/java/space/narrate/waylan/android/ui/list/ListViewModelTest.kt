@@ -0,0 +1,166 @@
+package space.narrate.waylan.android.ui.list
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import androidx.lifecycle.MutableLiveData
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.ObsoleteCoroutinesApi
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import space.narrate.waylan.android.ui.list.ListViewModel.Companion.PAGE_SIZE
+import space.narrate.waylan.core.data.Result
+import space.narrate.waylan.core.data.firestore.Period
+import space.narrate.waylan.core.data.firestore.QueryPage
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.words.GlobalWord
+import space.narrate.waylan.core.repo.UserRepository
+import space.narrate.waylan.core.repo.WordRepository
+import space.narrate.waylan.core.ui.ListType
+import space.narrate.waylan.test_common.CoroutinesTestRule
+import space.narrate.waylan.test_common.LiveDataTestUtils
+import space.narrate.waylan.test_common.valueBlocking
+import java.util.Date
+import org.mockito.Mockito.`when` as whenever
+
+@ExperimentalCoroutinesApi
+@ObsoleteCoroutinesApi
+class ListViewModelTest {
+
+    // Subject under test.
+    private lateinit var listViewModel: ListViewModel
+
+    private val wordRepository = mock(WordRepository::class.java)
+    private val userRepository = mock(UserRepository::class.java)
+
+    private val trendingFilter = MutableLiveData<List<Period>>(emptyList())
+
+    @get:Rule
+    var coroutinesTestRule = CoroutinesTestRule()
+
+    // Mock Android's getMainLooper()
+    @get:Rule
+    val instantExecutorRule = InstantTaskExecutorRule()
+
+    private fun globalWords(range: IntRange) = range.map { GlobalWord("word$it", "word$it") }
+
+    // Recents, most recently modified first
+    private val userWords = (0 until 100).map {
+        UserWord("word$it", "word$it", modified = Date(1_000L - it))
+    }
+
+    private fun ids(list: List<ListItemModel>) = list.map {
+        when (it) {
+            is ListItemModel.GlobalWordModel -> it.globalWord.id
+            is ListItemModel.UserWordModel -> it.userWord.id
+            is ListItemModel.HeaderModel -> "header"
+        }
+    }
+
+    @Before
+    fun setUp() {
+        whenever(userRepository.hasSeenTrendingBannerLive).thenReturn(LiveDataTestUtils.of(true))
+        whenever(userRepository.hasSeenRecentsBannerLive).thenReturn(LiveDataTestUtils.of(true))
+        whenever(userRepository.trendingListFilterLive).thenReturn(trendingFilter)
+        whenever(wordRepository.getGlobalWordTrending(PAGE_SIZE, emptyList()))
+            .thenReturn(LiveDataTestUtils.of(globalWords(0 until 25)))
+
+        listViewModel = ListViewModel(wordRepository, userRepository)
+        listViewModel.list.observeForever { }
+    }
+
+    @Test
+    fun onNearListEndTrending_shouldLoadAfterPreviousRead() =
+        coroutinesTestRule.testDispatcher.runBlockingTest {
+            val firstRead = QueryPage(globalWords(0 until 50), null)
+            val secondRead = QueryPage(globalWords(50 until 75), null)
+            whenever(wordRepository.getGlobalWordTrendingPage(null, PAGE_SIZE * 2, emptyList()))
+                .thenReturn(Result.Success(firstRead))
+            whenever(wordRepository.getGlobalWordTrendingPage(firstRead, PAGE_SIZE, emptyList()))
+                .thenReturn(Result.Success(secondRead))
+
+            listViewModel.setListType(ListType.TRENDING)
+            listViewModel.onNearListEnd()
+            listViewModel.onNearListEnd()
+
+            // The second page follows the first read, not the live page's last word
+            verify(wordRepository).getGlobalWordTrendingPage(firstRead, PAGE_SIZE, emptyList())
+            assertThat(ids(listViewModel.list.valueBlocking))
+                .containsExactlyElementsIn(globalWords(0 until 75).map { it.id })
+                .inOrder()
+        }
+
+    @Test
+    fun onNearListEndTrending_shortRead_shouldStopLoading() =
+        coroutinesTestRule.testDispatcher.runBlockingTest {
+            val firstRead = QueryPage(globalWords(0 until 30), null)
+            whenever(wordRepository.getGlobalWordTrendingPage(null, PAGE_SIZE * 2, emptyList()))
+                .thenReturn(Result.Success(firstRead))
+
+            listViewModel.setListType(ListType.TRENDING)
+            listViewModel.onNearListEnd()
+            listViewModel.onNearListEnd()
+
+            verify(wordRepository, never())
+                .getGlobalWordTrendingPage(firstRead, PAGE_SIZE, emptyList())
+        }
+
+    @Test
+    fun onNearListEndTrending_filterChangedWhileLoading_shouldDropPage() =
+        coroutinesTestRule.testDispatcher.runBlockingTest {
+            val staleRead = QueryPage(globalWords(0 until 50), null)
+            val filter = listOf(Period.DAY)
+            whenever(wordRepository.getGlobalWordTrendingPage(null, PAGE_SIZE * 2, emptyList()))
+                .thenReturn(Result.Success(staleRead))
+            whenever(wordRepository.getGlobalWordTrending(PAGE_SIZE, filter))
+                .thenReturn(LiveDataTestUtils.of(globalWords(100 until 125)))
+            whenever(wordRepository.getGlobalWordTrendingPage(null, PAGE_SIZE * 2, filter))
+                .thenReturn(Result.Error(Exception("Error!")))
+
+            listViewModel.setListType(ListType.TRENDING)
+            pauseDispatcher()
+            listViewModel.onNearListEnd()
+            trendingFilter.value = filter
+            resumeDispatcher()
+
+            assertThat(ids(listViewModel.list.valueBlocking))
+                .containsExactlyElementsIn(globalWords(100 until 125).map { it.id })
+                .inOrder()
+
+            // The next page is read from the start of the new list
+            listViewModel.onNearListEnd()
+            verify(wordRepository).getGlobalWordTrendingPage(null, PAGE_SIZE * 2, filter)
+        }
+
+    @Test
+    fun onNearListEndRecents_pageOverlappingByOneWord_shouldStopLoading() =
+        coroutinesTestRule.testDispatcher.runBlockingTest {
+            // The mirror shows the loaded words as the list grows
+            val pages = listOf(0 until 25, 0 until 49, 0 until 49)
+            pages.forEachIndexed { i, range ->
+                whenever(wordRepository.getUserWordRecents((i + 1) * PAGE_SIZE))
+                    .thenReturn(LiveDataTestUtils.of(userWords.slice(range)))
+            }
+            // Pages start at the list's last word, so the second holds just that word
+            whenever(wordRepository.loadUserWordRecentsPage(userWords[24], PAGE_SIZE))
+                .thenReturn(Result.Success(userWords.slice(24 until 49)))
+            whenever(wordRepository.loadUserWordRecentsPage(userWords[48], PAGE_SIZE))
+                .thenReturn(Result.Success(userWords.slice(48 until 49)))
+
+            listViewModel.setListType(ListType.RECENT)
+            listViewModel.onNearListEnd()
+            listViewModel.onNearListEnd()
+            listViewModel.onNearListEnd()
+
+            verify(wordRepository).loadUserWordRecentsPage(userWords[24], PAGE_SIZE)
+            verify(wordRepository, times(1)).loadUserWordRecentsPage(userWords[48], PAGE_SIZE)
+            assertThat(ids(listViewModel.list.valueBlocking))
+                .containsExactlyElementsIn(userWords.slice(0 until 49).map { it.id })
+                .inOrder()
+        }
+}
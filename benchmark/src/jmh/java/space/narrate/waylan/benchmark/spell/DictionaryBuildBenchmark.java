@@ -0,0 +1,70 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.narrate.waylan.core.data.spell.SymConfig;
+import space.narrate.waylan.core.data.spell.SymSpell;
+
+/**
+ * The time taken to build a dictionary of the whole corpus, deriving every delete, on one or
+ * more threads.
+ *
+ * <p>The corpus is read into memory before measuring, so only parsing and building are timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DictionaryBuildBenchmark {
+
+    @Param({"1", "4"})
+    public int workers;
+
+    private String corpus;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        corpus = new String(Files.readAllBytes(SpellInputs.corpus()), StandardCharsets.UTF_8);
+        executor = Executors.newFixedThreadPool(workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public SymSpell build() {
+        SymSpell symSpell = SpellInputs.newSymSpell();
+        symSpell.loadDictionary(
+                new BufferedReader(new StringReader(corpus)),
+                SymConfig.defaultTermIndex,
+                SymConfig.defaultCountIndex,
+                executor,
+                workers
+        );
+        return symSpell;
+    }
+}
@@ -0,0 +1,60 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import space.narrate.waylan.core.data.spell.EditDistance;
+
+/**
+ * Distance computations per second of each algorithm, comparing a misspelling against corpus
+ * words the way SymSpell.lookup compares an input against its candidate suggestions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EditDistanceBenchmark {
+
+    @Param({"Damerau", "DamerauBitParallel"})
+    public EditDistance.DistanceAlgorithm algorithm;
+
+    // -1 compares without a max distance
+    @Param({"-1", "2", "3"})
+    public int maxDistance;
+
+    private EditDistance editDistance;
+    private String[] bases;
+    private String[] others;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> words = SpellInputs.words();
+        bases = SpellInputs.inputs(SpellInputs.InputSet.MISSPELLINGS, words);
+        others = words.subList(0, SpellInputs.SIZE).toArray(new String[0]);
+        editDistance = new EditDistance(algorithm);
+    }
+
+    @Benchmark
+    public int compare() {
+        int i = next;
+        next = next + 1 == others.length ? 0 : next + 1;
+        // a lookup sets its base string once, then compares it against many suggestions
+        if (i % 16 == 0) editDistance.setBaseString(bases[i]);
+        return editDistance.compare(others[i], maxDistance);
+    }
+}
@@ -0,0 +1,68 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import space.narrate.waylan.core.data.spell.SymSpell;
+
+/**
+ * The time taken for a dictionary of the whole corpus to become available for lookups, when
+ * built from the text corpus against when opened from a memory-mapped index.
+ *
+ * <p>The index is written to a temporary file before measuring, the way SymSpellIndexWriter
+ * writes the shipped one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class IndexLoadBenchmark {
+
+    private File index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        index = File.createTempFile("symspell", ".idx");
+        try (OutputStream out = new FileOutputStream(index)) {
+            SpellInputs.load().writeIndex(out);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.delete();
+    }
+
+    @Benchmark
+    public SymSpell loadDictionary() throws IOException {
+        return SpellInputs.load();
+    }
+
+    @Benchmark
+    public SymSpell loadIndex() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(index, "r")) {
+            FileChannel channel = file.getChannel();
+            SymSpell symSpell = SpellInputs.newSymSpell();
+            symSpell.loadIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            return symSpell;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import space.narrate.waylan.core.data.spell.SymConfig;
+import space.narrate.waylan.core.data.spell.SymSpell;
+
+/**
+ * Lookup throughput and latency against a dictionary of the whole corpus, for every verbosity,
+ * max edit distance and set of input.
+ *
+ * <p>Each invocation looks up the next input of the set, so a measurement covers the whole set
+ * rather than a single, possibly unusual, input.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LookupBenchmark {
+
+    @Param({"Top", "Closest", "All"})
+    public SymSpell.Verbosity verbosity;
+
+    @Param({"1", "2", "3"})
+    public int maxEditDistance;
+
+    @Param({"MISSPELLINGS", "PREFIXES", "LONG_WORDS", "NON_WORDS"})
+    public SpellInputs.InputSet inputSet;
+
+    private SymSpell symSpell;
+    private String[] inputs;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        symSpell = SpellInputs.load();
+        inputs = SpellInputs.inputs(inputSet, SpellInputs.words());
+    }
+
+    private int lookup() {
+        String input = inputs[next];
+        next = next + 1 == inputs.length ? 0 : next + 1;
+        return symSpell.lookup(input, verbosity, maxEditDistance, SymConfig.defaultMaxSuggestions).size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int throughput() {
+        return lookup();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int latency() {
+        return lookup();
+    }
+}
@@ -0,0 +1,42 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.IOException;
+import space.narrate.waylan.core.data.spell.SymSpell;
+
+/**
+ * Reports the heap retained by a dictionary of the whole corpus, which JMH can't measure.
+ *
+ * <p>The heap in use is measured after a full collection before and after building the
+ * dictionary, repeating each collection until the heap stops shrinking so the result is stable
+ * between runs.
+ */
+public final class RetainedHeap {
+
+    private RetainedHeap() { }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long before = usedHeap();
+        SymSpell symSpell = SpellInputs.load();
+        long after = usedHeap();
+
+        System.out.printf(
+                "Retained heap: %.2f MB (%d words, %d deletes)%n",
+                (after - before) / 1_000_000.0,
+                symSpell.getWords().size(),
+                symSpell.getDeletes().size()
+        );
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(100);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,165 @@
+package space.narrate.waylan.benchmark.spell;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import space.narrate.waylan.core.data.spell.SymConfig;
+import space.narrate.waylan.core.data.spell.SymSpell;
+
+/**
+ * The shipped corpus, and the sets of lookup input benchmarks derive from it.
+ *
+ * <p>Every input set is generated from a fixed seed, so each run looks up exactly the same
+ * input and results can be compared between runs.
+ */
+public final class SpellInputs {
+
+    /** The system property holding the path of the corpus. */
+    static final String CORPUS_PROPERTY = "corpus";
+
+    /** The number of inputs in each set. */
+    static final int SIZE = 1_000;
+
+    private static final long SEED = 42L;
+
+    // Words are misspelled from the most frequent words, which are the ones people look up
+    private static final int COMMON_WORDS = 30_000;
+
+    // Words at least this long are past SymSpell's default prefix length
+    private static final int LONG_WORD_LENGTH = 12;
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    public enum InputSet {
+        /** Common words with one or two random edits. */
+        MISSPELLINGS,
+        /** The first few chars of common words, as they are being typed. */
+        PREFIXES,
+        /** Long words, half of them with a random edit. */
+        LONG_WORDS,
+        /** Random strings which aren't in the corpus. */
+        NON_WORDS
+    }
+
+    private SpellInputs() { }
+
+    static Path corpus() {
+        String corpus = System.getProperty(CORPUS_PROPERTY);
+        if (corpus == null) {
+            throw new IllegalStateException(
+                    "Set -D" + CORPUS_PROPERTY + " to the path of frequency_dictionary_en_82_765.txt");
+        }
+        return Paths.get(corpus);
+    }
+
+    /** A SymSpell configured the way SymSpellIndexWriter builds the shipped index. */
+    static SymSpell newSymSpell() {
+        return new SymSpell(
+                -1,
+                SymConfig.defaultDictionaryEditDistance,
+                -1,
+                SymConfig.defaultTargetCount,
+                Long.MAX_VALUE
+        );
+    }
+
+    /** Build a dictionary from the whole corpus. */
+    static SymSpell load() throws IOException {
+        SymSpell symSpell = newSymSpell();
+        try (BufferedReader reader = Files.newBufferedReader(corpus(), StandardCharsets.UTF_8)) {
+            symSpell.loadDictionary(reader, SymConfig.defaultTermIndex, SymConfig.defaultCountIndex);
+        }
+        return symSpell;
+    }
+
+    /** The words of the corpus, from most to least frequent. */
+    static List<String> words() throws IOException {
+        List<String> words = new ArrayList<>();
+        for (String line : Files.readAllLines(corpus(), StandardCharsets.UTF_8)) {
+            words.add(line.split(" ")[SymConfig.defaultTermIndex]);
+        }
+        return words;
+    }
+
+    static String[] inputs(InputSet set, List<String> words) {
+        Random random = new Random(SEED);
+        List<String> common = words.subList(0, Math.min(COMMON_WORDS, words.size()));
+        String[] inputs = new String[SIZE];
+        switch (set) {
+            case MISSPELLINGS:
+                for (int i = 0; i < SIZE; i++) {
+                    inputs[i] = misspell(pick(common, random), 1 + random.nextInt(2), random);
+                }
+                break;
+            case PREFIXES:
+                for (int i = 0; i < SIZE; i++) {
+                    String word;
+                    do word = pick(common, random); while (word.length() < 3);
+                    inputs[i] = word.substring(0, 2 + random.nextInt(word.length() - 2));
+                }
+                break;
+            case LONG_WORDS:
+                List<String> longWords = new ArrayList<>();
+                for (String word : words) if (word.length() >= LONG_WORD_LENGTH) longWords.add(word);
+                for (int i = 0; i < SIZE; i++) {
+                    String word = pick(longWords, random);
+                    inputs[i] = random.nextBoolean() ? word : misspell(word, 1, random);
+                }
+                break;
+            case NON_WORDS:
+                Set<String> known = new HashSet<>(words);
+                for (int i = 0; i < SIZE; i++) {
+                    String word;
+                    do word = randomString(5 + random.nextInt(6), random); while (known.contains(word));
+                    inputs[i] = word;
+                }
+                break;
+        }
+        return inputs;
+    }
+
+    private static String pick(List<String> words, Random random) {
+        return words.get(random.nextInt(words.size()));
+    }
+
+    /** Apply random deletes, inserts, substitutions or adjacent transpositions to a word. */
+    private static String misspell(String word, int edits, Random random) {
+        StringBuilder sb = new StringBuilder(word);
+        for (int e = 0; e < edits && sb.length() > 1; e++) {
+            int i = random.nextInt(sb.length());
+            char c = LETTERS.charAt(random.nextInt(LETTERS.length()));
+            switch (random.nextInt(4)) {
+                case 0:
+                    sb.deleteCharAt(i);
+                    break;
+                case 1:
+                    sb.insert(i, c);
+                    break;
+                case 2:
+                    sb.setCharAt(i, c);
+                    break;
+                default:
+                    if (i + 1 < sb.length()) {
+                        char next = sb.charAt(i + 1);
+                        sb.setCharAt(i + 1, sb.charAt(i));
+                        sb.setCharAt(i, next);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String randomString(int length, Random random) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,134 @@
+package space.narrate.waylan.benchmark.wordset;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.aaronhe.threetengson.ThreeTenGsonAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+import space.narrate.waylan.core.data.wordset.Example;
+import space.narrate.waylan.core.data.wordset.Label;
+import space.narrate.waylan.core.data.wordset.Synonym;
+import space.narrate.waylan.core.data.wordset.WordsetTypeConverters;
+
+/**
+ * Meanings decoded per second, reading a meaning's examples, synonyms and labels from the
+ * separated text WordsetTypeConverters stores them as against from the json they used to be
+ * stored as, through Gson reflection and timestamp parsing, as every emission of
+ * WordDao.getWordAndMeanings used to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MeaningDecodeBenchmark {
+
+    private static final Type EXAMPLES = new TypeToken<List<LegacyExample>>() {}.getType();
+    private static final Type SYNONYMS = new TypeToken<List<LegacySynonym>>() {}.getType();
+    private static final Type LABELS = new TypeToken<List<LegacyLabel>>() {}.getType();
+
+    private Gson gson;
+    private String[] json;
+    private String[] compact;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gson = ThreeTenGsonAdapter.registerOffsetDateTime(new GsonBuilder()).create();
+        OffsetDateTime now = OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+        json = new String[] {
+            gson.toJson(Arrays.asList(
+                new LegacyExample("a quiescent lake", now),
+                new LegacyExample("all was quiescent", now))),
+            gson.toJson(Arrays.asList(
+                new LegacySynonym("still", now),
+                new LegacySynonym("dormant", now))),
+            gson.toJson(Arrays.asList(
+                new LegacyLabel("formal", false, now),
+                new LegacyLabel("Scotland", true, now)))
+        };
+        compact = new String[] {
+            WordsetTypeConverters.fromExampleList(Arrays.asList(
+                new Example("a quiescent lake"),
+                new Example("all was quiescent"))),
+            WordsetTypeConverters.fromSynonymList(Arrays.asList(
+                new Synonym("still"),
+                new Synonym("dormant"))),
+            WordsetTypeConverters.fromLabelList(Arrays.asList(
+                new Label("formal", false),
+                new Label("Scotland", true)))
+        };
+    }
+
+    @Benchmark
+    public void decodeJson(Blackhole blackhole) {
+        blackhole.consume(gson.fromJson(json[0], EXAMPLES));
+        blackhole.consume(gson.fromJson(json[1], SYNONYMS));
+        blackhole.consume(gson.fromJson(json[2], LABELS));
+    }
+
+    @Benchmark
+    public void decodeCompact(Blackhole blackhole) {
+        blackhole.consume(WordsetTypeConverters.toExampleList(compact[0]));
+        blackhole.consume(WordsetTypeConverters.toSynonymList(compact[1]));
+        blackhole.consume(WordsetTypeConverters.toLabelList(compact[2]));
+    }
+
+    // The elements as they were stored before their timestamps were dropped
+
+    static final class LegacyExample {
+        final String example;
+        final OffsetDateTime created;
+        final OffsetDateTime modified;
+
+        LegacyExample(String example, OffsetDateTime time) {
+            this.example = example;
+            this.created = time;
+            this.modified = time;
+        }
+    }
+
+    static final class LegacySynonym {
+        final String synonym;
+        final OffsetDateTime created;
+        final OffsetDateTime modified;
+
+        LegacySynonym(String synonym, OffsetDateTime time) {
+            this.synonym = synonym;
+            this.created = time;
+            this.modified = time;
+        }
+    }
+
+    static final class LegacyLabel {
+        final String name;
+        final boolean isDialect;
+        final OffsetDateTime created;
+        final OffsetDateTime modified;
+
+        LegacyLabel(String name, boolean isDialect, OffsetDateTime time) {
+            this.name = name;
+            this.isDialect = isDialect;
+            this.created = time;
+            this.modified = time;
+        }
+    }
+}
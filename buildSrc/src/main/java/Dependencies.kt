@@ -31,7 +31,7 @@ object Versions {
     const val appCompat = "1.2.0"
     const val constraintLayout = "1.1.3"
     const val coreTesting = "2.1.0"
-    const val coroutines = "1.2.1"
+    const val coroutines = "1.4.2"
     const val crashlytics = "2.10.1"
     const val dagger = "2.16"
     const val dokka = "0.9.17"
@@ -48,6 +48,8 @@ object Versions {
     const val gson = "2.8.4"
     const val hamcrest = "1.3"
     const val insetter = "0.2.0"
+    const val jmh = "1.27"
+    const val jmhPlugin = "0.5.3"
     const val junit = "4.12"
     const val koin = "2.0.1"
     const val kotlin = "1.4.21"
@@ -172,6 +174,7 @@ object Libs {
 
     // Room
     const val room = "androidx.room:room-ktx:${Versions.room}"
+    const val roomCommon = "androidx.room:room-common:${Versions.room}"
     const val roomRuntime = "androidx.room:room-runtime:${Versions.room}"
     const val roomCompiler = "androidx.room:room-compiler:${Versions.room}"
     const val roomTesting = "androidx.room:room-testing:${Versions.room}"
@@ -1,6 +1,10 @@
 package space.narrate.waylan.core.data.firestore
 
+import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.LiveData
+import com.google.firebase.Timestamp
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.FieldPath
 import com.google.firebase.firestore.FirebaseFirestore
 import com.google.firebase.firestore.FirebaseFirestoreException
 import com.google.firebase.firestore.Query
@@ -15,6 +19,7 @@ import space.narrate.waylan.core.data.firestore.users.UserAddOn
 import space.narrate.waylan.core.data.firestore.users.UserAddOnActionUseCase
 import space.narrate.waylan.core.data.firestore.users.UserWord
 import space.narrate.waylan.core.data.firestore.users.UserWordType
+import space.narrate.waylan.core.data.firestore.util.FirestoreListenerRegistry
 import space.narrate.waylan.core.data.firestore.util.getFirestoreNotFoundException
 import space.narrate.waylan.core.data.firestore.util.liveData
 import space.narrate.waylan.core.data.firestore.util.userAddOns
@@ -22,10 +27,8 @@ import space.narrate.waylan.core.data.firestore.util.userWords
 import space.narrate.waylan.core.data.firestore.util.users
 import space.narrate.waylan.core.data.firestore.util.words
 import space.narrate.waylan.core.data.firestore.words.GlobalWord
-import space.narrate.waylan.core.data.wordset.WordsetDatabase
 import space.narrate.waylan.core.util.LiveDataUtils
-import space.narrate.waylan.core.util.isMoreThanOneMinuteAgo
-import java.util.*
+import java.util.Date
 import kotlin.coroutines.CoroutineContext
 import kotlin.coroutines.resume
 import kotlin.coroutines.resumeWithException
@@ -36,10 +39,14 @@ import space.narrate.waylan.core.data.firestore.util.userWordExamples
 /**
  * The top-most store for access to Firestore data. This class handles CRUD operations
  * for [User], [UserWord] and [GlobalWord].
+ *
+ * LiveData of the same query or document are shared through [listeners], so each is listened to
+ * only once however many screens observe it.
  */
 class FirestoreStore(
     private val firestore: FirebaseFirestore,
-    private val db: WordsetDatabase
+    private val userWordWriteQueue: UserWordWriteQueue,
+    private val listeners: FirestoreListenerRegistry
 ) : CoroutineScope {
 
     override val coroutineContext: CoroutineContext
@@ -62,7 +69,7 @@ class FirestoreStore(
     fun getUserLive(uid: String): LiveData<User> {
         return firestore.users
             .document(uid)
-            .liveData(User::class.java)
+            .liveData(User::class.java, listeners)
     }
 
     suspend fun newUser(uid: String, with: User.() -> Unit): Result<User> {
@@ -136,8 +143,7 @@ class FirestoreStore(
     fun getUserAddOnLive(uid: String, addOn: AddOn): LiveData<UserAddOn> {
         return firestore.userAddOns(uid)
             .document(addOn.id)
-            .liveData(UserAddOn::class.java)
-            .doOnError {
+            .liveData(UserAddOn::class.java, listeners) {
                 when (it.code) {
                     FirebaseFirestoreException.Code.UNAVAILABLE,
                     FirebaseFirestoreException.Code.NOT_FOUND -> launch {
@@ -149,7 +155,7 @@ class FirestoreStore(
 
     fun getUserAddOnsLive(uid: String): LiveData<List<UserAddOn>> {
         return firestore.userAddOns(uid)
-            .liveData(UserAddOn::class.java)
+            .liveData(UserAddOn::class.java, listeners)
     }
 
     private suspend fun newUserAddOn(uid: String, addOn: AddOn): Result<UserAddOn> {
@@ -223,180 +229,128 @@ class FirestoreStore(
         if (id.isBlank()) return LiveDataUtils.empty()
         return firestore.words
             .document(id)
-            .liveData(GlobalWord::class.java)
+            .liveData(GlobalWord::class.java, listeners)
     }
 
     fun getGlobalWordsTrendingLive(limit: Long?, filter: List<Period>): LiveData<List<GlobalWord>> {
-        val period = filter.firstOrNull()?.viewCountProp ?: Period.ALL_TIME.viewCountProp
-        val query = firestore.words
-            .orderBy(period, Query.Direction.DESCENDING)
+        val query = getGlobalWordsTrendingQuery(filter)
             .limit(limit ?: 25)
 
-        return query.liveData(GlobalWord::class.java)
+        return query.liveData(GlobalWord::class.java, listeners)
     }
 
-    private suspend fun getUserWord(
-        id: String,
-        uid: String,
-        createIfDoesNotExist: Boolean
-    ): Result<UserWord> {
-        try {
-            val userWord = suspendCoroutine<UserWord> { cont ->
-                firestore.userWords(uid).document(id).get()
-                    .addOnFailureListener {
-                        cont.resumeWithException(it)
-                    }
-                    .addOnSuccessListener {
-                        if (it.exists()) {
-                            cont.resume(it.toObject(UserWord::class.java)!!)
-                        } else {
-                            cont.resumeWithException(getFirestoreNotFoundException(id))
+    /**
+     * Get the [limit] trending words which follow the page [after], or the first [limit] if
+     * [after] is null. Words with the same view count are ordered by id, so every word has a
+     * place to page from.
+     */
+    suspend fun getGlobalWordsTrendingPage(
+        after: QueryPage<GlobalWord>?,
+        limit: Long,
+        filter: List<Period>
+    ): Result<QueryPage<GlobalWord>> {
+        val query = getGlobalWordsTrendingQuery(filter)
+        val cursor = after?.last
+        val page = if (cursor == null) query else query.startAfter(cursor)
+        return getPage(page.limit(limit), GlobalWord::class.java)
+    }
 
-                        }
-                    }
-            }
-            return Result.Success(userWord)
-        } catch (e: Exception) {
-            return when ((e as FirebaseFirestoreException).code) {
-                FirebaseFirestoreException.Code.UNAVAILABLE,
-                FirebaseFirestoreException.Code.NOT_FOUND -> {
-                    if (createIfDoesNotExist) {
-                        newUserWord(id)
-                    } else {
-                        Result.Error(e)
-                    }
-                }
-                else -> Result.Error(e)
-            }
-        }
+    private fun getGlobalWordsTrendingQuery(filter: List<Period>): Query {
+        val period = filter.firstOrNull()?.viewCountProp ?: Period.ALL_TIME.viewCountProp
+        return firestore.words
+            .orderBy(period, Query.Direction.DESCENDING)
+            .orderBy(FieldPath.documentId(), Query.Direction.DESCENDING)
     }
 
     fun getUserWordLive(id: String, uid: String): LiveData<UserWord> {
         if (id.isBlank()) return LiveDataUtils.empty()
         return firestore.userWords(uid)
             .document(id)
-            .liveData(UserWord::class.java)
+            .liveData(UserWord::class.java, listeners)
     }
 
-    private suspend fun newUserWord(id: String): Result<UserWord> {
-        //get word from db.
-        val word = db.wordDao().get(id)
-
-        // get meanings from db.
-        // we add a limited number of definitions, synonyms etc to make it easy to query for,
-        // for example, a user's favorites and have a list populate with the word and definition
-        // preview without the need for extraneous joins, queries, etc.
-        val meanings = db.meaningDao().get(id)
-
-        if (word == null) {
-            return Result.Error(Exception("Word '$id' does not exist in wordset, a necessary condition for creating a UserWord"))
-        } else {
-
-            val partOfSpeech: Map<String, String> =
-                meanings?.map { it.partOfSpeech to DataOwners.WORDSET.name }
-                    ?.distinct()
-                    ?.toMap() ?: mapOf()
-
-            val defs: Map<String, String> =
-                meanings?.map { it.def to DataOwners.WORDSET.name }
-                    ?.distinct()
-                    ?.toMap() ?: mapOf()
-
-            val synonyms: Map<String, String> =
-                meanings?.flatMap { it.synonyms }
-                    ?.map { it.synonym to DataOwners.WORDSET.name }
-                    ?.distinct()
-                    ?.toMap() ?: mapOf()
-
-            val labels: Map<String, String> =
-                meanings?.flatMap { it.labels }
-                    ?.map { it.name to DataOwners.WORDSET.name }
-                    ?.distinct()
-                    ?.toMap() ?: mapOf()
-
-
-            val userWord = UserWord(
-                id,
-                word.word,
-                Date(),
-                Date(),
-                mutableMapOf(),
-                partOfSpeech.toMutableMap(),
-                defs.toMutableMap(),
-                synonyms.toMutableMap(),
-                labels.toMutableMap()
-            )
-
-            return Result.Success(userWord)
-        }
-    }
-
-    fun getUserWordsFavoriteLive(uid: String, limit: Long?): LiveData<List<UserWord>> {
-        val query = firestore.userWords(uid)
+    /**
+     * The query of the user's [limit] most recently modified favorites. These are read through
+     * UserWordMirror rather than listened to directly.
+     */
+    fun getUserWordsFavoriteQuery(uid: String, limit: Long?): Query {
+        return firestore.userWords(uid)
             .whereEqualTo("types.${UserWordType.FAVORITED.name}", true)
             .orderBy("modified", Query.Direction.DESCENDING)
             .limit(limit ?: 25)
-
-        return query.liveData(UserWord::class.java)
     }
 
-    suspend fun setFavorite(
-        id: String,
+    /**
+     * Get the [limit] most recently modified favorites from [from] on. See
+     * [startAtUserWord].
+     */
+    suspend fun getUserWordsFavoritePage(
         uid: String,
-        favorite: Boolean
-    ): Result<UserWord> {
-        return updateUserWord(id, uid, true) {
-            if (favorite) {
-                types[UserWordType.FAVORITED.name] = true
-            } else {
-                types.remove(UserWordType.FAVORITED.name)
-            }
-            types[UserWordType.RECENT.name] = true
-        }
+        from: UserWord,
+        limit: Long
+    ): Result<List<UserWord>> {
+        val query = startAtUserWord(getUserWordsFavoriteQuery(uid, limit), from)
+        return getPage(query, UserWord::class.java).items()
     }
 
-    fun getUserWordsRecentLive(uid: String, limit: Long?): LiveData<List<UserWord>> {
-        val query = firestore.userWords(uid)
+    /**
+     * Favorite or unfavorite the [UserWord] with [id], which also makes it recent. The change is
+     * written behind by [UserWordWriteQueue].
+     */
+    fun setFavorite(id: String, uid: String, favorite: Boolean) {
+        userWordWriteQueue.enqueue(uid, id, UserWordWriteQueue.Update(true, favorite))
+    }
+
+    /**
+     * The query of the user's [limit] most recently viewed words. These are read through
+     * UserWordMirror rather than listened to directly.
+     */
+    fun getUserWordsRecentQuery(uid: String, limit: Long?): Query {
+        return firestore.userWords(uid)
             .whereEqualTo("types.${UserWordType.RECENT.name}", true)
             .orderBy("modified", Query.Direction.DESCENDING)
             .limit(limit ?: 25)
-
-        return query.liveData(UserWord::class.java)
     }
 
+    /**
+     * Get the [limit] most recently viewed words from [from] on. See [startAtUserWord].
+     */
+    suspend fun getUserWordsRecentPage(
+        uid: String,
+        from: UserWord,
+        limit: Long
+    ): Result<List<UserWord>> {
+        val query = startAtUserWord(getUserWordsRecentQuery(uid, limit), from)
+        return getPage(query, UserWord::class.java).items()
+    }
 
-    suspend fun setRecent(id: String, uid: String): Result<UserWord> {
-        return updateUserWord(id, uid, true) {
-            if (!types.containsKey(UserWordType.RECENT.name) || modified.isMoreThanOneMinuteAgo) {
-                types[UserWordType.RECENT.name] = true
-                modified = Date()
-            }
-        }
+    /**
+     * Start a query of [UserWord]s ordered by [UserWord.modified] at [from]. See
+     * [endOfMillisecond].
+     */
+    private fun startAtUserWord(query: Query, from: UserWord): Query {
+        return query.startAt(endOfMillisecond(from.modified))
     }
 
-    private suspend fun setUserWord(
-        userWord: UserWord,
-        uid: String
-    ): Result<UserWord> = suspendCancellableCoroutine { cont ->
-        firestore.userWords(uid).document(userWord.id).set(userWord)
-            .addOnSuccessListener { cont.resume(Result.Success(userWord)) }
+    private suspend fun <T> getPage(
+        query: Query,
+        clazz: Class<T>
+    ): Result<QueryPage<T>> = suspendCancellableCoroutine { cont ->
+        query.get()
+            .addOnSuccessListener { snapshot ->
+                val items = snapshot.documents.mapNotNull {
+                    it.toObject(clazz, DocumentSnapshot.ServerTimestampBehavior.ESTIMATE)
+                }
+                cont.resume(Result.Success(QueryPage(items, snapshot.documents.lastOrNull())))
+            }
             .addOnFailureListener { cont.resume(Result.Error(it)) }
     }
 
-    private suspend fun updateUserWord(
-        id: String,
-        uid: String,
-        createIfDoesNotExist: Boolean,
-        update: UserWord.() -> Unit
-    ): Result<UserWord> {
-        val result = getUserWord(id, uid, createIfDoesNotExist)
-        if (result is Result.Success) {
-            val userWord = result.data
-            userWord.update()
-            return setUserWord(userWord, uid)
-        }
-
-        return result
+    /**
+     * Make the [UserWord] with [id] recent. The change is written behind by [UserWordWriteQueue].
+     */
+    fun setRecent(id: String, uid: String) {
+        userWordWriteQueue.enqueue(uid, id, UserWordWriteQueue.Update(true, null))
     }
 
     fun getUserWordExamplesLive(
@@ -408,7 +362,7 @@ class FirestoreStore(
             .orderBy("modified", Query.Direction.DESCENDING)
             .limit(limit ?: 25)
 
-        return query.liveData(UserWordExample::class.java)
+        return query.liveData(UserWordExample::class.java, listeners)
     }
 
     suspend fun newUserWordExample(
@@ -454,4 +408,29 @@ class FirestoreStore(
                 .addOnFailureListener { cont.resume(Result.Error(it)) }
         }
     }
-}
\ No newline at end of file
+
+    private fun <T> Result<QueryPage<T>>.items(): Result<List<T>> = when (this) {
+        is Result.Success -> Result.Success(data.items)
+        is Result.Error -> this
+    }
+
+    companion object {
+
+        /**
+         * The last instant of [date]'s millisecond.
+         *
+         * [UserWord.modified] is only read to the millisecond, which is less precise than it's
+         * stored, so a query of [UserWord]s ordered by it starts at the end of a word's
+         * millisecond rather than just after it. The query can repeat the word and any words
+         * modified in the same millisecond, but never skips a word.
+         */
+        @VisibleForTesting
+        internal fun endOfMillisecond(date: Date): Timestamp {
+            val millis = date.time
+            return Timestamp(
+                millis / 1000L,
+                (millis % 1000L).toInt() * 1_000_000 + 999_999
+            )
+        }
+    }
+}
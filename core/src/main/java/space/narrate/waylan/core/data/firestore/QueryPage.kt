@@ -0,0 +1,15 @@
+package space.narrate.waylan.core.data.firestore
+
+import com.google.firebase.firestore.DocumentSnapshot
+
+/**
+ * A page of the documents matched by a Firestore query, read once.
+ *
+ * The page after this one starts after [last], the snapshot of this page's last document as it
+ * was read. Its field values are those the query ordered the page by, so the following page
+ * starts where this one ended even if the document has changed since.
+ */
+class QueryPage<T>(
+    val items: List<T>,
+    internal val last: DocumentSnapshot?
+)
@@ -0,0 +1,254 @@
+package space.narrate.waylan.core.data.firestore
+
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import com.google.firebase.firestore.FieldValue
+import com.google.firebase.firestore.FirebaseFirestore
+import com.google.firebase.firestore.SetOptions
+import com.google.firebase.firestore.WriteBatch
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.suspendCancellableCoroutine
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+import space.narrate.waylan.core.data.firestore.util.userWords
+import space.narrate.waylan.core.data.userword.UserWordPreviews
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import space.narrate.waylan.core.util.RecordJournal
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/**
+ * A write-behind queue of changes to whether [UserWord]s are recent or favorited.
+ *
+ * Updating a [UserWord] used to read the whole document and then write it all back, two round
+ * trips every time a word was viewed. Instead, updates are queued and repeated updates to the
+ * same word are merged, then flushed [flushDelayMillis] later as a single batch of field-level
+ * merges, with [UserWord.modified] set by the server. A flush which fails is retried with
+ * backoff.
+ *
+ * Every update is also appended to a [RecordJournal] in [journalFile], which is replayed when the
+ * queue is created and compacted after each flush, so updates which haven't been flushed yet
+ * survive process death. Updates are journaled and merged one at a time, in the order they were
+ * queued, on [ioDispatcher], so queueing one never touches the disk on the caller's thread.
+ */
+class UserWordWriteQueue(
+    private val firestore: FirebaseFirestore,
+    private val db: WordsetDatabase,
+    private val journalFile: File,
+    ioDispatcher: CoroutineDispatcher,
+    private val flushDelayMillis: Long = FLUSH_DELAY_MILLIS
+) : CoroutineScope by CoroutineScope(ioDispatcher) {
+
+    companion object {
+        const val FLUSH_DELAY_MILLIS = 2_000L
+        private const val MAX_RETRY_DELAY_MILLIS = 5 * 60_000L
+        // Firestore's limit of writes in a single batch
+        private const val MAX_BATCH_WRITES = 500
+
+        private const val TAG = "UserWordWriteQueue"
+
+        private const val FLAG_RECENT = 1
+        private const val FLAG_FAVORITED = 2
+        private const val FLAG_UNFAVORITED = 4
+    }
+
+    private data class Key(val uid: String, val id: String)
+
+    /**
+     * A change to a [UserWord]'s [UserWord.types].
+     *
+     * @property favorite Whether the word is now favorited, or null if that's unchanged
+     */
+    data class Update(val recent: Boolean, val favorite: Boolean?) {
+
+        /**
+         * This update followed by [newer].
+         */
+        fun then(newer: Update): Update =
+            Update(recent || newer.recent, newer.favorite ?: favorite)
+    }
+
+    private val journal = RecordJournal<Pair<Key, Update>>(
+        journalFile,
+        { (key, update) -> write(this, key, update) },
+        { read(this) }
+    )
+
+    // Updates which haven't been journaled and merged into pending yet, in the order queued
+    private val incoming = Channel<Pair<Key, Update>>(Channel.UNLIMITED)
+
+    private val lock = Any()
+
+    // Guarded by lock
+    private val pending = LinkedHashMap<Key, Update>()
+    private var flushJob: Job? = null
+
+    /**
+     * The updates which haven't been flushed yet, by uid and [UserWord] id.
+     */
+    @get:VisibleForTesting
+    val pendingUpdates: Map<Pair<String, String>, Update>
+        get() = synchronized(lock) { pending.mapKeys { (key, _) -> key.uid to key.id } }
+
+    init {
+        launch {
+            synchronized(lock) {
+                try {
+                    journal.replay { (key, update) -> merge(key, update) }
+                    journal.compact(pending.toList())
+                } catch (e: IOException) {
+                    Log.e(TAG, "Unable to replay $journalFile", e)
+                }
+                scheduleFlush()
+            }
+            for ((key, update) in incoming) {
+                synchronized(lock) {
+                    try {
+                        journal.append(key to update)
+                    } catch (e: IOException) {
+                        Log.e(TAG, "Unable to journal update to ${key.id}", e)
+                    }
+                    merge(key, update)
+                    scheduleFlush()
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue [update] to the [UserWord] with [id] of the user with [uid].
+     */
+    fun enqueue(uid: String, id: String, update: Update) {
+        incoming.offer(Key(uid, id) to update)
+    }
+
+    // Must hold lock
+    private fun merge(key: Key, update: Update) {
+        pending[key] = pending[key]?.then(update) ?: update
+    }
+
+    // Must hold lock. Flushes until nothing is pending, waiting longer after each failure.
+    private fun scheduleFlush() {
+        if (flushJob != null || pending.isEmpty()) return
+        flushJob = launch {
+            var wait = flushDelayMillis
+            while (true) {
+                delay(wait)
+                wait = if (flush()) flushDelayMillis else minOf(wait * 2, MAX_RETRY_DELAY_MILLIS)
+                synchronized(lock) {
+                    if (pending.isEmpty()) {
+                        flushJob = null
+                        return@launch
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write every pending update.
+     *
+     * @return Whether every update was written. If not, they're pending again.
+     */
+    private suspend fun flush(): Boolean {
+        val updates = synchronized(lock) {
+            LinkedHashMap(pending).also { pending.clear() }
+        }
+        if (updates.isEmpty()) return true
+
+        return try {
+            updates.entries.chunked(MAX_BATCH_WRITES).forEach { chunk ->
+                val batch = firestore.batch()
+                chunk.forEach { (key, update) ->
+                    val fields = fields(key.id, update) ?: return@forEach
+                    batch.set(firestore.userWords(key.uid).document(key.id), fields, SetOptions.merge())
+                }
+                commit(batch)
+            }
+            synchronized(lock) {
+                try {
+                    journal.compact(pending.toList())
+                } catch (e: IOException) {
+                    Log.e(TAG, "Unable to compact $journalFile", e)
+                }
+            }
+            true
+        } catch (e: Exception) {
+            Log.w(TAG, "Unable to flush ${updates.size} updates", e)
+            synchronized(lock) {
+                // Put the updates back, beneath any which were queued since
+                for ((key, update) in updates) {
+                    pending[key] = pending[key]?.let { update.then(it) } ?: update
+                }
+            }
+            false
+        }
+    }
+
+    private suspend fun commit(batch: WriteBatch): Unit = suspendCancellableCoroutine { cont ->
+        batch.commit()
+            .addOnSuccessListener { cont.resume(Unit) }
+            .addOnFailureListener { cont.resumeWithException(it) }
+    }
+
+    /**
+     * The fields of the [UserWord] with [id] to merge [update] into. The [UserWordPreviews] are
+     * the same every time, so merging them into an existing [UserWord] leaves it unchanged.
+     *
+     * @return The fields, or null if [id] isn't a WordSet word, which can't have a [UserWord]
+     */
+    private fun fields(id: String, update: Update): Map<String, Any>? {
+        val word = db.wordDao().get(id) ?: return null
+        val previews = UserWordPreviews.fromWordset(db.meaningDao().get(id).orEmpty())
+
+        val types = mutableMapOf<String, Any>()
+        if (update.recent) types[UserWordType.RECENT.name] = true
+        when (update.favorite) {
+            true -> types[UserWordType.FAVORITED.name] = true
+            false -> types[UserWordType.FAVORITED.name] = FieldValue.delete()
+        }
+
+        return mapOf(
+            "id" to id,
+            "word" to word.word,
+            "modified" to FieldValue.serverTimestamp(),
+            "types" to types,
+            "partOfSpeechPreview" to previews.partOfSpeech,
+            "defPreview" to previews.def,
+            "synonymPreview" to previews.synonym,
+            "labelsPreview" to previews.labels
+        )
+    }
+
+    private fun write(out: DataOutputStream, key: Key, update: Update) {
+        var flags = 0
+        if (update.recent) flags = flags or FLAG_RECENT
+        when (update.favorite) {
+            true -> flags = flags or FLAG_FAVORITED
+            false -> flags = flags or FLAG_UNFAVORITED
+        }
+        out.writeUTF(key.uid)
+        out.writeUTF(key.id)
+        out.writeByte(flags)
+    }
+
+    private fun read(input: DataInputStream): Pair<Key, Update> {
+        val key = Key(input.readUTF(), input.readUTF())
+        val flags = input.readByte().toInt()
+        val favorite = when {
+            flags and FLAG_FAVORITED != 0 -> true
+            flags and FLAG_UNFAVORITED != 0 -> false
+            else -> null
+        }
+        return key to Update(flags and FLAG_RECENT != 0, favorite)
+    }
+}
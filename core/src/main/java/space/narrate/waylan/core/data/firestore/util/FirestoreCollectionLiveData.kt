@@ -1,46 +1,100 @@
 package space.narrate.waylan.core.data.firestore.util
 
+import androidx.annotation.VisibleForTesting
 import androidx.lifecycle.LiveData
+import com.google.firebase.firestore.DocumentChange
+import com.google.firebase.firestore.DocumentSnapshot
 import com.google.firebase.firestore.EventListener
 import com.google.firebase.firestore.ListenerRegistration
-import com.google.firebase.firestore.MetadataChanges
 import com.google.firebase.firestore.Query
 import com.google.firebase.firestore.QuerySnapshot
-import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import kotlin.coroutines.CoroutineContext
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
 
 /**
  * A helper class to turn a Firestore [QuerySnapshot]
  * [EventListener] into a [LiveData] object
+ *
+ * Rather than parsing every document of every snapshot, each snapshot's
+ * [QuerySnapshot.getDocumentChanges] are applied to the list parsed so far, so only documents
+ * which were added or modified are parsed, and snapshots which change nothing aren't emitted.
  */
 class FirestoreCollectionLiveData<T>(
     private val query: Query,
     private val clazz: Class<T>
-): LiveData<List<T>>(), CoroutineScope {
+): SnapshotListenerLiveData<List<T>>() {
 
-    override val coroutineContext: CoroutineContext
-        get() = Dispatchers.Main
+    companion object {
+        /**
+         * Apply [changes], in order, to [documents], parsing each added or modified document
+         * with [parse].
+         */
+        @VisibleForTesting
+        internal fun <T> applyChanges(
+            documents: MutableList<T>,
+            changes: List<DocumentChange>,
+            parse: (DocumentSnapshot) -> T
+        ) {
+            changes.forEach { change ->
+                when (change.type) {
+                    DocumentChange.Type.ADDED -> {
+                        documents.add(change.newIndex, parse(change.document))
+                    }
+                    DocumentChange.Type.MODIFIED -> {
+                        val document = parse(change.document)
+                        if (change.oldIndex == change.newIndex) {
+                            documents[change.newIndex] = document
+                        } else {
+                            documents.removeAt(change.oldIndex)
+                            documents.add(change.newIndex, document)
+                        }
+                    }
+                    DocumentChange.Type.REMOVED -> {
+                        documents.removeAt(change.oldIndex)
+                    }
+                }
+            }
+        }
+    }
 
-    private var listenerRegistration: ListenerRegistration? = null
+    // Applies snapshots one at a time, in the order they were received
+    private val mutex = Mutex()
 
-    private val eventListener =
-        EventListener<QuerySnapshot> { querySnapshot, firebaseFirestoreException ->
+    private fun newEventListener(): EventListener<QuerySnapshot> {
+        // Each registration starts from an empty list, its first snapshot adding every document
+        val documents = mutableListOf<T>()
+        var hasEmitted = false
+
+        return EventListener { querySnapshot, firebaseFirestoreException ->
             if (firebaseFirestoreException != null) {
                 firebaseFirestoreException.printStackTrace()
-            } else {
-                // move parsing off the main thread
-                launch { value = querySnapshot?.documents?.map { it.toObject(clazz)!! } }
+            } else if (querySnapshot != null) {
+                val changes = querySnapshot.documentChanges
+                if (changes.isEmpty() && hasEmitted) return@EventListener
+                hasEmitted = true
+
+                launch {
+                    mutex.withLock {
+                        // move parsing off the main thread. Server timestamps which haven't been
+                        // written yet, like a queued UserWord.modified, are estimated rather
+                        // than null.
+                        value = withContext(Dispatchers.Default) {
+                            applyChanges(documents, changes) {
+                                it.toObject(clazz, DocumentSnapshot.ServerTimestampBehavior.ESTIMATE)!!
+                            }
+                            documents.toList()
+                        }
+                    }
+                }
             }
         }
-
-    override fun onActive() {
-        listenerRegistration = query.addSnapshotListener(MetadataChanges.INCLUDE, eventListener)
     }
 
-    override fun onInactive() {
-        listenerRegistration?.remove()
+    override fun addSnapshotListener(): ListenerRegistration {
+        return query.addSnapshotListener(newEventListener())
     }
 
 }
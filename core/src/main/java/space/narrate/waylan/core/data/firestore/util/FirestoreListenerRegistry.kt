@@ -0,0 +1,113 @@
+package space.narrate.waylan.core.data.firestore.util
+
+import androidx.lifecycle.LiveData
+import com.google.firebase.firestore.DocumentReference
+import com.google.firebase.firestore.FirebaseFirestoreException
+import com.google.firebase.firestore.Query
+import java.lang.ref.WeakReference
+
+/**
+ * Shares one Firestore snapshot listener between everything observing the same [Query] or
+ * [DocumentReference].
+ *
+ * Screens often observe the same data at the same time, like the recent words shown by both
+ * search and the recents list, or a UserAddOn shown by details, settings and add-ons. Rather
+ * than each adding a listener of its own, requests for a query or document which is already being
+ * listened to, or about to be, are given the same LiveData, which multicasts its listener's
+ * snapshots to all of their observers.
+ *
+ * A listener is kept for [gracePeriodMillis] after its last observer is removed, so observers
+ * which are recreated by a configuration change pick it up again instead of querying Firestore
+ * from scratch. See [stats] for how many listeners are active.
+ */
+class FirestoreListenerRegistry(
+    val gracePeriodMillis: Long = GRACE_PERIOD_MILLIS
+) {
+
+    companion object {
+        const val GRACE_PERIOD_MILLIS = 5_000L
+    }
+
+    private data class Key(val target: Any, val clazz: Class<*>)
+
+    private val lock = Any()
+
+    // Guarded by lock. LiveData are shared from when they're created until their listener is
+    // removed. One which is never observed is only weakly held, so it isn't kept once dropped.
+    private val listening = HashMap<Any, WeakReference<SnapshotListenerLiveData<*>>>()
+    private var activeListeners = 0
+    private var listenersAdded = 0L
+    private var sharedRequests = 0L
+
+    val stats: FirestoreListenerStats
+        get() = synchronized(lock) {
+            FirestoreListenerStats(activeListeners, listenersAdded, sharedRequests)
+        }
+
+    /**
+     * A LiveData of the documents matched by [query], shared with anything else observing it.
+     */
+    fun <T> liveData(query: Query, clazz: Class<T>): LiveData<List<T>> {
+        return share(query, clazz) { FirestoreCollectionLiveData(query, clazz) }
+    }
+
+    /**
+     * A LiveData of the document at [documentReference], shared with anything else observing it.
+     *
+     * @param onError Run when the document can't be read or doesn't exist. Only the request which
+     *  creates the shared LiveData sets it, so every request for the same document and [clazz]
+     *  should handle errors the same way.
+     */
+    fun <T> liveData(
+        documentReference: DocumentReference,
+        clazz: Class<T>,
+        onError: ((FirebaseFirestoreException) -> Unit)? = null
+    ): FirestoreDocumentLiveData<T> {
+        return share(documentReference, clazz) {
+            FirestoreDocumentLiveData(documentReference, clazz, onError)
+        }
+    }
+
+    /**
+     * The LiveData shared for [target] and [type] if there is one, or else a new one from
+     * [create], which is shared from now on.
+     */
+    @Suppress("UNCHECKED_CAST")
+    internal fun <L : SnapshotListenerLiveData<*>> share(
+        target: Any,
+        type: Class<*>,
+        create: () -> L
+    ): L {
+        val key = Key(target, type)
+        synchronized(lock) {
+            listening[key]?.get()?.let {
+                sharedRequests++
+                return it as L
+            }
+            listening.values.removeAll { it.get() == null }
+            return create().also {
+                it.registry = this
+                it.key = key
+                listening[key] = WeakReference(it)
+            }
+        }
+    }
+
+    internal fun onListenerAdded(liveData: SnapshotListenerLiveData<*>) {
+        synchronized(lock) {
+            activeListeners++
+            listenersAdded++
+            // Observed again after its listener was removed, and not yet replaced by another
+            val key = liveData.key ?: return
+            if (listening[key]?.get() == null) listening[key] = WeakReference(liveData)
+        }
+    }
+
+    internal fun onListenerRemoved(liveData: SnapshotListenerLiveData<*>) {
+        synchronized(lock) {
+            activeListeners--
+            val key = liveData.key ?: return
+            if (listening[key]?.get() === liveData) listening.remove(key)
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package space.narrate.waylan.core.data.firestore.util
+
+/**
+ * How many Firestore snapshot listeners [FirestoreListenerRegistry] is holding and how often
+ * they've been shared.
+ *
+ * @property activeListeners Snapshot listeners which are currently added
+ * @property listenersAdded Snapshot listeners added since the registry was created
+ * @property sharedRequests Requests for LiveData which were served by one already shared
+ */
+data class FirestoreListenerStats(
+    val activeListeners: Int,
+    val listenersAdded: Long,
+    val sharedRequests: Long
+)
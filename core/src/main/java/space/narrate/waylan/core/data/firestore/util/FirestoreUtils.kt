@@ -6,17 +6,26 @@ import com.google.firebase.firestore.FirebaseFirestoreException
 import com.google.firebase.firestore.Query
 
 /**
- * Convert a Firestore [Query] into a [LiveData] object
+ * Convert a Firestore [Query] into a [LiveData] object, shared through [registry] if given
  */
-fun <T> Query.liveData(clazz: Class<T>): LiveData<List<T>> {
-    return FirestoreCollectionLiveData(this, clazz)
+fun <T> Query.liveData(
+    clazz: Class<T>,
+    registry: FirestoreListenerRegistry? = null
+): LiveData<List<T>> {
+    return registry?.liveData(this, clazz) ?: FirestoreCollectionLiveData(this, clazz)
 }
 
 /**
- * convert a Firestore [DocumentReference] into a [LiveData] object
+ * convert a Firestore [DocumentReference] into a [LiveData] object, shared through [registry] if
+ * given, which runs [onError] when the document can't be read or doesn't exist
  */
-fun <T> DocumentReference.liveData(clazz: Class<T>): FirestoreDocumentLiveData<T> {
-    return FirestoreDocumentLiveData(this, clazz)
+fun <T> DocumentReference.liveData(
+    clazz: Class<T>,
+    registry: FirestoreListenerRegistry? = null,
+    onError: ((FirebaseFirestoreException) -> Unit)? = null
+): FirestoreDocumentLiveData<T> {
+    return registry?.liveData(this, clazz, onError)
+        ?: FirestoreDocumentLiveData(this, clazz, onError)
 }
 
 /**
@@ -0,0 +1,69 @@
+package space.narrate.waylan.core.data.firestore.util
+
+import androidx.lifecycle.LiveData
+import com.google.firebase.firestore.ListenerRegistration
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.launch
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * A [LiveData] backed by a single Firestore snapshot listener, which is added when the LiveData
+ * becomes active and removed when it becomes inactive.
+ *
+ * When shared through a [FirestoreListenerRegistry], the listener is only removed once the
+ * LiveData has been inactive for the registry's grace period, so an observer which comes straight
+ * back, like a Fragment being recreated after a configuration change, reuses the listener and
+ * what it has already loaded instead of querying Firestore again.
+ */
+abstract class SnapshotListenerLiveData<T> : LiveData<T>(), CoroutineScope {
+
+    override val coroutineContext: CoroutineContext
+        get() = Dispatchers.Main
+
+    // Set by the registry which shares this LiveData, if any
+    internal var registry: FirestoreListenerRegistry? = null
+    internal var key: Any? = null
+
+    private var listenerRegistration: ListenerRegistration? = null
+    private var removal: Job? = null
+
+    /**
+     * Add the snapshot listener which sets this LiveData's value.
+     */
+    protected abstract fun addSnapshotListener(): ListenerRegistration
+
+    override fun onActive() {
+        super.onActive()
+        removal?.cancel()
+        removal = null
+        if (listenerRegistration == null) {
+            listenerRegistration = addSnapshotListener()
+            registry?.onListenerAdded(this)
+        }
+    }
+
+    override fun onInactive() {
+        super.onInactive()
+        val gracePeriodMillis = registry?.gracePeriodMillis ?: 0L
+        if (gracePeriodMillis <= 0L) {
+            removeListener()
+            return
+        }
+        removal = launch {
+            delay(gracePeriodMillis)
+            removal = null
+            // An observer may have come back just as the grace period ran out
+            if (!hasActiveObservers()) removeListener()
+        }
+    }
+
+    private fun removeListener() {
+        val registration = listenerRegistration ?: return
+        registration.remove()
+        listenerRegistration = null
+        registry?.onListenerRemoved(this)
+    }
+}
@@ -0,0 +1,166 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.util.Arrays;
+
+/// <summary>The deletes of a SymSpell dictionary in an int-keyed, open-addressed table.</summary>
+/// <remarks>In place of a boxed Integer key and a String[] per delete, the suggestions of every
+/// delete are word ids in a single, flat pool, each slot holding the start and length of its run.
+/// Suggestions are added in bulk from a SuggestionStage. Only the runs of staged deletes are
+/// touched: a run at the end of the pool is extended in place, and any other run is moved to the
+/// end. The runs left behind are reclaimed by compacting the pool once they outgrow the live
+/// suggestions, so adding a few words costs in proportion to their deletes, not the whole
+/// table.</remarks>
+public class DeleteTable implements Deletes {
+    private int[] keys;
+    private int[] starts;
+    private int[] counts;
+    private int size;
+    private int mask;
+
+    private int[] pool;
+    private int poolEnd; // pool[poolEnd..] is free
+    private int live; // suggestions held by runs, the rest of pool[..poolEnd] is garbage
+
+    public DeleteTable(int initialCapacity) {
+        int capacity = tableCapacity(initialCapacity);
+        keys = new int[capacity];
+        starts = new int[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        pool = new int[0];
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int capacity() { return keys.length; }
+
+    @Override
+    public int key(int slot) { return keys[slot]; }
+
+    @Override
+    public int suggestionCount(int slot) { return counts[slot]; }
+
+    @Override
+    public int suggestion(int slot, int index) { return pool[starts[slot] + index]; }
+
+    /// <summary>Gets the total count of all suggestions for all deletes.</summary>
+    public int poolSize() { return live; }
+
+    @Override
+    public int find(int deleteHash) {
+        int slot = mix(deleteHash) & mask;
+        while (counts[slot] != 0) {
+            if (keys[slot] == deleteHash) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /// <summary>Add all staged suggestions, appending them after any existing suggestions of
+    /// the same delete.</summary>
+    /// <remarks>Several stages can be added in one pass, in which case each stage's suggestions
+    /// are appended in the order the stages are given. Stages may share deletes, so the table
+    /// is sized for the largest stage and grown as distinct deletes are found.</remarks>
+    void addAll(SuggestionStage... stagings) {
+        int staged = 0;
+        int nodeCount = 0;
+        for (SuggestionStage staging : stagings) {
+            staged = Math.max(staged, staging.deleteCount());
+            nodeCount += staging.nodeCount();
+        }
+        if (tableCapacity(size + staged) > keys.length) rehash(tableCapacity(size + staged));
+        // Room for every staged suggestion, as it is when nothing is moved
+        ensurePool(poolEnd + nodeCount);
+
+        for (SuggestionStage staging : stagings) {
+            for (SuggestionStage.Entry entry : staging.deletes.values()) {
+                int slot = mix(entry.key) & mask;
+                while (counts[slot] != 0 && keys[slot] != entry.key) slot = (slot + 1) & mask;
+                if (counts[slot] == 0) {
+                    if (tableCapacity(size + 1) > keys.length) {
+                        rehash(keys.length << 1);
+                        slot = mix(entry.key) & mask;
+                        while (counts[slot] != 0) slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = entry.key;
+                    starts[slot] = poolEnd;
+                    size++;
+                } else if (starts[slot] + counts[slot] != poolEnd) {
+                    // Move the run to the end of the pool, where it can be extended
+                    ensurePool(poolEnd + counts[slot] + entry.count);
+                    System.arraycopy(pool, starts[slot], pool, poolEnd, counts[slot]);
+                    starts[slot] = poolEnd;
+                    poolEnd += counts[slot];
+                }
+                ensurePool(poolEnd + entry.count);
+
+                int next = entry.first;
+                while (next >= 0) {
+                    SuggestionStage.Node node = staging.nodes.getValues(next);
+                    pool[poolEnd++] = node.suggestion;
+                    next = node.next;
+                }
+                counts[slot] += entry.count;
+                live += entry.count;
+            }
+        }
+
+        if (poolEnd - live > live >> 1) compact();
+    }
+
+    /// <summary>Place every delete in a table of a new capacity. Runs stay where they are in the
+    /// pool.</summary>
+    private void rehash(int capacity) {
+        int newMask = capacity - 1;
+        int[] newKeys = new int[capacity];
+        int[] newStarts = new int[capacity];
+        int[] newCounts = new int[capacity];
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] == 0) continue;
+            int newSlot = mix(keys[slot]) & newMask;
+            while (newCounts[newSlot] != 0) newSlot = (newSlot + 1) & newMask;
+            newKeys[newSlot] = keys[slot];
+            newStarts[newSlot] = starts[slot];
+            newCounts[newSlot] = counts[slot];
+        }
+        keys = newKeys;
+        starts = newStarts;
+        counts = newCounts;
+        mask = newMask;
+    }
+
+    private void ensurePool(int length) {
+        if (length <= pool.length) return;
+        pool = Arrays.copyOf(pool, Math.max(length, pool.length + (pool.length >> 1)));
+    }
+
+    /// <summary>Lay runs out again in slot order, dropping the runs left behind by moves.</summary>
+    private void compact() {
+        int[] newPool = new int[live];
+        int cursor = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            int count = counts[slot];
+            if (count == 0) continue;
+            System.arraycopy(pool, starts[slot], newPool, cursor, count);
+            starts[slot] = cursor;
+            cursor += count;
+        }
+        pool = newPool;
+        poolEnd = cursor;
+    }
+
+    /// <summary>Smallest power of two which keeps a table of size entries at most 2/3 full.</summary>
+    static int tableCapacity(int size) {
+        int capacity = 1;
+        while (capacity < size + (size >> 1) + 1) capacity <<= 1;
+        return capacity;
+    }
+
+    /// <summary>Spread a hash over a table, since delete hashes share their low (length) bits.</summary>
+    static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,25 @@
+package space.narrate.waylan.core.data.spell;
+
+/// <summary>Read access to the deletes of a SymSpell dictionary.</summary>
+/// <remarks>Deletes are kept in an open-addressed table keyed by delete hash. Each occupied
+/// slot holds the word ids of the dictionary words the delete was derived from.</remarks>
+public interface Deletes {
+    /// <summary>Gets the number of unique delete hashes.</summary>
+    int size();
+
+    /// <summary>Gets the number of slots in the table.</summary>
+    int capacity();
+
+    /// <summary>Find the slot of a delete hash.</summary>
+    /// <returns>The slot, or -1 if there are no suggestions for the delete.</returns>
+    int find(int deleteHash);
+
+    /// <summary>Gets the delete hash held by an occupied slot.</summary>
+    int key(int slot);
+
+    /// <summary>Gets the number of suggestions in a slot, 0 if the slot is empty.</summary>
+    int suggestionCount(int slot);
+
+    /// <summary>Gets the word id of a suggestion in a slot.</summary>
+    int suggestion(int slot, int index);
+}
@@ -21,29 +21,56 @@ package space.narrate.waylan.core.data.spell;
 //        OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 //        SOFTWARE.
 
+import java.util.Arrays;
+
 public class EditDistance {
     public enum DistanceAlgorithm{
-        Damerau
+        Damerau,
+        /// <summary>The same distance as Damerau, computed with bit vectors. Base strings of more
+        /// than 64 chars fall back to Damerau.</summary>
+        DamerauBitParallel
     }
-    private String baseString;
+    private char[] baseString;
+    private int baseLength;
     private DistanceAlgorithm algorithm;
     private int[] v0;
     private int[] v2;
+    private char[] other; // holds the compared String, so comparing doesn't allocate
+    // match masks of the base string for DamerauBitParallel, bit i set where baseString[i] == c
+    private long[] peqLatin;
+    private char[] peqChars; // chars above Latin-1, and their masks
+    private long[] peqMasks;
+    private int peqCount;
     /// <summary>Create a new EditDistance object.</summary>
     /// <param name="baseString">The base string to which other strings will be compared.</param>
     /// <param name="algorithm">The desired edit distance algorithm.</param>
     public EditDistance(String baseString, DistanceAlgorithm algorithm)
     {
-        this.baseString = baseString;
+        this(algorithm);
+        setBaseString(baseString);
+    }
+    /// <summary>Create a new EditDistance object with an empty base string, which is meant
+    /// to be reused by setting a new base string before each set of comparisons.</summary>
+    /// <param name="algorithm">The desired edit distance algorithm.</param>
+    public EditDistance(DistanceAlgorithm algorithm) {
         this.algorithm = algorithm;
-        if (this.baseString.isEmpty()) {
-            this.baseString = null;
-            return;
-        }
-        if (algorithm == DistanceAlgorithm.Damerau) {
-            v0 = new int[baseString.length()];
-            v2 = new int[baseString.length()]; // stores one level further back (offset by +1 position)
+        this.baseString = new char[0];
+        this.other = new char[0];
+        this.v0 = new int[0];
+        this.v2 = new int[0];
+    }
+    /// <summary>Set the base string to which other strings will be compared, reusing the
+    /// buffers of previous base strings where they are large enough.</summary>
+    /// <param name="baseString">The base string to which other strings will be compared.</param>
+    public void setBaseString(CharSequence baseString) {
+        baseLength = baseString.length();
+        if (baseLength > this.baseString.length) this.baseString = new char[baseLength];
+        for (int i = 0; i < baseLength; i++) this.baseString[i] = baseString.charAt(i);
+        if (baseLength > v0.length) {
+            v0 = new int[baseLength];
+            v2 = new int[baseLength]; // stores one level further back (offset by +1 position)
         }
+        if (algorithm == DistanceAlgorithm.DamerauBitParallel && baseLength <= 64) setPeq();
     }
     // <summary>compare a string to the base string to determine the edit distance,
     /// using the previously selected algorithm.</summary>
@@ -51,8 +78,25 @@ public class EditDistance {
     /// <param name="maxDistance">The maximum distance allowed.</param>
     /// <returns>The edit distance (or -1 if maxDistance exceeded).</returns>
     public int compare(String string2, int maxDistance) {
+        if (string2 == null) return baseLength;
+        int length = string2.length();
+        if (length > other.length) other = new char[length];
+        string2.getChars(0, length, other, 0);
+        return compare(other, length, maxDistance);
+    }
+    /// <summary>compare the first length chars of string2 to the base string to determine the
+    /// edit distance, using the previously selected algorithm.</summary>
+    /// <param name="string2">The chars to compare.</param>
+    /// <param name="length">The number of chars of string2 to compare.</param>
+    /// <param name="maxDistance">The maximum distance allowed.</param>
+    /// <returns>The edit distance (or -1 if maxDistance exceeded).</returns>
+    public int compare(char[] string2, int length, int maxDistance) {
         switch (algorithm) {
-            case Damerau: return DamerauLevenshteinDistance(string2, maxDistance);
+            case Damerau: return damerauLevenshteinDistance(string2, length, maxDistance);
+            case DamerauBitParallel:
+                return baseLength <= 64
+                        ? damerauBitParallelDistance(string2, length, maxDistance)
+                        : damerauLevenshteinDistance(string2, length, maxDistance);
         }
         throw new IllegalArgumentException("unknown DistanceAlgorithm");
     }
@@ -63,36 +107,48 @@ public class EditDistance {
     /// <returns>int edit distance, >= 0 representing the number of edits required
     /// to transform one string to the other, or -1 if the distance is greater than the specified maxDistance.</returns>
     public int DamerauLevenshteinDistance(String string2, int maxDistance) {
-        if (baseString == null) return string2 == null ? 0 : string2.length(); //string2 ?? "").Length;
-        if (string2 == null || string2.isEmpty()) return baseString.length();
+        if (string2 == null) return baseLength;
+        int length = string2.length();
+        if (length > other.length) other = new char[length];
+        string2.getChars(0, length, other, 0);
+        return damerauLevenshteinDistance(other, length, maxDistance);
+    }
+
+    private int damerauLevenshteinDistance(char[] chars2, int length2, int maxDistance) {
+        if (baseLength == 0) return length2;
+        if (length2 == 0) return baseLength;
 
         // if strings of different lengths, ensure shorter string is in string1. This can result in a little
         // faster speed by spending more time spinning just the inner loop during the main processing.
-        String string1;
-        if (baseString.length() > string2.length()) {
-            string1 = string2;
+        char[] string1;
+        char[] string2;
+        int sLen; // this is also the minimun length of the two strings
+        int tLen;
+        if (baseLength > length2) {
+            string1 = chars2;
+            sLen = length2;
             string2 = baseString;
+            tLen = baseLength;
         } else {
             string1 = baseString;
+            sLen = baseLength;
+            string2 = chars2;
+            tLen = length2;
         }
-        int sLen = string1.length(); // this is also the minimun length of the two strings
-        int tLen = string2.length();
 
         // suffix common to both strings can be ignored
-        while ((sLen > 0) && (string1.charAt(sLen - 1) == string2.charAt(tLen - 1))) { sLen--; tLen--; }
+        while ((sLen > 0) && (string1[sLen - 1] == string2[tLen - 1])) { sLen--; tLen--; }
 
         int start = 0;
-        if ((string1.charAt(0) == string2.charAt(0)) || (sLen == 0)) { // if there'string1 a shared prefix, or all string1 matches string2'string1 suffix
+        if ((string1[0] == string2[0]) || (sLen == 0)) { // if there'string1 a shared prefix, or all string1 matches string2'string1 suffix
             // prefix common to both strings can be ignored
-            while ((start < sLen) && (string1.charAt(start) == string2.charAt(start))) start++;
+            while ((start < sLen) && (string1[start] == string2[start])) start++;
             sLen -= start; // length of the part excluding common prefix and suffix
             tLen -= start;
 
             // if all of shorter string matches prefix and/or suffix of longer string, then
             // edit distance is just the delete of additional characters present in longer string
             if (sLen == 0) return tLen;
-
-            string2 = string2.substring(start, start + tLen); // faster than string2[start+j] in inner loop below
         }
         int lenDiff = tLen - sLen;
         if ((maxDistance < 0) || (maxDistance > tLen)) {
@@ -114,12 +170,12 @@ public class EditDistance {
         boolean haveMax = maxDistance < tLen;
         int jStart = 0;
         int jEnd = maxDistance;
-        char sChar = string1.charAt(0);
+        char sChar = string1[0];
         int current = 0;
         for (int i = 0; i < sLen; i++) {
             char prevsChar = sChar;
-            sChar = string1.charAt(start+i);
-            char tChar = string2.charAt(0);
+            sChar = string1[start + i];
+            char tChar = string2[start]; // string2 is read from start, past the common prefix
             int left = i;
             current = left + 1;
             int nextTransCost = 0;
@@ -134,7 +190,7 @@ public class EditDistance {
                 v2[j] = current = left; // cost of diagonal (substitution)
                 left = v0[j];    // left now equals current cost (which will be diagonal at next iteration)
                 char prevtChar = tChar;
-                tChar = string2.charAt(j);
+                tChar = string2[start + j];
                 if (sChar != tChar) {
                     if (left < current) current = left;   // insertion
                     if (above < current) current = above; // deletion
@@ -152,4 +208,99 @@ public class EditDistance {
         }
         return (current <= maxDistance) ? current : -1;
     }
+
+    /// <summary>The optimal string alignment (restricted Damerau-Levenshtein) distance between the base
+    /// string and string2, computed a column at a time with the bit-vector algorithm of Myers, as
+    /// extended to transpositions by Hyyrö ("A Bit-Vector Algorithm for Computing Levenshtein and
+    /// Damerau Edit Distances", 2003).</summary>
+    /// <remarks>The base string is the pattern, so its match masks are built once in setBaseString and
+    /// each comparison is a single pass over string2. Returns the same values as
+    /// damerauLevenshteinDistance, including its handling of empty strings and common
+    /// affixes.</remarks>
+    private int damerauBitParallelDistance(char[] string2, int length2, int maxDistance) {
+        if (baseLength == 0) return length2;
+        if (length2 == 0) return baseLength;
+
+        int sLen = Math.min(baseLength, length2);
+        int tLen = Math.max(baseLength, length2);
+
+        // suffix and prefix common to both strings can be ignored
+        int baseEnd = baseLength;
+        int end2 = length2;
+        while ((sLen > 0) && (baseString[baseEnd - 1] == string2[end2 - 1])) { sLen--; tLen--; baseEnd--; end2--; }
+        int start = 0;
+        while ((start < sLen) && (baseString[start] == string2[start])) start++;
+        sLen -= start;
+        tLen -= start;
+
+        // if all of shorter string matches prefix and/or suffix of longer string, then
+        // edit distance is just the delete of additional characters present in longer string
+        if (sLen == 0) return tLen;
+
+        int lenDiff = tLen - sLen;
+        if ((maxDistance < 0) || (maxDistance > tLen)) {
+            maxDistance = tLen;
+        } else if (lenDiff > maxDistance) return -1;
+
+        // the pattern is baseString[start, baseEnd), so its masks are the base string's shifted by start
+        int m = baseEnd - start;
+        long mask = m == 64 ? -1L : (1L << m) - 1;
+        long last = 1L << (m - 1);
+        long vp = -1L;
+        long vn = 0;
+        long d0 = 0;
+        long pmPrevious = 0;
+        int distance = m;
+        int n = end2 - start;
+        for (int j = 0; j < n; j++) {
+            long pm = (peq(string2[start + j]) >>> start) & mask;
+            long transposition = (((~d0) & pm) << 1) & pmPrevious;
+            d0 = (((pm & vp) + vp) ^ vp) | pm | vn | transposition;
+            long hp = vn | ~(d0 | vp);
+            long hn = d0 & vp;
+            if ((hp & last) != 0) distance++;
+            else if ((hn & last) != 0) distance--;
+            hp = (hp << 1) | 1;
+            hn = hn << 1;
+            vp = hn | ~(d0 | hp);
+            vn = hp & d0;
+            pmPrevious = pm;
+            // each remaining char of string2 can lower the distance by at most one
+            if (distance - (n - 1 - j) > maxDistance) return -1;
+        }
+        return (distance <= maxDistance) ? distance : -1;
+    }
+
+    private long peq(char c) {
+        if (c < 256) return peqLatin[c];
+        for (int i = 0; i < peqCount; i++) {
+            if (peqChars[i] == c) return peqMasks[i];
+        }
+        return 0;
+    }
+
+    private void setPeq() {
+        if (peqLatin == null) {
+            peqLatin = new long[256];
+            peqChars = new char[64];
+            peqMasks = new long[64];
+        } else {
+            Arrays.fill(peqLatin, 0);
+        }
+        peqCount = 0;
+        for (int i = 0; i < baseLength; i++) {
+            char c = baseString[i];
+            if (c < 256) {
+                peqLatin[c] |= 1L << i;
+                continue;
+            }
+            int k = 0;
+            while (k < peqCount && peqChars[k] != c) k++;
+            if (k == peqCount) {
+                peqChars[peqCount] = c;
+                peqMasks[peqCount++] = 0;
+            }
+            peqMasks[k] |= 1L << i;
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package space.narrate.waylan.core.data.spell
+
+import space.narrate.waylan.core.util.RecordJournal
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * An append-only log of the words a user has opened, which [SymSpellStore] replays on top of its
+ * dictionary at startup to rank the user's own vocabulary first.
+ *
+ * Each record is a word, written with [DataOutputStream.writeUTF], followed by the number of
+ * times it was opened, so learning a word is a single small append to a [RecordJournal] and the
+ * corpus is never reread. Once the log holds several records per word, or ends with a record cut
+ * short, it is rewritten with a single record per word.
+ */
+class LearnedWordLog(file: File) {
+
+    companion object {
+        // Compact once the log holds this many records per word, and at least MIN_COMPACT_RECORDS
+        private const val COMPACT_RATIO = 4
+        private const val MIN_COMPACT_RECORDS = 256
+    }
+
+    private val journal = RecordJournal<Pair<String, Int>>(
+        file,
+        { (word, opens) -> writeUTF(word); writeInt(opens) },
+        { readUTF() to readInt() }
+    )
+
+    /**
+     * Record that [word] was opened [opens] more times.
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun append(word: String, opens: Int = 1) {
+        journal.append(word to opens)
+    }
+
+    /**
+     * Read every record of the log, compacting it if needed.
+     *
+     * @return The number of times each word in the log has been opened, in the order each word
+     *  was first opened
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun replay(): Map<String, Long> {
+        val opens = LinkedHashMap<String, Long>()
+        var records = 0
+        val isTorn = journal.replay { (word, count) ->
+            opens[word] = (opens[word] ?: 0L) + count
+            records++
+        }
+
+        if (isTorn || (records >= MIN_COMPACT_RECORDS && records >= opens.size * COMPACT_RATIO)) {
+            journal.compact(opens.map { (word, count) ->
+                word to count.coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+            })
+        }
+        return opens
+    }
+}
@@ -0,0 +1,324 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/// <summary>Reusable scratch space and results of a SymSpell lookup.</summary>
+/// <remarks>A lookup needs the input's deletes, sets of the deletes and suggestions it has
+/// already considered, edit distance buffers and a list of results. A LookupContext holds all of
+/// these in primitive arrays which are cleared, not reallocated, between lookups, so once they
+/// have grown to fit typical input a lookup allocates nothing.
+///
+/// Results are kept in a bounded heap, so only the best maxResults suggestions are held at any
+/// time, and are sorted by ascending edit distance, then by descending word frequency, once the
+/// lookup completes. Equal suggestions keep the order they were found in.
+///
+/// Candidates outlive the lookup which derived them, so a lookup whose input has the same prefix
+/// as the previous one can reuse them. They are only discarded when a lookup needs others.
+///
+/// A LookupContext is not thread safe. SymSpell keeps one per thread.</remarks>
+public final class LookupContext {
+    // input
+    char[] input = new char[32];
+    int inputLength;
+
+    // candidates (the input prefix and its deletes), back to back. Candidate i is the chars
+    // from candidateStarts[i] to candidateStarts[i + 1], and was found in the delete table slot
+    // candidateSlots[i]
+    char[] candidateChars = new char[256];
+    private int[] candidateStarts = new int[65];
+    private int[] candidateSlots = new int[65];
+    private int candidateCount;
+
+    // whether every candidate of the prefix has been derived, and for which max edit distance
+    // and generation of the delete table
+    private boolean candidatesComplete;
+    private int candidatesMaxEditDistance;
+    private int candidatesGeneration;
+
+    // considered deletes, an open-addressed table of candidate index + 1 (0 = empty)
+    private int[] deleteTable = new int[128];
+    private int deleteCount;
+
+    // considered suggestions, an open-addressed table of word id + 1 (0 = empty)
+    private int[] suggestionTable = new int[256];
+    private int suggestionCount;
+
+    // the suggestion being compared
+    char[] suggestion = new char[32];
+
+    final EditDistance distanceComparer;
+
+    // results, a heap with the worst result first until sorted
+    private Words words;
+    private int[] resultIds = new int[16];
+    private int[] resultDistances = new int[16];
+    private long[] resultCounts = new long[16];
+    private int[] resultOrder = new int[16];
+    private int resultCount;
+    private int maxResults;
+    private int order;
+
+    LookupContext(EditDistance.DistanceAlgorithm algorithm) {
+        distanceComparer = new EditDistance(algorithm);
+    }
+
+    /// <summary>Gets the number of suggestions found.</summary>
+    public int size() { return resultCount; }
+
+    /// <summary>Gets the word id of a suggestion.</summary>
+    public int wordId(int index) { return resultIds[index]; }
+
+    /// <summary>Gets the edit distance between the input and a suggestion.</summary>
+    public int distance(int index) { return resultDistances[index]; }
+
+    /// <summary>Gets the frequency count of a suggestion.</summary>
+    public long count(int index) { return resultCounts[index]; }
+
+    /// <summary>Gets the suggested word. Unlike the other accessors, this allocates a String.</summary>
+    public String term(int index) { return words.get(resultIds[index]); }
+
+    /// <summary>Copy the suggestions into a new list of SuggestItems.</summary>
+    public List<SuggestItem> getSuggestions() {
+        List<SuggestItem> suggestions = new ArrayList<>(resultCount);
+        for (int i = 0; i < resultCount; i++) {
+            suggestions.add(new SuggestItem(term(i), resultDistances[i], resultCounts[i]));
+        }
+        return suggestions;
+    }
+
+    /// <summary>Clear the results and scratch space of the previous lookup, keeping its
+    /// candidates.</summary>
+    void reset(CharSequence input, Words words, int maxResults) {
+        inputLength = input.length();
+        if (inputLength > this.input.length) this.input = new char[inputLength];
+        for (int i = 0; i < inputLength; i++) this.input[i] = input.charAt(i);
+
+        if (suggestionCount > 0) Arrays.fill(suggestionTable, 0);
+        suggestionCount = 0;
+
+        this.words = words;
+        this.maxResults = maxResults;
+        resultCount = 0;
+        order = 0;
+    }
+
+    // ---- candidates
+
+    int candidateCount() { return candidateCount; }
+
+    int candidateStart(int candidate) { return candidateStarts[candidate]; }
+
+    int candidateLength(int candidate) { return candidateStarts[candidate + 1] - candidateStarts[candidate]; }
+
+    int candidateSlot(int candidate) { return candidateSlots[candidate]; }
+
+    void setCandidateSlot(int candidate, int slot) { candidateSlots[candidate] = slot; }
+
+    /// <summary>Check whether every candidate of the first prefixLength chars of the input has
+    /// already been derived, for the same max edit distance and delete table.</summary>
+    boolean hasCandidates(int prefixLength, int maxEditDistance, int generation) {
+        return candidatesComplete
+                && candidatesMaxEditDistance == maxEditDistance
+                && candidatesGeneration == generation
+                && candidateLength(0) == prefixLength
+                && regionMatches(candidateChars, 0, input, 0, prefixLength);
+    }
+
+    /// <summary>Mark every candidate of the current prefix as derived.</summary>
+    void completeCandidates(int maxEditDistance, int generation) {
+        candidatesComplete = true;
+        candidatesMaxEditDistance = maxEditDistance;
+        candidatesGeneration = generation;
+    }
+
+    /// <summary>Remove all candidates.</summary>
+    void clearCandidates() {
+        candidateCount = 0;
+        candidateStarts[0] = 0;
+        if (deleteCount > 0) Arrays.fill(deleteTable, 0);
+        deleteCount = 0;
+        candidatesComplete = false;
+    }
+
+    /// <summary>Add the first length chars of the input as the first candidate.</summary>
+    void addInputCandidate(int length) {
+        ensureCandidateCapacity(length);
+        System.arraycopy(input, 0, candidateChars, 0, length);
+        candidateStarts[++candidateCount] = length;
+    }
+
+    /// <summary>Add a candidate's delete of the char at index, unless it has been considered
+    /// already.</summary>
+    void addDelete(int candidate, int index) {
+        int start = candidateStarts[candidate];
+        int length = candidateStarts[candidate + 1] - start - 1;
+        ensureCandidateCapacity(length);
+        int end = candidateStarts[candidateCount];
+        System.arraycopy(candidateChars, start, candidateChars, end, index);
+        System.arraycopy(candidateChars, start + index + 1, candidateChars, end + index, length - index);
+
+        int mask = deleteTable.length - 1;
+        int slot = DeleteTable.mix(WordArena.hash(candidateChars, end, end + length)) & mask;
+        int existing;
+        while ((existing = deleteTable[slot] - 1) >= 0) {
+            if (candidateLength(existing) == length
+                    && regionMatches(candidateChars, candidateStarts[existing], candidateChars, end, length)) return;
+            slot = (slot + 1) & mask;
+        }
+        deleteTable[slot] = candidateCount + 1;
+        candidateStarts[++candidateCount] = end + length;
+        if (DeleteTable.tableCapacity(++deleteCount) > deleteTable.length) rehashDeletes();
+    }
+
+    private void ensureCandidateCapacity(int length) {
+        if (candidateCount + 2 > candidateStarts.length) {
+            candidateStarts = Arrays.copyOf(candidateStarts, candidateStarts.length * 2);
+            candidateSlots = Arrays.copyOf(candidateSlots, candidateStarts.length);
+        }
+        int end = candidateStarts[candidateCount];
+        if (end + length > candidateChars.length) {
+            candidateChars = Arrays.copyOf(candidateChars, Math.max(candidateChars.length * 2, end + length));
+        }
+    }
+
+    private void rehashDeletes() {
+        int[] table = new int[deleteTable.length * 2];
+        int mask = table.length - 1;
+        for (int entry : deleteTable) {
+            if (entry == 0) continue;
+            int start = candidateStarts[entry - 1];
+            int slot = DeleteTable.mix(WordArena.hash(candidateChars, start, candidateStarts[entry])) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = entry;
+        }
+        deleteTable = table;
+    }
+
+    // ---- suggestions
+
+    /// <summary>Mark a word id as considered.</summary>
+    /// <returns>True if the word id had not been considered already.</returns>
+    boolean considerSuggestion(int id) {
+        int mask = suggestionTable.length - 1;
+        int slot = DeleteTable.mix(id) & mask;
+        int existing;
+        while ((existing = suggestionTable[slot]) != 0) {
+            if (existing == id + 1) return false;
+            slot = (slot + 1) & mask;
+        }
+        suggestionTable[slot] = id + 1;
+        if (DeleteTable.tableCapacity(++suggestionCount) > suggestionTable.length) rehashSuggestions();
+        return true;
+    }
+
+    private void rehashSuggestions() {
+        int[] table = new int[suggestionTable.length * 2];
+        int mask = table.length - 1;
+        for (int entry : suggestionTable) {
+            if (entry == 0) continue;
+            int slot = DeleteTable.mix(entry - 1) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = entry;
+        }
+        suggestionTable = table;
+    }
+
+    /// <summary>Copy a word into the suggestion buffer.</summary>
+    void loadSuggestion(Words words, int id, int length) {
+        if (length > suggestion.length) suggestion = new char[Math.max(length, suggestion.length * 2)];
+        for (int i = 0; i < length; i++) suggestion[i] = words.charAt(id, i);
+    }
+
+    // ---- results
+
+    /// <summary>Remove all results found so far.</summary>
+    void clearResults() {
+        resultCount = 0;
+    }
+
+    /// <summary>Add a result, keeping only the best maxResults results.</summary>
+    void addResult(int id, int distance, long count) {
+        int found = order++;
+        if (resultCount < maxResults) {
+            if (resultCount == resultIds.length) growResults();
+            int i = resultCount++;
+            setResult(i, id, distance, count, found);
+            siftUp(i);
+        } else if (isWorse(resultDistances[0], resultCounts[0], resultOrder[0], distance, count, found)) {
+            setResult(0, id, distance, count, found);
+            siftDown(0, resultCount);
+        }
+    }
+
+    /// <summary>Sort the results from best to worst, in place.</summary>
+    void sortResults() {
+        for (int end = resultCount - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    private void growResults() {
+        int capacity = resultIds.length * 2;
+        resultIds = Arrays.copyOf(resultIds, capacity);
+        resultDistances = Arrays.copyOf(resultDistances, capacity);
+        resultCounts = Arrays.copyOf(resultCounts, capacity);
+        resultOrder = Arrays.copyOf(resultOrder, capacity);
+    }
+
+    private void setResult(int i, int id, int distance, long count, int order) {
+        resultIds[i] = id;
+        resultDistances[i] = distance;
+        resultCounts[i] = count;
+        resultOrder[i] = order;
+    }
+
+    // order by distance ascending, then by frequency count descending, then by the order found
+    private static boolean isWorse(int distance, long count, int order, int otherDistance, long otherCount, int otherOrder) {
+        if (distance != otherDistance) return distance > otherDistance;
+        if (count != otherCount) return count < otherCount;
+        return order > otherOrder;
+    }
+
+    private boolean isWorse(int i, int j) {
+        return isWorse(resultDistances[i], resultCounts[i], resultOrder[i], resultDistances[j], resultCounts[j], resultOrder[j]);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (!isWorse(i, parent)) return;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && isWorse(left, worst)) worst = left;
+            if (right < size && isWorse(right, worst)) worst = right;
+            if (worst == i) return;
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = resultIds[i]; resultIds[i] = resultIds[j]; resultIds[j] = id;
+        int distance = resultDistances[i]; resultDistances[i] = resultDistances[j]; resultDistances[j] = distance;
+        long count = resultCounts[i]; resultCounts[i] = resultCounts[j]; resultCounts[j] = count;
+        int order = resultOrder[i]; resultOrder[i] = resultOrder[j]; resultOrder[j] = order;
+    }
+
+    static boolean regionMatches(char[] a, int aStart, char[] b, int bStart, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aStart + i] != b[bStart + i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package space.narrate.waylan.core.data.spell
+
+/**
+ * Counts of the lookups made by a [SuggestionPipeline].
+ *
+ * @property started Lookups which were started, including those still running
+ * @property cancelled Lookups which were superseded by newer input before their result was
+ *  delivered
+ * @property delivered Lookups whose result was delivered to a collector
+ */
+data class LookupStats(
+    val started: Long,
+    val cancelled: Long,
+    val delivered: Long
+)
@@ -0,0 +1,193 @@
+package space.narrate.waylan.core.data.spell;
+
+/// <summary>Encodes words with Lawrence Philips' Metaphone algorithm, so that words which sound
+/// alike share a key.</summary>
+/// <remarks>A key is made of the consonant sounds of a word, and its first letter if that's a
+/// vowel. Each sound is one of the letters B, F, H, J, K, L, M, N, P, R, S, T, W, X ("sh"), Y
+/// or 0 ("th"), so "fonetik" and "phonetic" both encode to FNTK. Anything other than the
+/// letters a to z is ignored.</remarks>
+public final class Metaphone {
+
+    /// <summary>The longest key which can be packed into a long.</summary>
+    public static final int MAX_KEY_LENGTH = 12;
+
+    private Metaphone() { }
+
+    /// <summary>Encode a word.</summary>
+    /// <param name="word">The word to encode.</param>
+    /// <param name="maxLength">The maximum length of the key. Sounds past it are dropped.</param>
+    /// <returns>The word's key, which is empty if the word has no letters.</returns>
+    public static String encode(CharSequence word, int maxLength) {
+        StringBuilder letters = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toUpperCase(word.charAt(i));
+            if (c >= 'A' && c <= 'Z') letters.append(c);
+        }
+        int n = letters.length();
+        StringBuilder key = new StringBuilder(maxLength);
+        if (n == 0) return "";
+
+        //initial letters which are either silent or sound like another letter
+        int i = 0;
+        char first = letters.charAt(0);
+        char second = at(letters, 1);
+        if (first == 'A' && second == 'E') {
+            key.append('E');
+            i = 2;
+        } else if ((first == 'G' || first == 'K' || first == 'P') && second == 'N') {
+            key.append('N');
+            i = 2;
+        } else if (first == 'W' && second == 'R') {
+            key.append('R');
+            i = 2;
+        } else if (first == 'W' && second == 'H') {
+            key.append('W');
+            i = 2;
+        } else if (first == 'X') {
+            key.append('S');
+            i = 1;
+        } else if (isVowel(first)) {
+            key.append(first);
+            i = 1;
+        }
+
+        for (; i < n && key.length() < maxLength; i++) {
+            char c = letters.charAt(i);
+            char previous = at(letters, i - 1);
+            char next = at(letters, i + 1);
+            char afterNext = at(letters, i + 2);
+
+            //double letters sound as one, except for "cc" as in "accent"
+            if (c == previous && c != 'C') continue;
+
+            switch (c) {
+                case 'A':
+                case 'E':
+                case 'I':
+                case 'O':
+                case 'U':
+                    //vowels only count as the first letter
+                    break;
+                case 'B':
+                    //silent at the end of "mb", as in "thumb"
+                    if (!(i == n - 1 && previous == 'M')) key.append('B');
+                    break;
+                case 'C':
+                    if (previous == 'S' && isFrontVowel(next)) break; //"sci", "sce", "scy"
+                    if (next == 'I' && afterNext == 'A') {
+                        key.append('X'); //"cia"
+                    } else if (isFrontVowel(next)) {
+                        key.append('S');
+                    } else if (next == 'H') {
+                        //"sch" and an initial "chr" or "chl" are hard, as in "school" and "chrome"
+                        if (previous == 'S' || (i == 0 && afterNext != 0 && !isVowel(afterNext))) {
+                            key.append('K');
+                        } else {
+                            key.append('X');
+                        }
+                    } else {
+                        key.append('K');
+                    }
+                    break;
+                case 'D':
+                    if (next == 'G' && isFrontVowel(afterNext)) {
+                        key.append('J'); //"dge", "dgi", "dgy"
+                        i++;
+                    } else {
+                        key.append('T');
+                    }
+                    break;
+                case 'G':
+                    //"gh" is silent unless it's followed by a vowel, as in "night" and "high"
+                    if (next == 'H' && !isVowel(afterNext)) break;
+                    //silent in a final "gn" or "gned", as in "sign" and "signed"
+                    if (next == 'N' && (i + 2 == n || (i + 4 == n && afterNext == 'E' && at(letters, i + 3) == 'D'))) break;
+                    if (isFrontVowel(next) && previous != 'G') {
+                        key.append('J');
+                    } else {
+                        key.append('K');
+                    }
+                    break;
+                case 'H':
+                    //only sounded before a vowel, and not as part of "ch", "gh", "ph", "sh" or "th"
+                    if (isVowel(next) && !isVarson(previous)) key.append('H');
+                    break;
+                case 'K':
+                    if (previous != 'C') key.append('K');
+                    break;
+                case 'P':
+                    key.append(next == 'H' ? 'F' : 'P');
+                    break;
+                case 'Q':
+                    key.append('K');
+                    break;
+                case 'S':
+                    if (next == 'H' || (next == 'I' && (afterNext == 'O' || afterNext == 'A'))) {
+                        key.append('X'); //"sh", "sio", "sia"
+                    } else {
+                        key.append('S');
+                    }
+                    break;
+                case 'T':
+                    if (next == 'I' && (afterNext == 'O' || afterNext == 'A')) {
+                        key.append('X'); //"tio", "tia"
+                    } else if (next == 'H') {
+                        key.append('0');
+                    } else if (!(next == 'C' && afterNext == 'H')) {
+                        key.append('T'); //silent in "tch"
+                    }
+                    break;
+                case 'V':
+                    key.append('F');
+                    break;
+                case 'W':
+                case 'Y':
+                    if (isVowel(next)) key.append(c);
+                    break;
+                case 'X':
+                    key.append('K');
+                    if (key.length() < maxLength) key.append('S');
+                    break;
+                case 'Z':
+                    key.append('S');
+                    break;
+                default:
+                    //F, J, L, M, N and R sound as they are written
+                    key.append(c);
+                    break;
+            }
+        }
+        return key.toString();
+    }
+
+    /// <summary>Pack a key into a long, five bits per sound, so keys can be compared and hashed
+    /// without allocating.</summary>
+    /// <param name="key">A key of at most MAX_KEY_LENGTH sounds.</param>
+    /// <returns>The packed key, which is 0 only for the empty key.</returns>
+    public static long pack(CharSequence key) {
+        if (key.length() > MAX_KEY_LENGTH) throw new IllegalArgumentException("Key too long " + key);
+        long packed = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            packed = (packed << 5) | (c == '0' ? 27 : c - 'A' + 1);
+        }
+        return packed;
+    }
+
+    private static char at(CharSequence letters, int index) {
+        return index >= 0 && index < letters.length() ? letters.charAt(index) : 0;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+    }
+
+    private static boolean isFrontVowel(char c) {
+        return c == 'E' || c == 'I' || c == 'Y';
+    }
+
+    // The letters which make a following "h" part of their own sound
+    private static boolean isVarson(char c) {
+        return c == 'C' || c == 'G' || c == 'P' || c == 'S' || c == 'T';
+    }
+}
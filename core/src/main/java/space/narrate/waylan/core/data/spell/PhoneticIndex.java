@@ -0,0 +1,214 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/// <summary>A read-only, flat binary table from the Metaphone key of a word to every word which
+/// sounds like it.</summary>
+/// <remarks>Words are grouped by key, so looking up the words which sound like an input is a
+/// single probe of the key table followed by reading a contiguous range of word ids. Within a
+/// group, words keep the order they were written in. Like SymSpellIndex, every section is a
+/// fixed-width, little-endian array read in place, so opening an index is O(1).
+///
+/// Layout, in order:
+///   header       see HEADER_SIZE
+///   keys         long[keyTableCapacity]       open-addressed packed keys (0 = empty)
+///   keyStarts    int[keyTableCapacity + 1]    id of the first word of each slot's key
+///   wordOffsets  int[wordCount + 1]           start of each word in the char arena
+///   chars        char[charCount]              every word, back to back
+/// </remarks>
+public class PhoneticIndex {
+
+    private static final int MAGIC = 0x50484E49; // "PHNI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /// <summary>The length words' keys were encoded with.</summary>
+    public final int keyLength;
+
+    /// <summary>The identifier of the words the index was built from, as given to write.</summary>
+    public final int source;
+
+    private final ByteBuffer buffer;
+    private final int wordCount;
+    private final int keyCount;
+    private final int keyTableMask;
+
+    private final int keysPos;
+    private final int keyStartsPos;
+    private final int wordOffsetsPos;
+    private final int charsPos;
+
+    private PhoneticIndex(ByteBuffer source) {
+        buffer = source.duplicate().order(ORDER);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a phonetic index");
+        if (buffer.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported phonetic index version " + buffer.getInt(4));
+
+        keyLength = buffer.getInt(8);
+        wordCount = buffer.getInt(12);
+        int charCount = buffer.getInt(16);
+        int keyTableCapacity = buffer.getInt(20);
+        keyCount = buffer.getInt(24);
+        this.source = buffer.getInt(28);
+
+        keyTableMask = keyTableCapacity - 1;
+
+        keysPos = HEADER_SIZE;
+        keyStartsPos = keysPos + keyTableCapacity * 8;
+        wordOffsetsPos = keyStartsPos + (keyTableCapacity + 1) * 4;
+        charsPos = wordOffsetsPos + (wordCount + 1) * 4;
+
+        if (charsPos + charCount * 2 > buffer.limit()) throw new IllegalArgumentException("Truncated phonetic index");
+    }
+
+    /// <summary>Open an index previously written by write. The buffer is read in place and
+    /// must not be modified while the index is in use.</summary>
+    public static PhoneticIndex open(ByteBuffer buffer) {
+        return new PhoneticIndex(buffer);
+    }
+
+    /// <summary>Gets the number of words in the index.</summary>
+    public int size() { return wordCount; }
+
+    /// <summary>Gets the number of distinct keys in the index.</summary>
+    public int keyCount() { return keyCount; }
+
+    /// <summary>Find the words which sound like a given input.</summary>
+    /// <param name="input">The word being looked up.</param>
+    /// <param name="maxResults">The maximum number of words to return.</param>
+    /// <returns>The words which share the input's key, in the order they were written, which may
+    /// include the input itself.</returns>
+    public List<String> lookup(CharSequence input, int maxResults) {
+        List<String> results = new ArrayList<>();
+        long key = Metaphone.pack(Metaphone.encode(input, keyLength));
+        if (key == 0) return results;
+
+        int slot = find(key);
+        if (slot < 0) return results;
+        int start = buffer.getInt(keyStartsPos + slot * 4);
+        int count = Math.min(buffer.getInt(keyStartsPos + (slot + 1) * 4) - start, maxResults);
+        for (int id = start; id < start + count; id++) results.add(word(id));
+        return results;
+    }
+
+    private int find(long key) {
+        int slot = slot(key, keyTableMask);
+        long slotKey;
+        while ((slotKey = buffer.getLong(keysPos + slot * 8)) != 0) {
+            if (slotKey == key) return slot;
+            slot = (slot + 1) & keyTableMask;
+        }
+        return -1;
+    }
+
+    private String word(int id) {
+        int start = buffer.getInt(wordOffsetsPos + id * 4);
+        char[] chars = new char[buffer.getInt(wordOffsetsPos + (id + 1) * 4) - start];
+        for (int i = 0; i < chars.length; i++) chars[i] = buffer.getChar(charsPos + (start + i) * 2);
+        return new String(chars);
+    }
+
+    private static int slot(long key, int mask) {
+        return DeleteTable.mix((int) (key ^ (key >>> 32))) & mask;
+    }
+
+    /// <summary>Write an index of the given words.</summary>
+    /// <remarks>Words without letters, and repeats of a word already written, are skipped.
+    /// Words with the same key are returned by lookup in the order they are given here, so the
+    /// most relevant words should come first.</remarks>
+    /// <param name="words">The words to index.</param>
+    /// <param name="keyLength">The length to encode keys with, at most Metaphone.MAX_KEY_LENGTH.</param>
+    /// <param name="source">An identifier of the words, like a checksum, so an index of words
+    /// which have since changed can be told apart.</param>
+    /// <param name="out">The stream to write the index to. The stream is not closed.</param>
+    public static void write(Iterable<String> words, int keyLength, int source, OutputStream out) throws IOException {
+        if (keyLength < 1 || keyLength > Metaphone.MAX_KEY_LENGTH) throw new IllegalArgumentException("Key length out of range " + keyLength);
+
+        Map<Long, List<String>> groups = new LinkedHashMap<>();
+        HashSet<String> seen = new HashSet<>();
+        int wordCount = 0;
+        int charCount = 0;
+        for (String word : words) {
+            long key = Metaphone.pack(Metaphone.encode(word, keyLength));
+            if (key == 0 || !seen.add(word)) continue;
+            List<String> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(word);
+            wordCount++;
+            charCount += word.length();
+        }
+
+        int keyTableCapacity = DeleteTable.tableCapacity(groups.size());
+        int mask = keyTableCapacity - 1;
+        long[] keys = new long[keyTableCapacity];
+        List<List<String>> slotGroups = new ArrayList<>(keyTableCapacity);
+        for (int slot = 0; slot < keyTableCapacity; slot++) slotGroups.add(null);
+        for (Map.Entry<Long, List<String>> group : groups.entrySet()) {
+            int slot = slot(group.getKey(), mask);
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = group.getKey();
+            slotGroups.set(slot, group.getValue());
+        }
+
+        int size = HEADER_SIZE
+                + keyTableCapacity * 8
+                + (keyTableCapacity + 1) * 4
+                + (wordCount + 1) * 4
+                + charCount * 2;
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ORDER);
+
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        bb.putInt(keyLength);
+        bb.putInt(wordCount);
+        bb.putInt(charCount);
+        bb.putInt(keyTableCapacity);
+        bb.putInt(groups.size());
+        bb.putInt(source);
+        while (bb.position() < HEADER_SIZE) bb.put((byte) 0);
+
+        // keys
+        for (long key : keys) bb.putLong(key);
+
+        // key starts, laid out so that each slot's words directly follow the previous occupied
+        // slot's. Empty slots are those whose start equals the next start.
+        int start = 0;
+        for (List<String> group : slotGroups) {
+            bb.putInt(start);
+            if (group != null) start += group.size();
+        }
+        bb.putInt(start);
+
+        // word offsets
+        int offset = 0;
+        for (List<String> group : slotGroups) {
+            if (group == null) continue;
+            for (String word : group) {
+                bb.putInt(offset);
+                offset += word.length();
+            }
+        }
+        bb.putInt(offset);
+
+        // chars
+        for (List<String> group : slotGroups) {
+            if (group == null) continue;
+            for (String word : group) {
+                for (int i = 0; i < word.length(); i++) bb.putChar(word.charAt(i));
+            }
+        }
+
+        out.write(bb.array(), 0, bb.position());
+    }
+}
@@ -0,0 +1,132 @@
+package space.narrate.waylan.core.data.spell
+
+import android.content.Context
+import android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.launch
+import space.narrate.waylan.core.BuildConfig
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.util.zip.CRC32
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * A store of words which sound alike, for users who know how a word sounds but not how it's
+ * spelled, like "fonetik" for "phonetic", which are often too many edits away for [SymSpellStore].
+ *
+ * Every WordSet headword and SymSpell corpus word is grouped by its [Metaphone] key in a
+ * [PhoneticIndex]. The index is built the first time the store is created and written to
+ * [SymConfig.defaultPhoneticIndexPath], from where it's memory-mapped on every later launch.
+ * Looking up an input is then a single probe of the index, however many words it holds.
+ *
+ * The corpus and the WordSet database only change with the app, so the index is keyed on the
+ * WordSet database version and when the app was last installed or updated, and rebuilt when
+ * either has changed.
+ */
+class PhoneticStore(
+    private val context: Context,
+    private val db: WordsetDatabase
+) : CoroutineScope {
+
+    companion object {
+        private const val TAG = "PhoneticStore"
+    }
+
+    override val coroutineContext: CoroutineContext
+        get() = Dispatchers.IO
+
+    @Volatile
+    private var index: PhoneticIndex? = null
+
+    init {
+        launch {
+            index = try {
+                open() ?: run {
+                    build()
+                    open()
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to open ${SymConfig.defaultPhoneticIndexPath}", e)
+                null
+            }
+        }
+    }
+
+    private val file: File
+        get() = File(context.filesDir, SymConfig.defaultPhoneticIndexPath)
+
+    // Identifies the corpus and WordSet words the index is built from
+    private val source: Int by lazy {
+        val updated = context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+        val crc = CRC32()
+        crc.update(
+            ByteBuffer.allocate(12)
+                .putInt(BuildConfig.WORDSET_DATABASE_VERSION)
+                .putLong(updated)
+                .array()
+        )
+        crc.value.toInt()
+    }
+
+    /**
+     * Map the index written by a previous launch.
+     *
+     * @return The index, or null if it hasn't been built, or was built by a different version or
+     *  from different words
+     */
+    private fun open(): PhoneticIndex? {
+        if (!file.exists()) return null
+        return RandomAccessFile(file, "r").channel.use { channel ->
+            val buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+            try {
+                PhoneticIndex.open(buffer).takeIf {
+                    it.keyLength == SymConfig.defaultPhoneticKeyLength && it.source == source
+                }
+            } catch (e: IllegalArgumentException) {
+                Log.w(TAG, "Rebuilding ${SymConfig.defaultPhoneticIndexPath}", e)
+                null
+            }
+        }
+    }
+
+    /**
+     * Write an index of the corpus, from most to least frequent, followed by every headword
+     * which isn't in the corpus, so the most common words which sound alike are found first.
+     * The index is only replaced once fully written.
+     */
+    private fun build() {
+        val words = mutableListOf<String>()
+        context.assets.open(SymConfig.defaultCorpusPath).bufferedReader().useLines { lines ->
+            lines.forEach { line ->
+                line.split(' ').getOrNull(SymConfig.defaultTermIndex)?.let { words.add(it) }
+            }
+        }
+        words.addAll(db.wordDao().getAllWords())
+
+        file.parentFile?.mkdirs()
+        val built = File(file.path + ".tmp")
+        built.outputStream().buffered().use { out ->
+            PhoneticIndex.write(words, SymConfig.defaultPhoneticKeyLength, source, out)
+        }
+        if (!built.renameTo(file)) throw IOException("Unable to replace $file")
+    }
+
+    /**
+     * Find the words which sound like [input], most frequent first. Nothing is found until the
+     * index has been opened, or for input shorter than [SymConfig.defaultMinSoundAlikeLength].
+     */
+    fun lookup(input: String): List<String> {
+        val word = input.trim()
+        if (word.length < SymConfig.defaultMinSoundAlikeLength) return emptyList()
+        val index = index ?: return emptyList()
+        // Ask for one more, in case the input is one of its own sound-alikes
+        return index.lookup(word, SymConfig.defaultMaxSoundAlikes + 1)
+            .filterNot { it.equals(word, ignoreCase = true) }
+            .take(SymConfig.defaultMaxSoundAlikes)
+    }
+}
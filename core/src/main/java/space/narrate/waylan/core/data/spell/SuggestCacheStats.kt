@@ -0,0 +1,21 @@
+package space.narrate.waylan.core.data.spell
+
+/**
+ * How often [SymSpellStore] lookups were served from memory.
+ *
+ * @property hits Lookups whose result was found in the result cache
+ * @property misses Lookups whose result had to be looked up
+ * @property candidateReuses Dictionary lookups which reused the candidates of the previous
+ *  keystroke's lookup instead of deriving them again
+ */
+data class SuggestCacheStats(
+    val hits: Long,
+    val misses: Long,
+    val candidateReuses: Long
+) {
+    /**
+     * The fraction of lookups served from the result cache, or 0 if there have been none.
+     */
+    val hitRate: Float
+        get() = if (hits + misses == 0L) 0F else hits.toFloat() / (hits + misses)
+}
@@ -0,0 +1,15 @@
+package space.narrate.waylan.core.data.spell
+
+/**
+ * The [SuggestItem]s found for an input.
+ *
+ * @property input The input the suggestions were found for
+ * @property items The suggestions, ordered by edit distance and then by frequency
+ * @property isComplete false if the dictionary was still warming up when the lookup was made, in
+ *  which case only the most frequent words were searched and [items] may be missing suggestions.
+ */
+data class SuggestResult(
+    val input: String,
+    val items: List<SuggestItem>,
+    val isComplete: Boolean
+)
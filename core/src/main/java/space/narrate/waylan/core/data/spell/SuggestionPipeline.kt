@@ -0,0 +1,61 @@
+package space.narrate.waylan.core.data.spell
+
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.debounce
+import kotlinx.coroutines.flow.distinctUntilChanged
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.withContext
+
+/**
+ * Turns a stream of search input into a stream of [SuggestResult]s, only looking up the input a
+ * user has settled on.
+ *
+ * Input is debounced by [debounceMillis] and a lookup which is still running when newer input
+ * arrives is cancelled, so each collector has at most one lookup in flight and is never
+ * delivered a superseded result. Lookups run on [dispatcher], which should be bounded. A
+ * blocking lookup can't be interrupted part way through, so a cancelled lookup keeps its thread
+ * until it finishes and its result is then dropped.
+ */
+class SuggestionPipeline(
+    private val dispatcher: CoroutineDispatcher,
+    private val debounceMillis: Long,
+    private val lookup: suspend (String) -> SuggestResult
+) {
+
+    private val started = AtomicLong()
+    private val cancelled = AtomicLong()
+    private val delivered = AtomicLong()
+
+    /**
+     * A snapshot of how many lookups this pipeline has started, cancelled and delivered.
+     */
+    val stats: LookupStats
+        get() = LookupStats(started.get(), cancelled.get(), delivered.get())
+
+    @FlowPreview
+    @ExperimentalCoroutinesApi
+    fun suggestions(input: Flow<String>): Flow<SuggestResult> {
+        return input
+            .debounce(debounceMillis)
+            .distinctUntilChanged()
+            .flatMapLatest { lookupFlow(it) }
+    }
+
+    private fun lookupFlow(input: String): Flow<SuggestResult> = flow {
+        started.incrementAndGet()
+        try {
+            // withContext drops the result if this flow is cancelled while the lookup runs
+            emit(withContext(dispatcher) { lookup(input) })
+            delivered.incrementAndGet()
+        } catch (e: CancellationException) {
+            cancelled.incrementAndGet()
+            throw e
+        }
+    }
+}
@@ -21,7 +21,6 @@ package space.narrate.waylan.core.data.spell;
 //        OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 //        SOFTWARE.
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -36,17 +35,19 @@ public class SuggestionStage {
     }
 
     public class Node {
-        public String suggestion;
+        public int suggestion; // word id
         public int next;
-        public Node(String suggestion, int next) {
+        public Node(int suggestion, int next) {
             this.suggestion = suggestion;
             this.next = next;
         }
     }
     public class Entry {
+        public int key;
         public int count;
         public int first;
-        Entry(int count, int first) {
+        Entry(int key, int count, int first) {
+            this.key = key;
             this.count = count;
             this.first = first;
         }
@@ -69,9 +70,9 @@ public class SuggestionStage {
         nodes.clear();
     }
 
-    void add(int deleteHash, String suggestion) {
+    void add(int deleteHash, int suggestion) {
         Entry entry = deletes.get(deleteHash);
-        if (entry == null) entry = new Entry(0, -1);
+        if (entry == null) entry = new Entry(deleteHash, 0, -1);
         int next = entry.first;
         entry.count++;
         entry.first = nodes.count;
@@ -79,31 +80,7 @@ public class SuggestionStage {
         nodes.add(new Node(suggestion, next));
     }
 
-    void commitTo(Map<Integer, String[]> permanentDeletes) {
-        for (Map.Entry<Integer, Entry> delete : deletes.entrySet()) {
-
-            int i;
-            String[] suggestions;
-            if (permanentDeletes.containsKey(delete.getKey())) {
-                suggestions = permanentDeletes.get(delete.getKey());
-                i = suggestions.length;
-                String[] newSuggestion = Arrays.copyOf(suggestions, i + delete.getValue().count);
-
-                permanentDeletes.put(delete.getKey(), newSuggestion);
-                suggestions = newSuggestion;
-            } else {
-                i = 0;
-                suggestions = new String[delete.getValue().count];
-                permanentDeletes.put(delete.getKey(), suggestions);
-            }
-            int next = delete.getValue().first;
-            Node node;
-            while (next >= 0) {
-                node = nodes.getValues(next);
-                suggestions[i] = node.suggestion;
-                next = node.next;
-                i++;
-            }
-        }
+    void commitTo(DeleteTable permanentDeletes) {
+        permanentDeletes.addAll(this);
     }
 }
\ No newline at end of file
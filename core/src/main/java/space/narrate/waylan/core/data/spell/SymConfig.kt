@@ -9,13 +9,49 @@ object SymConfig {
     const val defaultInitialCapacity = 16
     const val defaultCompactLevel = 5
     const val defaultTargetCount = 943997L
-    val defaultEditDistanceAlgorithm = EditDistance.DistanceAlgorithm.Damerau
+    val defaultEditDistanceAlgorithm = EditDistance.DistanceAlgorithm.DamerauBitParallel
 
     const val defaultTermIndex = 0
     const val defaultCountIndex = 1
     const val defaultCorpusPath = "corpus/frequency_dictionary_en_82_765.txt"
+    const val defaultIndexPath = "corpus/frequency_dictionary_en_82_765.idx"
     val defaultVerbosity = SymSpell.Verbosity.All
     const val defaultMaxEditDistanceLookup = 3
+    const val defaultMaxSuggestions = 20
+
+    // The min count of each tier of the corpus, from most to least frequent
+    val defaultTierMinCounts = longArrayOf(10_000_000L, 3_000_000L, defaultTargetCount)
+    // The number of most frequent words committed before a tier can be looked up
+    const val defaultWarmUpCount = 2_000
+    // The number of words folded into a tier per commit once it can be looked up
+    const val defaultFoldCount = 1_000
+    // How long search input must stay unchanged before it is looked up
+    const val defaultDebounceMillis = 150L
+    // The number of threads search input lookups run on
+    const val defaultLookupThreads = 2
+    // The number of recent lookup results kept in memory
+    const val defaultSuggestCacheSize = 64
+    // How long a lookup may spend correcting and segmenting input as a phrase
+    const val defaultPhraseBudgetMillis = 30L
+    // The shortest single word which is segmented into several words if it isn't a word itself
+    const val defaultMinSegmentationLength = 6
+    // The max edit distance of each word of a segmentation, 0 to only insert missing spaces
+    const val defaultSegmentationEditDistance = 0
+
+    // The log of words the user has opened, relative to the app's files dir
+    const val defaultLearnedLogPath = "symspell/learned.log"
+    // The count added to a word each time the user opens it, more than the count of the
+    // corpus's most frequent word so learned words rank first
+    const val defaultLearnedCount = 25_000_000_000L
+
+    // The index of words which sound alike, relative to the app's files dir
+    const val defaultPhoneticIndexPath = "symspell/phonetic.idx"
+    // The number of sounds of a word's Metaphone key
+    const val defaultPhoneticKeyLength = 5
+    // The shortest input sound-alikes are looked up for
+    const val defaultMinSoundAlikeLength = 3
+    // The number of sound-alikes returned for an input
+    const val defaultMaxSoundAlikes = 5
 
     const val metadataId = 5555
 }
\ No newline at end of file
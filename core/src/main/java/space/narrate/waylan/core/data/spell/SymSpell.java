@@ -22,9 +22,14 @@ package space.narrate.waylan.core.data.spell;
 //        SOFTWARE.
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,11 +55,18 @@ public class SymSpell {
     public int compactMask;
     public int maxLength; // a simple variable to hold the max length of a word entered
 
-    // Map of the hash of a delete and it's corresponding, valid dictionary word matches
-    private Map<Integer, String[]> deletes;
+    // Table of the hash of a delete and the word ids of it's corresponding, valid dictionary word matches
+    private Deletes deletes;
 
     // Dictionary of unique correct spelling words, and the frequency count for each word.
-    private Map<String, Long> words;
+    private Words words;
+
+    // Mutable storage behind deletes and words, null when opened from an index
+    private DeleteTable deleteTable;
+    private WordArena wordArena;
+
+    // Number of leading word ids whose deletes have been created
+    private int wordsWithDeletes;
 
     // Map of unique words that are below the count threshold for being considered correct spellings.
     private Map<String, Long> belowThresholdWords = new HashMap<>();
@@ -62,13 +74,37 @@ public class SymSpell {
     // Map of words above the maxCountThreshold
     private Map<String, Long> aboveThresholdWords = new HashMap<>();
 
+    // Read-only snapshot backing deletes and words when opened with loadIndex
+    private SymSpellIndex index;
+
+    // Incremented whenever deletes change, invalidating the candidates kept by each LookupContext
+    private int deletesGeneration;
+
+    // Number of lookups which reused the candidates of the previous lookup on their thread
+    private final AtomicLong candidateReuses = new AtomicLong();
+
+    // Scratch space and results of the lookups made on each thread
+    private final ThreadLocal<LookupContext> lookupContext = new ThreadLocal<LookupContext>() {
+        @Override
+        protected LookupContext initialValue() {
+            return new LookupContext(SymConfig.INSTANCE.getDefaultEditDistanceAlgorithm());
+        }
+    };
+
+    // The fewest pending words worth creating the deletes of on a separate thread
+    private static final int MIN_WORDS_PER_WORKER = 256;
+
+    // The range of frequency counts in the bundled corpus, which countThresholdCapturePercentage is a percentage of
+    private static final long CORPUS_MIN_COUNT = 12714L;
+    private static final long CORPUS_MAX_COUNT = 23135851162L;
+
     public SymSpell(int initialCapacity, int maxDictionaryEditDistance, int prefixLength, double countThresholdCapturePercentage, RangeShift shift) {
         if (countThresholdCapturePercentage < 0.0 || countThresholdCapturePercentage > 1.0) {
             throw new IllegalArgumentException("countThresholdCapturePercentage must be between 0.0 and 1.0");
         }
 
-        long min = 12714L;
-        long max = 23135851162L;
+        long min = CORPUS_MIN_COUNT;
+        long max = CORPUS_MAX_COUNT;
         long range = Math.round(countThresholdCapturePercentage * (max - min));
 
         long minCount = min;
@@ -90,6 +126,14 @@ public class SymSpell {
     }
 
 
+    /// <summary>Gets the countThresholdCapturePercentage which, shifted to the End of the corpus count range,
+    /// captures every word with a count of at least minCountThreshold.</summary>
+    public static double endCapturePercentage(long minCountThreshold) {
+        if (minCountThreshold <= CORPUS_MIN_COUNT) return 1.0;
+        if (minCountThreshold >= CORPUS_MAX_COUNT) return 0.0;
+        return (double) (CORPUS_MAX_COUNT - minCountThreshold) / (CORPUS_MAX_COUNT - CORPUS_MIN_COUNT);
+    }
+
     public SymSpell(int initialCapacity, int maxDictionaryEditDistance, int prefixLength, long minCountThreshold) {
         init(initialCapacity, maxDictionaryEditDistance, prefixLength, minCountThreshold, Long.MAX_VALUE);
     }
@@ -122,7 +166,8 @@ public class SymSpell {
 //        compactLevel = (byte) defaultCompactLevel;   //TODO might be faulty...
 
         this.initialCapacity = initialCapacity;
-        this.words = new HashMap<>(initialCapacity);
+        this.wordArena = new WordArena(initialCapacity);
+        this.words = wordArena;
         this.maxDictionaryEditDistance = maxDictionaryEditDistance;
         this.prefixLength = prefixLength;
         this.minCountThreshold = minCountThreshold;
@@ -142,6 +187,8 @@ public class SymSpell {
     /// or false if the word is added as a below threshold word, or updates an
     /// existing correctly spelled word.</returns>
     public boolean createDictionaryEntry(String key, long count, SuggestionStage staging) {
+        if (index != null) throw new IllegalStateException("Cannot add entries to a SymSpell opened from an index");
+
         if (count <= 0) {
             count = 0;
         }
@@ -151,6 +198,7 @@ public class SymSpell {
 
 
         long countPrevious;
+        int id;
 
         // look first in below threshold words, update count, and allow promotion to correct spelling word if count reaches threshold
         // threshold must be >1 for there to be the possibility of low threshold words
@@ -178,16 +226,16 @@ public class SymSpell {
                 return false;
             }
         }
-        else if (words.containsKey(key)) {
-            countPrevious = words.get(key);
+        else if ((id = wordArena.find(key)) >= 0) {
+            countPrevious = wordArena.count(id);
             // just update count if it's an already added above threshold word
             count = (Long.MAX_VALUE - countPrevious > count) ? countPrevious + count : Long.MAX_VALUE;
             if (count >= maxCountThreshold) {
-                words.remove(key);
+                wordArena.remove(id);
                 aboveThresholdWords.put(key, count);
                 return false;
             } else {
-                words.put(key, count);
+                wordArena.setCount(id, count);
                 return false;
             }
 
@@ -204,7 +252,7 @@ public class SymSpell {
         if (count > maxDictionaryCountThreshold) maxDictionaryCountThreshold = count;
 
         // what we have at this point is a new, above threshold word
-        words.put(key, count);
+        wordArena.add(key, count);
 
         //edits/suggestions are created only once, no matter how often word occurs
         //edits/suggestions are created only as soon as the word occurs in the corpus,
@@ -218,7 +266,7 @@ public class SymSpell {
         return true;
     }
 
-    private boolean createDeletes(String key, SuggestionStage staging) {
+    private boolean createDeletes(String key, int id, SuggestionStage staging) {
 
         //create deletes
         HashSet<String> edits = editsPrefix(key);
@@ -226,29 +274,39 @@ public class SymSpell {
         // if not staging suggestions, put directly into main data structure
         if (staging != null){
             for (String delete : edits) {
-                staging.add(getStringHash(delete, compactMask), key);
+                staging.add(getStringHash(delete, compactMask), id);
             }
         } else {
-            if (deletes == null) this.deletes = new HashMap<>(initialCapacity); //initialisierung
+            if (deletes == null) initDeletes(initialCapacity); //initialisierung
 
+            SuggestionStage wordStaging = new SuggestionStage(edits.size());
             for (String delete : edits) {
-                int deleteHash = getStringHash(delete, compactMask);
-                String[] suggestions;
-                if (deletes.containsKey(deleteHash)){
-                    suggestions = deletes.get(deleteHash);
-                    String[] newSuggestions = Arrays.copyOf(suggestions, suggestions.length + 1);
-                    deletes.put(deleteHash, newSuggestions);
-                    suggestions = newSuggestions;
-                } else {
-                    suggestions = new String[1];
-                    deletes.put(deleteHash, suggestions);
-                }
-                suggestions[suggestions.length - 1] = key;
+                wordStaging.add(getStringHash(delete, compactMask), id);
             }
+            wordStaging.commitTo(deleteTable);
         }
         return true;
     }
 
+    // Create the deletes of every word added since deletes were last created
+    private void createPendingDeletes(SuggestionStage staging) {
+        createDeletes(wordsWithDeletes, wordArena.size(), staging);
+        wordsWithDeletes = wordArena.size();
+    }
+
+    // Create the deletes of the words with ids from start to end. Only reads the dictionary, so
+    // several ranges can be created at once into separate stages.
+    private void createDeletes(int start, int end, SuggestionStage staging) {
+        for (int id = start; id < end; id++) {
+            if (wordArena.count(id) >= 0) createDeletes(wordArena.get(id), id, staging);
+        }
+    }
+
+    private void initDeletes(int initialCapacity) {
+        this.deleteTable = new DeleteTable(initialCapacity);
+        this.deletes = deleteTable;
+    }
+
     /// <summary>Load multiple dictionary entry from a file of word/frequency count pairs</summary>
     /// <remarks>Merges with any dictionary data already loaded.</remarks>
     /// <param name="corpus">The path+filename of the file.</param>
@@ -291,6 +349,19 @@ public class SymSpell {
     /// <param name="countIndex">The column position of the frequency count.</param>
     /// <returns>True if file loaded, or false if file not found.</returns>
     public boolean loadDictionary(BufferedReader br, int termIndex, int countIndex) {
+        return loadDictionary(br, termIndex, countIndex, Runnable::run, 1);
+    }
+
+    /// <summary>Load multiple dictionary entry from an buffered reader of word/frequency count pairs,
+    /// creating their deletes on several threads.</summary>
+    /// <remarks>Merges with any dictionary data already loaded. See commitStaged(staging, executor, workers).</remarks>
+    /// <param name="corpus">An buffered reader to dictionary data.</param>
+    /// <param name="termIndex">The column position of the word.</param>
+    /// <param name="countIndex">The column position of the frequency count.</param>
+    /// <param name="executor">The executor deletes are created on.</param>
+    /// <param name="workers">The number of threads to create deletes on.</param>
+    /// <returns>True if file loaded, or false if file not found.</returns>
+    public boolean loadDictionary(BufferedReader br, int termIndex, int countIndex, Executor executor, int workers) {
         if (br == null) return false;
         
         SuggestionStage staging = new SuggestionStage(16384);
@@ -309,16 +380,11 @@ public class SymSpell {
                     }
                 }
             }
-
-            for (Map.Entry<String, Long> word: words.entrySet()) {
-                createDeletes(word.getKey(), staging);
-            }
         }catch (IOException ex){
             ex.printStackTrace();
             System.out.println(ex.getMessage());
         }
-        if (this.deletes == null) this.deletes = new HashMap<>(staging.deleteCount());
-        commitStaged(staging);
+        commitStaged(staging, executor, workers);
 
         purgeBelowThresholdWords();
         purgeAboveThresholdWords();
@@ -349,11 +415,41 @@ public class SymSpell {
             System.out.println(ex.getMessage());
         }
 
-        if (this.deletes == null) this.deletes = new HashMap<>(staging.deleteCount());
         commitStaged(staging);
         return true;
     }
 
+    /// <summary>Open a prebuilt dictionary from a SymSpellIndex snapshot.</summary>
+    /// <remarks>The buffer, usually a MappedByteBuffer, is read in place and no deletes are
+    /// derived, making the dictionary available for lookups almost immediately. An instance
+    /// opened from an index is read-only.</remarks>
+    /// <param name="buffer">A buffer holding an index written by writeIndex.</param>
+    /// <returns>True if the index was opened, or false if it was built with a different
+    /// maxDictionaryEditDistance, prefixLength or compactMask than this instance.</returns>
+    public boolean loadIndex(ByteBuffer buffer) {
+        SymSpellIndex index = SymSpellIndex.open(buffer);
+        if (index.maxDictionaryEditDistance != maxDictionaryEditDistance
+                || index.prefixLength != prefixLength
+                || index.compactMask != compactMask) return false;
+
+        this.index = index;
+        this.maxLength = index.maxLength;
+        this.minDictionaryCountThreshold = index.minDictionaryCountThreshold;
+        this.maxDictionaryCountThreshold = index.maxDictionaryCountThreshold;
+        this.deletes = index.deletes();
+        this.words = index.words();
+        this.deleteTable = null;
+        this.wordArena = null;
+        deletesGeneration++;
+        return true;
+    }
+
+    /// <summary>Write the loaded dictionary as a SymSpellIndex snapshot.</summary>
+    /// <param name="out">The stream to write the index to. The stream is not closed.</param>
+    public void writeIndex(OutputStream out) throws IOException {
+        SymSpellIndex.write(this, out);
+    }
+
     public void purgeBelowThresholdWords() {
         belowThresholdWords = new HashMap<>();
     }
@@ -365,11 +461,74 @@ public class SymSpell {
     /// <summary>Commit staged dictionary additions.</summary>
     /// <remarks>Used when you write your own process to load multiple words into the
     /// dictionary, and as part of that process, you first created a SuggestionsStage
-    /// object, and passed that to createDictionaryEntry calls.</remarks>
+    /// object, and passed that to createDictionaryEntry calls. The deletes of every word
+    /// added since the last commit are created here.</remarks>
     /// <param name="staging">The SymSpell.SuggestionStage object storing the staged data.</param>
     public void commitStaged(SuggestionStage staging) {
-        staging.commitTo(deletes);
+        createPendingDeletes(staging);
+        if (deletes == null) initDeletes(staging.deleteCount());
+        staging.commitTo(deleteTable);
         staging.clear();
+        deletesGeneration++;
+    }
+
+    /// <summary>Commit staged dictionary additions, creating the deletes of the words added since
+    /// the last commit on several threads.</summary>
+    /// <remarks>The pending words are split into one range of ids per worker. Each worker creates
+    /// the deletes of its range into its own SuggestionStage, and the stages are then merged into
+    /// the deletes table in a single pass. The resulting dictionary is identical to the one
+    /// commitStaged(staging) builds. Blocks until every worker is done.</remarks>
+    /// <param name="staging">The SymSpell.SuggestionStage object storing the staged data.</param>
+    /// <param name="executor">The executor workers run on, which should have a thread per worker.</param>
+    /// <param name="workers">The number of ranges to split the pending words into.</param>
+    public void commitStaged(SuggestionStage staging, Executor executor, int workers) {
+        int start = wordsWithDeletes;
+        int end = wordArena.size();
+        workers = Math.min(workers, (end - start) / MIN_WORDS_PER_WORKER);
+        if (workers <= 1) {
+            commitStaged(staging);
+            return;
+        }
+
+        // Stages are merged from the last range to the first, as a single stage would list each
+        // delete's suggestions from the most to the least recently added word
+        SuggestionStage[] stages = new SuggestionStage[workers];
+        CountDownLatch done = new CountDownLatch(workers);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        for (int i = 0; i < workers; i++) {
+            int rangeEnd = end - (int) ((long) (end - start) * i / workers);
+            int rangeStart = end - (int) ((long) (end - start) * (i + 1) / workers);
+            SuggestionStage stage = i == workers - 1 ? staging : new SuggestionStage((rangeEnd - rangeStart) * 16);
+            stages[i] = stage;
+            executor.execute(() -> {
+                try {
+                    createDeletes(rangeStart, rangeEnd, stage);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating deletes", e);
+        }
+        if (failure.get() != null) throw failure.get();
+
+        wordsWithDeletes = end;
+        if (deletes == null) initDeletes(staging.deleteCount());
+        deleteTable.addAll(stages);
+        for (SuggestionStage stage : stages) stage.clear();
+        deletesGeneration++;
+    }
+
+    /// <summary>Gets the number of lookups which reused the candidates of the previous lookup made on
+    /// the same thread.</summary>
+    public long getCandidateReuseCount() {
+        return candidateReuses.get();
     }
 
     /// <summary>Find suggested spellings for a given input word, using the maximum
@@ -388,6 +547,25 @@ public class SymSpell {
     /// <returns>A List of SymSpell.SuggestItem object representing suggested correct spellings for the input word,
     /// sorted by edit distance, and secondarily by count frequency.</returns>
     public List<SuggestItem> lookup(String input, Verbosity verbosity, int maxEditDistance) {
+        return lookup(input, verbosity, maxEditDistance, Integer.MAX_VALUE).getSuggestions();
+    }
+    /// <summary>Find the best suggested spellings for a given input word, without allocating.</summary>
+    /// <remarks>The lookup runs in, and its results are held by, a LookupContext owned by the calling
+    /// thread. Its scratch space is reused by every lookup on that thread, so the results are only
+    /// valid until the thread's next lookup. Only the best maxResults suggestions are kept, so the
+    /// cost of ordering them doesn't grow with the number of suggestions found.
+    ///
+    /// Candidates are only derived from the first prefixLength chars of the input, so when a
+    /// Verbosity.All lookup has the same prefix as the previous one on its thread, like a word
+    /// being typed out past prefixLength, the previous lookup's candidates and the delete entries
+    /// they were found in are reused rather than derived again.</remarks>
+    /// <param name="input">The word being spell checked.</param>
+    /// <param name="verbosity">The value controlling the quantity/closeness of the retuned suggestions.</param>
+    /// <param name="maxEditDistance">The maximum edit distance between input and suggested words.</param>
+    /// <param name="maxResults">The maximum number of suggestions to keep.</param>
+    /// <returns>The calling thread's LookupContext, holding the suggested correct spellings for the input word,
+    /// sorted by edit distance, and secondarily by count frequency.</returns>
+    public LookupContext lookup(CharSequence input, Verbosity verbosity, int maxEditDistance, int maxResults) {
         //verbosity=Top: the suggestion with the highest term frequency of the suggestions of smallest edit distance found
         //verbosity=Closest: all suggestions of smallest edit distance found, the suggestions are ordered by term frequency
         //verbosity=All: all suggestions <= maxEditDistance, the suggestions are ordered by edit distance, then by term frequency (slower, no early termination)
@@ -396,47 +574,47 @@ public class SymSpell {
         // used to construct the underlying dictionary structure.
         if (maxEditDistance > maxDictionaryEditDistance) throw new IllegalArgumentException("Dist to big: " + maxEditDistance);
 
-        List<SuggestItem> suggestions = new ArrayList<>();
+        LookupContext context = lookupContext.get();
+        context.reset(input, words, verbosity == Verbosity.Top ? Math.min(1, maxResults) : maxResults);
 
-        if (deletes == null) return suggestions;
+        if (deletes == null || maxResults <= 0) return context;
 
         int inputLen = input.length();
 
         // early exit - word is too big to possibly match any words
-        if (inputLen - maxEditDistance > maxLength) return suggestions;
+        if (inputLen - maxEditDistance > maxLength) return context;
 
-        // deletes we've considered already
-        HashSet<String> consideredDeletes = new HashSet<>();
-        // suggestions we've considered already
-        HashSet<String> consideredSuggestions = new HashSet<>();
+        char[] inputChars = context.input;
         long suggestionCount;
 
         // quick look for exact match
-        if (words.containsKey(input)) {
-            suggestionCount = words.get(input);
-            suggestions.add(new SuggestItem(input, 0, suggestionCount));
+        int inputId = words.find(input);
+        if (inputId >= 0) {
+            context.addResult(inputId, 0, words.count(inputId));
             // early exit - return exact match, unless caller wants all matches
-            if (verbosity != Verbosity.All) return suggestions;
+            if (verbosity != Verbosity.All) return context;
         }
-        consideredSuggestions.add(input); // input considered in above.
 
         int maxEditDistance2 = maxEditDistance;
         int candidatePointer = 0;
-        List<String> candidates = new ArrayList<>();
 
-        //add original prefix
-        int inputPrefixLen = inputLen;
-        if (inputPrefixLen > prefixLength) {
-            inputPrefixLen = prefixLength;
-            candidates.add(input.substring(0, inputPrefixLen));
+        //add original prefix, unless the previous lookup left every candidate of this prefix
+        int inputPrefixLen = Math.min(inputLen, prefixLength);
+        boolean reuseCandidates = verbosity == Verbosity.All
+                && context.hasCandidates(inputPrefixLen, maxEditDistance, deletesGeneration);
+        if (reuseCandidates) {
+            candidateReuses.incrementAndGet();
         } else {
-            candidates.add(input);
+            context.clearCandidates();
+            context.addInputCandidate(inputPrefixLen);
         }
 
-        EditDistance distanceComparer = new EditDistance(input, SymConfig.INSTANCE.getDefaultEditDistanceAlgorithm());
-        while (candidatePointer < candidates.size()) {
-            String candidate = candidates.get(candidatePointer++);
-            int candidateLen = candidate.length();
+        EditDistance distanceComparer = context.distanceComparer;
+        distanceComparer.setBaseString(input);
+        while (candidatePointer < context.candidateCount()) {
+            int candidate = candidatePointer++;
+            int candidateStart = context.candidateStart(candidate);
+            int candidateLen = context.candidateLength(candidate);
             int lengthDiff = inputPrefixLen - candidateLen;
 
             //early termination if distance higher than suggestion distance
@@ -448,16 +626,28 @@ public class SymSpell {
             }
 
             //read candidate entry from dictionary
-            if (deletes.containsKey(getStringHash(candidate, compactMask))) {
-                String[] dictSuggestions = deletes.get(getStringHash(candidate, compactMask));
+            int slot;
+            if (reuseCandidates) {
+                slot = context.candidateSlot(candidate);
+            } else {
+                slot = deletes.find(getStringHash(context.candidateChars, candidateStart, candidateLen, compactMask));
+                context.setCandidateSlot(candidate, slot);
+            }
+            if (slot >= 0) {
                 //iterate through suggestions (to other correct dictionary items) of delete item and add them to suggestion list
-                for (String suggestion : dictSuggestions) {
-                    if (suggestion.equals(input)) continue;
-                    int suggestionLen = suggestion.length();
+                int dictSuggestionCount = deletes.suggestionCount(slot);
+                for (int s = 0; s < dictSuggestionCount; s++) {
+                    int suggestionId = deletes.suggestion(slot, s);
+                    if (suggestionId == inputId || (suggestionCount = words.count(suggestionId)) < 0) continue;
+                    int suggestionLen = words.length(suggestionId);
 
                     if ((Math.abs(suggestionLen - inputLen) > maxEditDistance2) // input/suggestion diff > allowed/current best distance
-                            || (suggestionLen < candidateLen) // sugg must be for a different delete string, in same bin only because of hash collision
-                            || (suggestionLen == candidateLen && !suggestion.equals(candidate))) // if sugg len = delete len, then it either equals delete or is in same bin only because of hash collision
+                            || (suggestionLen < candidateLen)) // sugg must be for a different delete string, in same bin only because of hash collision
+                        continue;
+                    context.loadSuggestion(words, suggestionId, suggestionLen);
+                    char[] suggestion = context.suggestion;
+                    if (suggestionLen == candidateLen // if sugg len = delete len, then it either equals delete or is in same bin only because of hash collision
+                            && !LookupContext.regionMatches(suggestion, 0, context.candidateChars, candidateStart, candidateLen))
                         continue;
 
                     int suggPrefixLen = Math.min(suggestionLen, prefixLength);
@@ -475,51 +665,40 @@ public class SymSpell {
                     if (candidateLen == 0) {
                         //suggestions which have no common chars with input (inputLen<=maxEditDistance && suggestionLen<=maxEditDistance)
                         distance = Math.max(inputLen, suggestionLen);
-                        if (distance > maxEditDistance2 || !consideredSuggestions.add(suggestion)) continue;
+                        if (distance > maxEditDistance2 || !context.considerSuggestion(suggestionId)) continue;
                     } else if (suggestionLen == 1) {
-                        if (input.indexOf(suggestion.charAt(0)) < 0) distance = inputLen;
+                        if (indexOf(inputChars, inputLen, suggestion[0]) < 0) distance = inputLen;
                         else distance = inputLen - 1;
-                        if (distance > maxEditDistance2 || !consideredSuggestions.add(suggestion)) continue;
+                        if (distance > maxEditDistance2 || !context.considerSuggestion(suggestionId)) continue;
                     } else
                         //number of edits in prefix == maxeditdistance  && no identic suffix
                         //, then editdistance > maxEditDistance and no need for Levenshtein calculation
                         //      (inputLen >= prefixLength) && (suggestionLen >= prefixLength)
                         if ((prefixLength - maxEditDistance == candidateLen)
                                 && (((min = Math.min(inputLen, suggestionLen) - prefixLength) > 1)
-                                && !(input.substring(inputLen + 1 - min).equals(suggestion.substring(suggestionLen + 1 - min))))
-                                || ((min > 0) && (input.charAt(inputLen - min) != suggestion.charAt(suggestionLen - min))
-                                && ((input.charAt(inputLen - min - 1) != suggestion.charAt(suggestionLen - min))
-                                || (input.charAt(inputLen - min) != suggestion.charAt(suggestionLen - min - 1))))) {
+                                && !LookupContext.regionMatches(inputChars, inputLen + 1 - min, suggestion, suggestionLen + 1 - min, min - 1))
+                                || ((min > 0) && (inputChars[inputLen - min] != suggestion[suggestionLen - min])
+                                && ((inputChars[inputLen - min - 1] != suggestion[suggestionLen - min])
+                                || (inputChars[inputLen - min] != suggestion[suggestionLen - min - 1])))) {
                             continue;
                         } else {
                             // deleteInSuggestionPrefix is somewhat expensive, and only pays off when verbosity is Top or Closest.
-                            if ((verbosity != Verbosity.All && !deleteInSuggestionPrefix(candidate, candidateLen, suggestion, suggestionLen, prefixLength))
-                                    || !consideredSuggestions.add(suggestion)) continue;
-                            distance = distanceComparer.compare(suggestion, maxEditDistance2);
+                            if ((verbosity != Verbosity.All && !deleteInSuggestionPrefix(context.candidateChars, candidateStart, candidateLen, suggestion, suggestionLen, prefixLength))
+                                    || !context.considerSuggestion(suggestionId)) continue;
+                            distance = distanceComparer.compare(suggestion, suggestionLen, maxEditDistance2);
                             if (distance < 0) continue;
                         }
 
                     //save some time
                     //do not process higher distances than those already found, if verbosity<All (note: maxEditDistance2 will always equal maxEditDistance when Verbosity.All)
                     if (distance <= maxEditDistance2) {
-                        suggestionCount = words.get(suggestion);
-                        SuggestItem si = new SuggestItem(suggestion, distance, suggestionCount);
-                        if (suggestions.size() > 0) {
-                            switch (verbosity) {
-                                case Closest:
-                                    //we will calculate DamLev distance only to the smallest found distance so far
-                                    if (distance < maxEditDistance2) suggestions.clear();
-                                    break;
-                                case Top:
-                                    if (distance < maxEditDistance2 || suggestionCount > suggestions.get(0).count) {
-                                        maxEditDistance2 = distance;
-                                        suggestions.set(0, si);
-                                    }
-                                    continue;
-                            }
+                        if (verbosity != Verbosity.All) {
+                            //Closest: we will calculate DamLev distance only to the smallest found distance so far
+                            //Top: a closer suggestion replaces the current one, otherwise the more frequent is kept
+                            if (distance < maxEditDistance2) context.clearResults();
+                            maxEditDistance2 = distance;
                         }
-                        if (verbosity != Verbosity.All) maxEditDistance2 = distance;
-                        suggestions.add(si);
+                        context.addResult(suggestionId, distance, suggestionCount);
                     }
                 }
             }
@@ -527,56 +706,99 @@ public class SymSpell {
             //add edits
             //derive edits (deletes) from candidate (input) and add them to candidates list
             //this is a recursive process until the maximum edit distance has been reached
-            if ((lengthDiff < maxEditDistance) && (candidateLen <= prefixLength))
+            if (!reuseCandidates && (lengthDiff < maxEditDistance) && (candidateLen <= prefixLength))
             {
                 //save some time
                 //do not create edits with edit distance smaller than suggestions already found
                 if (verbosity != Verbosity.All && lengthDiff >= maxEditDistance2) continue;
 
-                for (int i = 0; i < candidateLen; i++)
-                {
-                    StringBuilder sb = new StringBuilder(candidate);
-                    sb.deleteCharAt(i);
-                    String delete = sb.toString();
-
-                    if (consideredDeletes.add(delete)) { candidates.add(delete); }
-                }
+                for (int i = 0; i < candidateLen; i++) context.addDelete(candidate, i);
             }
         }
 
+        //Verbosity.All derives every candidate, which the next lookup with the same prefix can reuse
+        if (verbosity == Verbosity.All) context.completeCandidates(maxEditDistance, deletesGeneration);
+
         //sort by ascending edit distance, then by descending word frequency
-        if (suggestions.size() > 1) Collections.sort(suggestions);
-        return suggestions;
+        context.sortResults();
+        return context;
+    }
+
+    /// <summary>Finds the best suggestion for a single term.</summary>
+    /// <remarks>Lets phrase lookups search several dictionaries as if they were one, and share the
+    /// suggestions found for a term between lookups of the same phrase.</remarks>
+    public interface TermLookup {
+        /// <param name="term">The term being spell checked.</param>
+        /// <returns>The closest, most frequent suggestion for the term, or null if there is none.</returns>
+        SuggestItem lookupTop(String term);
+    }
+
+    /// <summary>A TermLookup which only looks each term up once, for the lookups of a single phrase.</summary>
+    /// <remarks>Phrase lookups look up the same terms many times over: lookupCompound looks up the
+    /// halves of every split of a term, and wordSegmentation every substring of the input.</remarks>
+    /// <param name="termLookup">The lookup of terms not yet looked up.</param>
+    public static TermLookup memoize(TermLookup termLookup) {
+        HashMap<String, SuggestItem> memo = new HashMap<>();
+        return term -> {
+            if (memo.containsKey(term)) return memo.get(term);
+            SuggestItem top = termLookup.lookupTop(term);
+            memo.put(term, top);
+            return top;
+        };
+    }
+
+    private TermLookup topLookup(int maxEditDistance) {
+        return term -> {
+            List<SuggestItem> suggestions = lookup(term, Verbosity.Top, maxEditDistance);
+            return suggestions.isEmpty() ? null : suggestions.get(0);
+        };
     }
 
     public List<SuggestItem> lookupCompound(String input, int maxEditDistance) {
-        //parse input string into single terms
         if(maxEditDistance > maxDictionaryEditDistance) throw new IllegalArgumentException("Dist to big " + maxEditDistance);
+        return lookupCompound(input, maxEditDistance, topLookup(maxEditDistance), Long.MAX_VALUE);
+    }
+
+    /// <summary>Find the suggested spelling of a multi-word input string, supporting compound
+    /// splitting and merging of its terms.</summary>
+    /// <remarks>Stops as soon as System.nanoTime() passes deadlineNanos, so a long phrase can't hold
+    /// up its caller.</remarks>
+    /// <param name="input">The string being spell checked.</param>
+    /// <param name="maxEditDistance">The maximum edit distance between each term and its suggestion.</param>
+    /// <param name="termLookup">The lookup of each term and split of a term.</param>
+    /// <param name="deadlineNanos">The System.nanoTime() by which the lookup must end.</param>
+    /// <returns>A List holding the suggested phrase, or an empty List if the deadline passed
+    /// first.</returns>
+    public static List<SuggestItem> lookupCompound(String input, int maxEditDistance, TermLookup termLookup, long deadlineNanos) {
+        //parse input string into single terms
         String[] termList1 = parseWords(input);
 
-        List<SuggestItem> suggestions; //suggestions for a single term
+        SuggestItem suggestion1; //best suggestion for a single term
         List<SuggestItem> suggestionParts = new ArrayList<>(); // 1 line with separate parts
-        List<SuggestItem> suggestionsCombi;
+        SuggestItem suggestionCombi;
         EditDistance editDistance;
 
         //translate every term to its best suggestion, otherwise it remains unchanged
         boolean lastCombi = false;
         for (int i = 0; i < termList1.length; i++){      // For each term do loop
-            suggestions = lookup(termList1[i], Verbosity.Top, maxEditDistance); // Get the normal suggestions,
+            if (System.nanoTime() > deadlineNanos) return new ArrayList<>();
+            suggestion1 = termLookup.lookupTop(termList1[i]); // Get the normal suggestion,
             //combi check, always before split. i > 0 because we can't split on zero obviously.
             if((i > 0) && !lastCombi) {
-                suggestionsCombi = lookup(termList1[i - 1] + termList1[i], Verbosity.Top, maxEditDistance);
+                suggestionCombi = termLookup.lookupTop(termList1[i - 1] + termList1[i]);
 
-                if (!suggestionsCombi.isEmpty()) {
+                if (suggestionCombi != null) {
                     SuggestItem best1 = suggestionParts.get(suggestionParts.size() - 1);    // Grabbing the currently last part of sentence (i-1)
                     SuggestItem best2;
-                    if (!suggestions.isEmpty()) best2 = suggestions.get(0);                 // Getting the best suggestion of term (i)
+                    if (suggestion1 != null) best2 = suggestion1;                           // Getting the best suggestion of term (i)
                     else best2 = new SuggestItem(termList1[i], maxEditDistance + 1, 0); // No suggestion -> it might be correct? (i)
 
                     editDistance = new EditDistance(termList1[i - 1] + " " + termList1[i], EditDistance.DistanceAlgorithm.Damerau);
-                    if (suggestionsCombi.get(0).distance + 1 < editDistance.DamerauLevenshteinDistance(best1.term + " " + best2.term, maxEditDistance)) {
-                        suggestionsCombi.get(0).distance++;
-                        suggestionParts.set(suggestionParts.size() - 1, suggestionsCombi.get(0));   // Replacing value.
+                    if (suggestionCombi.distance + 1 < editDistance.DamerauLevenshteinDistance(best1.term + " " + best2.term, maxEditDistance)) {
+                        // the suggestion may be shared with other lookups, so it's copied before changing it
+                        suggestionCombi = suggestionCombi.clone();
+                        suggestionCombi.distance++;
+                        suggestionParts.set(suggestionParts.size() - 1, suggestionCombi);   // Replacing value.
                         lastCombi = true;
                         continue;
                     }
@@ -586,38 +808,39 @@ public class SymSpell {
             lastCombi = false;
 
             //always split terms without suggestion / never split terms with suggestion ed=0 / never split single char terms
-            if (!suggestions.isEmpty() && ((suggestions.get(0).distance==0) || (termList1[i].length() == 1))) {
+            if (suggestion1 != null && ((suggestion1.distance==0) || (termList1[i].length() == 1))) {
                 //choose best suggestion
-                suggestionParts.add(suggestions.get(0));
+                suggestionParts.add(suggestion1);
             } else {
                 //if no perfect suggestion, split word into pairs
                 List<SuggestItem> suggestionsSplit = new ArrayList<>();
 
                 //add original term
-                if (!suggestions.isEmpty()) {
-                    suggestionsSplit.add(suggestions.get(0));
+                if (suggestion1 != null) {
+                    suggestionsSplit.add(suggestion1);
                 }
 
                 if (termList1[i].length() > 1) {
                     for (int j=1; j < termList1[i].length(); j++) {      // Begin splitting! j=1 -> last. Shouldnt it be j.size - 1?
+                        if (System.nanoTime() > deadlineNanos) return new ArrayList<>();
                         String part1 = termList1[i].substring(0,j);
                         String part2 = termList1[i].substring(j);
                         SuggestItem suggestionSplit;
-                        List<SuggestItem> suggestions1 = lookup(part1, Verbosity.Top, maxEditDistance);
+                        SuggestItem suggestion2 = termLookup.lookupTop(part1);
 
-                        if (!suggestions1.isEmpty()) {
-                            if (!suggestions.isEmpty() && (suggestions.get(0).equals(suggestions1.get(0)))) continue; // suggestion top = split_1 suggestion top
-                            List<SuggestItem> suggestions2 = lookup(part2, Verbosity.Top, maxEditDistance);
+                        if (suggestion2 != null) {
+                            if (suggestion1 != null && (suggestion1.equals(suggestion2))) continue; // suggestion top = split_1 suggestion top
+                            SuggestItem suggestion3 = termLookup.lookupTop(part2);
 
-                            if(!suggestions2.isEmpty()) {
-                                if (!suggestions.isEmpty() && (suggestions.get(0).equals(suggestions2.get(0)))) continue; //suggestion top = split_2 suggestion top
+                            if(suggestion3 != null) {
+                                if (suggestion1 != null && (suggestion1.equals(suggestion3))) continue; //suggestion top = split_2 suggestion top
 
                                 //select best suggestion for split pair
-                                String split = suggestions1.get(0).term + " " + suggestions2.get(0).term;
+                                String split = suggestion2.term + " " + suggestion3.term;
                                 editDistance = new EditDistance(termList1[i], EditDistance.DistanceAlgorithm.Damerau);
                                 suggestionSplit = new SuggestItem(split,
                                         editDistance.DamerauLevenshteinDistance(split, maxEditDistance),
-                                        Math.min(suggestions1.get(0).count, suggestions2.get(0).count));
+                                        Math.min(suggestion2.count, suggestion3.count));
                                 if(suggestionSplit.distance >= 0) suggestionsSplit.add(suggestionSplit);
 
                                 //early termination of split
@@ -652,13 +875,145 @@ public class SymSpell {
 
         suggestion.term = s.toString().replaceAll("\\s+$", "");
         editDistance = new EditDistance(suggestion.term, EditDistance.DistanceAlgorithm.Damerau);
-        suggestion.distance = editDistance.DamerauLevenshteinDistance(input, maxDictionaryEditDistance);
+        // every term may have been corrected, so the phrase's distance isn't bound by maxEditDistance
+        suggestion.distance = editDistance.DamerauLevenshteinDistance(input, Math.max(input.length(), suggestion.term.length()));
 
         List<SuggestItem> suggestionsLine = new ArrayList<>();
         suggestionsLine.add(suggestion);
         return suggestionsLine;
     }
 
+    // The number of words in the corpus the frequency dictionary was counted from
+    private static final double CORPUS_WORD_COUNT = 1024908267229d;
+
+    // The best segmentation found of the input up to a position
+    private static final class Composition {
+        final String correctedString;
+        final int distanceSum;
+        final double probabilityLogSum;
+        final long minCount;
+
+        Composition(String correctedString, int distanceSum, double probabilityLogSum, long minCount) {
+            this.correctedString = correctedString;
+            this.distanceSum = distanceSum;
+            this.probabilityLogSum = probabilityLogSum;
+            this.minCount = minCount;
+        }
+    }
+
+    /// <summary>Divide a string into words by inserting missing spaces at the appropriate
+    /// positions, correcting the spelling of each word.</summary>
+    /// <param name="input">The string being spell checked and segmented.</param>
+    /// <returns>The corrected, segmented string, or null if the input is empty.</returns>
+    public SuggestItem wordSegmentation(String input) {
+        return wordSegmentation(input, maxLength, topLookup(maxDictionaryEditDistance), Long.MAX_VALUE);
+    }
+
+    /// <summary>Divide a string into words by inserting missing spaces at the appropriate
+    /// positions, correcting the spelling of each word.</summary>
+    /// <remarks>Segments are found by dynamic programming: the best segmentation of the input up to
+    /// each position is kept, and extended by every word which could follow it, so each substring
+    /// is only looked up once. Only the last maxSegmentationWordLength segmentations are needed,
+    /// so they are kept in a circular array.
+    ///
+    /// Of two segmentations, the one with the smaller edit distance sum is best, then the one
+    /// whose words are most likely, by the naive Bayes probability of their counts.
+    ///
+    /// Stops as soon as System.nanoTime() passes deadlineNanos, so long input can't hold up its
+    /// caller.</remarks>
+    /// <param name="input">The string being spell checked and segmented.</param>
+    /// <param name="maxSegmentationWordLength">The maximum length of a word.</param>
+    /// <param name="termLookup">The lookup of each word.</param>
+    /// <param name="deadlineNanos">The System.nanoTime() by which the segmentation must end.</param>
+    /// <returns>The corrected, segmented string, with the edit distance sum of its words and the
+    /// count of its least frequent word, or null if the input is empty or the deadline passed
+    /// first.</returns>
+    public static SuggestItem wordSegmentation(String input, int maxSegmentationWordLength, TermLookup termLookup, long deadlineNanos) {
+        if (input.isEmpty() || maxSegmentationWordLength < 1) return null;
+        int arraySize = Math.min(maxSegmentationWordLength, input.length());
+        Composition[] compositions = new Composition[arraySize];
+        int circularIndex = -1;
+
+        //outer loop (column): all possible part start positions
+        for (int j = 0; j < input.length(); j++) {
+            if (System.nanoTime() > deadlineNanos) return null;
+            //inner loop (row): all possible part lengths (from start position): part can't be bigger than longest word in dictionary (other than long unknown word)
+            int imax = Math.min(input.length() - j, maxSegmentationWordLength);
+            for (int i = 1; i <= imax; i++) {
+                //get top spelling correction/ed for part
+                String part = input.substring(j, j + i);
+                int separatorLength = 0;
+                int topEd = 0;
+                double topProbabilityLog;
+                String topResult;
+                long topCount;
+
+                if (Character.isWhitespace(part.charAt(0))) {
+                    //remove space for levensthein calculation
+                    part = part.substring(1);
+                } else {
+                    //add ed+1: space did not exist, had to be inserted
+                    separatorLength = 1;
+                }
+
+                //remove space from part1, add number of removed spaces to topEd
+                topEd += part.length();
+                //remove space
+                part = part.replace(" ", "");
+                //add number of removed spaces to ed
+                topEd -= part.length();
+
+                SuggestItem top = part.isEmpty() ? null : termLookup.lookupTop(part);
+                if (top != null) {
+                    topResult = top.term;
+                    topEd += top.distance;
+                    topCount = top.count;
+                    //Naive Bayes Rule
+                    //we assume the word probabilities of two words to be independent
+                    //therefore the resulting probability of the word combination is the product of the two word probabilities
+                    //instead of computing the product of probabilities we are computing the sum of the logarithm of probabilities
+                    //because the probabilities of words are about 10^-10, the product of many such small numbers could exceed (underflow) the floating number range and become zero
+                    //log(ab)=log(a)+log(b)
+                    topProbabilityLog = Math.log10(top.count / CORPUS_WORD_COUNT);
+                } else {
+                    topResult = part;
+                    //default, if word not found
+                    //otherwise long input text would win as long unknown word (with ed=edmax+1 ), although there there should many spaces inserted
+                    topEd += part.length();
+                    topCount = 0;
+                    topProbabilityLog = Math.log10(10.0 / (CORPUS_WORD_COUNT * Math.pow(10.0, part.length())));
+                }
+
+                int destinationIndex = (i + circularIndex) % arraySize;
+
+                //set values in first loop
+                if (j == 0) {
+                    compositions[destinationIndex] = new Composition(topResult, topEd, topProbabilityLog, topCount);
+                } else {
+                    Composition previous = compositions[circularIndex];
+                    Composition destination = compositions[destinationIndex];
+                    if ((i == maxSegmentationWordLength)
+                            //replace values if better probabilityLogSum, if same edit distance OR one space difference
+                            || (((previous.distanceSum + topEd == destination.distanceSum) || (previous.distanceSum + separatorLength + topEd == destination.distanceSum))
+                                && (destination.probabilityLogSum < previous.probabilityLogSum + topProbabilityLog))
+                            //replace values if smaller edit distance
+                            || (previous.distanceSum + separatorLength + topEd < destination.distanceSum)) {
+                        compositions[destinationIndex] = new Composition(
+                                previous.correctedString + " " + topResult,
+                                previous.distanceSum + separatorLength + topEd,
+                                previous.probabilityLogSum + topProbabilityLog,
+                                Math.min(previous.minCount, topCount));
+                    }
+                }
+            }
+            circularIndex++;
+            if (circularIndex == arraySize) circularIndex = 0;
+        }
+
+        Composition best = compositions[circularIndex];
+        return new SuggestItem(best.correctedString, best.distanceSum, best.minCount);
+    }
+
     //public bool enableCompoundCheck = true;
     //false: assumes input string as single term, no compound splitting / decompounding
     //true:  supports compound splitting / decompounding with three cases:
@@ -667,18 +1022,14 @@ public class SymSpell {
     //3. multiple independent input terms with/without spelling errors
 
     private long getAverageCount() {
-        long totalCount = 0L;
-        for (Map.Entry<String, Long> entry : words.entrySet()) {
-            totalCount += entry.getValue();
-        }
-        return totalCount / words.size();
+        return wordArena.totalCount() / wordArena.size();
     }
 
-    public Map<Integer, String[]> getDeletes() {
+    public Deletes getDeletes() {
         return deletes;
     }
 
-    public Map<String, Long> getWords() {
+    public Words getWords() {
         return words;
     }
 
@@ -704,7 +1055,27 @@ public class SymSpell {
         return true;
     }
 
-    private String[] parseWords(String text) {
+    static boolean deleteInSuggestionPrefix(char[] delete, int deleteStart, int deleteLen, char[] suggestion, int suggestionLen, int prefixLength) {
+        if (deleteLen == 0) return true;
+        if (prefixLength < suggestionLen) suggestionLen = prefixLength;
+        int j = 0;
+        for (int i = 0; i < deleteLen; i++)
+        {
+            char delChar = delete[deleteStart + i];
+            while (j < suggestionLen && delChar != suggestion[j]) j++;
+            if (j == suggestionLen) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(char[] chars, int length, char c) {
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == c) return i;
+        }
+        return -1;
+    }
+
+    private static String[] parseWords(String text) {
         // \p{L} UTF-8 characters, plus "_", does not split words at apostrophes.
         Pattern pattern = Pattern.compile("['’\\p{L}-[_]]+");
         Matcher match = pattern.matcher(text.toLowerCase());
@@ -758,6 +1129,21 @@ public class SymSpell {
         return (int)hash;
     }
 
+    static int getStringHash(char[] chars, int start, int len, int compactMask) {
+        int lenMask = len;
+        if (lenMask > 3) lenMask = 3;
+
+        long hash = 2166136261L;
+        for (int i = start; i < start + len; i++) {
+                hash ^= chars[i];
+                hash *= 16777619;
+        }
+
+        hash &= compactMask;
+        hash |= (long)lenMask;
+        return (int)hash;
+    }
+
     public long getMaxDictionaryCountThreshold() {
         return maxDictionaryCountThreshold;
     }
@@ -765,5 +1151,13 @@ public class SymSpell {
     public long getMinDictionaryCountThreshold() {
         return minDictionaryCountThreshold;
     }
+
+    public long getMinCountThreshold() {
+        return minCountThreshold;
+    }
+
+    public long getMaxCountThreshold() {
+        return maxCountThreshold;
+    }
 }
 
@@ -0,0 +1,285 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/// <summary>A read-only, flat binary snapshot of a loaded SymSpell dictionary.</summary>
+/// <remarks>The snapshot holds every dictionary word, its frequency count and the full deletes
+/// table so that a SymSpell instance can be opened directly from a (memory-mapped) buffer
+/// without re-deriving deletes at runtime. All sections are fixed-width, little-endian arrays
+/// which are read in place, so opening an index is O(1) regardless of corpus size.
+///
+/// Layout, in order:
+///   header       see HEADER_SIZE
+///   counts       long[wordCount]              frequency count of each word id
+///   wordOffsets  int[wordCount + 1]           start of each word in the char arena
+///   words        int[wordTableCapacity]       open-addressed word table, word id + 1 (0 = empty)
+///   deleteKeys   int[deleteTableCapacity]     open-addressed delete hashes
+///   deleteStarts int[deleteTableCapacity + 1] start of each slot's suggestions in the pool
+///   pool         int[suggestionCount]         word ids of every delete's suggestions
+///   chars        char[charCount]              every word, back to back
+/// </remarks>
+public class SymSpellIndex {
+
+    private static final int MAGIC = 0x53594D49; // "SYMI"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 88;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public final int maxDictionaryEditDistance;
+    public final int prefixLength;
+    public final int compactMask;
+    public final int maxLength;
+    public final long minCountThreshold;
+    public final long maxCountThreshold;
+    public final long minDictionaryCountThreshold;
+    public final long maxDictionaryCountThreshold;
+
+    private final ByteBuffer buffer;
+    private final int wordCount;
+    private final int deleteCount;
+    private final int wordTableMask;
+    private final int deleteTableMask;
+
+    private final int countsPos;
+    private final int wordOffsetsPos;
+    private final int wordTablePos;
+    private final int deleteKeysPos;
+    private final int deleteStartsPos;
+    private final int poolPos;
+    private final int charsPos;
+
+    private SymSpellIndex(ByteBuffer source) {
+        buffer = source.duplicate().order(ORDER);
+        if (buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a SymSpell index");
+        if (buffer.getInt(4) != VERSION) throw new IllegalArgumentException("Unsupported SymSpell index version " + buffer.getInt(4));
+
+        maxDictionaryEditDistance = buffer.getInt(8);
+        prefixLength = buffer.getInt(12);
+        compactMask = buffer.getInt(16);
+        maxLength = buffer.getInt(20);
+        minCountThreshold = buffer.getLong(24);
+        maxCountThreshold = buffer.getLong(32);
+        minDictionaryCountThreshold = buffer.getLong(40);
+        maxDictionaryCountThreshold = buffer.getLong(48);
+        wordCount = buffer.getInt(56);
+        int charCount = buffer.getInt(60);
+        int wordTableCapacity = buffer.getInt(64);
+        int deleteTableCapacity = buffer.getInt(68);
+        int suggestionCount = buffer.getInt(72);
+        deleteCount = buffer.getInt(76);
+
+        wordTableMask = wordTableCapacity - 1;
+        deleteTableMask = deleteTableCapacity - 1;
+
+        countsPos = HEADER_SIZE;
+        wordOffsetsPos = countsPos + wordCount * 8;
+        wordTablePos = wordOffsetsPos + (wordCount + 1) * 4;
+        deleteKeysPos = wordTablePos + wordTableCapacity * 4;
+        deleteStartsPos = deleteKeysPos + deleteTableCapacity * 4;
+        poolPos = deleteStartsPos + (deleteTableCapacity + 1) * 4;
+        charsPos = poolPos + suggestionCount * 4;
+
+        if (charsPos + charCount * 2 > buffer.limit()) throw new IllegalArgumentException("Truncated SymSpell index");
+    }
+
+    /// <summary>Open an index previously written by write. The buffer is read in place and
+    /// must not be modified while the index is in use.</summary>
+    public static SymSpellIndex open(ByteBuffer buffer) {
+        return new SymSpellIndex(buffer);
+    }
+
+    /// <summary>Gets the words of the index.</summary>
+    public Words words() { return words; }
+
+    /// <summary>Gets the deletes of the index.</summary>
+    public Deletes deletes() { return deletes; }
+
+    private final Words words = new Words() {
+        @Override
+        public int size() { return wordCount; }
+
+        @Override
+        public long count(int id) {
+            return buffer.getLong(countsPos + id * 8);
+        }
+
+        @Override
+        public int length(int id) {
+            return buffer.getInt(wordOffsetsPos + (id + 1) * 4) - buffer.getInt(wordOffsetsPos + id * 4);
+        }
+
+        @Override
+        public char charAt(int id, int index) {
+            return buffer.getChar(charsPos + (buffer.getInt(wordOffsetsPos + id * 4) + index) * 2);
+        }
+
+        @Override
+        public String get(int id) {
+            int start = buffer.getInt(wordOffsetsPos + id * 4);
+            char[] chars = new char[length(id)];
+            for (int i = 0; i < chars.length; i++) chars[i] = buffer.getChar(charsPos + (start + i) * 2);
+            return new String(chars);
+        }
+
+        @Override
+        public int find(CharSequence word) {
+            int slot = DeleteTable.mix(WordArena.hash(word)) & wordTableMask;
+            int id;
+            while ((id = buffer.getInt(wordTablePos + slot * 4) - 1) >= 0) {
+                if (count(id) >= 0 && equals(id, word)) return id;
+                slot = (slot + 1) & wordTableMask;
+            }
+            return -1;
+        }
+
+        private boolean equals(int id, CharSequence word) {
+            int len = length(id);
+            if (len != word.length()) return false;
+            for (int i = 0; i < len; i++) {
+                if (charAt(id, i) != word.charAt(i)) return false;
+            }
+            return true;
+        }
+    };
+
+    private final Deletes deletes = new Deletes() {
+        @Override
+        public int size() { return deleteCount; }
+
+        @Override
+        public int capacity() { return deleteTableMask + 1; }
+
+        @Override
+        public int key(int slot) {
+            return buffer.getInt(deleteKeysPos + slot * 4);
+        }
+
+        @Override
+        public int suggestionCount(int slot) {
+            return buffer.getInt(deleteStartsPos + (slot + 1) * 4) - buffer.getInt(deleteStartsPos + slot * 4);
+        }
+
+        @Override
+        public int suggestion(int slot, int index) {
+            return buffer.getInt(poolPos + (buffer.getInt(deleteStartsPos + slot * 4) + index) * 4);
+        }
+
+        @Override
+        public int find(int deleteHash) {
+            int slot = DeleteTable.mix(deleteHash) & deleteTableMask;
+            while (suggestionCount(slot) != 0) {
+                if (key(slot) == deleteHash) return slot;
+                slot = (slot + 1) & deleteTableMask;
+            }
+            return -1;
+        }
+    };
+
+    /// <summary>Write a snapshot of a loaded SymSpell dictionary.</summary>
+    /// <remarks>Word ids and the order of each delete's suggestions are kept as they are in
+    /// the dictionary, so lookups against the index return exactly what lookups against the
+    /// dictionary return.</remarks>
+    /// <param name="symSpell">A SymSpell instance whose dictionary has been loaded.</param>
+    /// <param name="out">The stream to write the index to. The stream is not closed.</param>
+    public static void write(SymSpell symSpell, OutputStream out) throws IOException {
+        Words words = symSpell.getWords();
+        Deletes deletes = symSpell.getDeletes();
+        if (deletes == null) throw new IllegalStateException("SymSpell dictionary has not been loaded");
+
+        int wordCount = words.size();
+        int charCount = 0;
+        for (int id = 0; id < wordCount; id++) charCount += words.length(id);
+
+        int suggestionCount = 0;
+        for (int slot = 0; slot < deletes.capacity(); slot++) suggestionCount += deletes.suggestionCount(slot);
+
+        int wordTableCapacity = DeleteTable.tableCapacity(wordCount);
+        int deleteTableCapacity = DeleteTable.tableCapacity(deletes.size());
+
+        int size = HEADER_SIZE
+                + wordCount * 8
+                + (wordCount + 1) * 4
+                + wordTableCapacity * 4
+                + deleteTableCapacity * 4
+                + (deleteTableCapacity + 1) * 4
+                + suggestionCount * 4
+                + charCount * 2;
+        ByteBuffer bb = ByteBuffer.allocate(size).order(ORDER);
+
+        bb.putInt(MAGIC);
+        bb.putInt(VERSION);
+        bb.putInt(symSpell.maxDictionaryEditDistance);
+        bb.putInt(symSpell.prefixLength);
+        bb.putInt(symSpell.compactMask);
+        bb.putInt(symSpell.maxLength);
+        bb.putLong(symSpell.getMinCountThreshold());
+        bb.putLong(symSpell.getMaxCountThreshold());
+        bb.putLong(symSpell.getMinDictionaryCountThreshold());
+        bb.putLong(symSpell.getMaxDictionaryCountThreshold());
+        bb.putInt(wordCount);
+        bb.putInt(charCount);
+        bb.putInt(wordTableCapacity);
+        bb.putInt(deleteTableCapacity);
+        bb.putInt(suggestionCount);
+        bb.putInt(deletes.size());
+        while (bb.position() < HEADER_SIZE) bb.put((byte) 0);
+
+        // counts
+        for (int id = 0; id < wordCount; id++) bb.putLong(words.count(id));
+
+        // word offsets
+        int offset = 0;
+        for (int id = 0; id < wordCount; id++) {
+            bb.putInt(offset);
+            offset += words.length(id);
+        }
+        bb.putInt(offset);
+
+        // word table
+        int[] wordTable = new int[wordTableCapacity];
+        for (int id = 0; id < wordCount; id++) {
+            int slot = DeleteTable.mix(WordArena.hash(words.get(id))) & (wordTableCapacity - 1);
+            while (wordTable[slot] != 0) slot = (slot + 1) & (wordTableCapacity - 1);
+            wordTable[slot] = id + 1;
+        }
+        for (int id : wordTable) bb.putInt(id);
+
+        // delete table, laid out so that each slot's suggestions directly follow the previous
+        // occupied slot's in the pool. Empty slots are those whose start equals the next start.
+        int[] keys = new int[deleteTableCapacity];
+        int[] sourceSlots = new int[deleteTableCapacity];
+        Arrays.fill(sourceSlots, -1);
+        for (int source = 0; source < deletes.capacity(); source++) {
+            if (deletes.suggestionCount(source) == 0) continue;
+            int slot = DeleteTable.mix(deletes.key(source)) & (deleteTableCapacity - 1);
+            while (sourceSlots[slot] >= 0) slot = (slot + 1) & (deleteTableCapacity - 1);
+            keys[slot] = deletes.key(source);
+            sourceSlots[slot] = source;
+        }
+        for (int key : keys) bb.putInt(key);
+        int start = 0;
+        for (int source : sourceSlots) {
+            bb.putInt(start);
+            if (source >= 0) start += deletes.suggestionCount(source);
+        }
+        bb.putInt(start);
+
+        // pool
+        for (int source : sourceSlots) {
+            if (source < 0) continue;
+            for (int i = 0; i < deletes.suggestionCount(source); i++) bb.putInt(deletes.suggestion(source, i));
+        }
+
+        // chars
+        for (int id = 0; id < wordCount; id++) {
+            for (int i = 0; i < words.length(id); i++) bb.putChar(words.charAt(id, i));
+        }
+
+        out.write(bb.array(), 0, bb.position());
+    }
+
+}
@@ -0,0 +1,43 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/// <summary>Command line entry point used by the build to write the SymSpellIndex shipped
+/// in assets.</summary>
+/// <remarks>Builds the dictionary with the same configuration SymSpellStore uses at runtime so
+/// the index can be opened by SymSpellStore's SymSpell instance.
+///
+/// Usage: SymSpellIndexWriter &lt;corpus&gt; &lt;output&gt;</remarks>
+public class SymSpellIndexWriter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SymSpellIndexWriter <corpus> <output>");
+            System.exit(1);
+        }
+
+        SymSpell symSpell = new SymSpell(
+                -1,
+                SymConfig.defaultDictionaryEditDistance,
+                -1,
+                SymConfig.defaultTargetCount,
+                Long.MAX_VALUE
+        );
+        if (!symSpell.loadDictionary(args[0], SymConfig.defaultTermIndex, SymConfig.defaultCountIndex)) {
+            throw new IOException(args[0] + " not found");
+        }
+
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            symSpell.writeIndex(out);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package space.narrate.waylan.core.data.spell
+
+import android.app.ActivityManager
+import android.content.Context
+
+/**
+ * How much of the corpus [SymSpellStore] loads, and how expensive its dictionaries are, chosen
+ * from the memory a device has to spare.
+ *
+ * @property tiers The number of [SymConfig.defaultTierMinCounts] tiers to load, from most to
+ *  least frequent
+ * @property maxEditDistance The max edit distance of each tier's dictionary and of lookups
+ * @property prefixLength The prefix length of each tier's dictionary
+ */
+enum class SymSpellProfile(val tiers: Int, val maxEditDistance: Int, val prefixLength: Int) {
+    LOW(1, 2, 5),
+    MEDIUM(2, 2, SymConfig.defaultPrefixLength),
+    HIGH(
+        SymConfig.defaultTierMinCounts.size,
+        SymConfig.defaultMaxEditDistanceLookup,
+        SymConfig.defaultPrefixLength
+    );
+
+    companion object {
+        // Devices with less total memory than this are treated as low ram devices
+        private const val LOW_TOTAL_MEMORY = 2L * 1024 * 1024 * 1024
+        // Devices with less total memory than this get a smaller dictionary
+        private const val MEDIUM_TOTAL_MEMORY = 4L * 1024 * 1024 * 1024
+
+        fun fromDevice(context: Context): SymSpellProfile {
+            val activityManager = context.getSystemService(Context.ACTIVITY_SERVICE)
+                as ActivityManager
+            val memoryInfo = ActivityManager.MemoryInfo()
+            activityManager.getMemoryInfo(memoryInfo)
+
+            return when {
+                activityManager.isLowRamDevice || memoryInfo.totalMem < LOW_TOTAL_MEMORY -> LOW
+                memoryInfo.lowMemory || memoryInfo.totalMem < MEDIUM_TOTAL_MEMORY -> MEDIUM
+                else -> HIGH
+            }
+        }
+    }
+}
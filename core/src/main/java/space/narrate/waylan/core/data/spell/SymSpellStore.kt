@@ -1,12 +1,27 @@
 package space.narrate.waylan.core.data.spell
 
 import android.content.Context
-import androidx.lifecycle.LiveData
-import androidx.lifecycle.MutableLiveData
+import android.util.Log
+import android.util.LruCache
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.asExecutor
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.launch
-import java.io.FileNotFoundException
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.util.Locale
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
 import kotlin.coroutines.CoroutineContext
 
 /**
@@ -15,63 +30,401 @@ import kotlin.coroutines.CoroutineContext
  * For details on SymSpell, see <a>https://github.com/wolfgarbe/SymSpell</a>
  * For details on JavaSymSpell, see <a>https://github.com/Lundez/JavaSymSpell</a>
  *
+ * How much of the corpus is loaded depends on the device's [SymSpellProfile]. The corpus is split
+ * into tiers by frequency count, [SymConfig.defaultTierMinCounts], and each tier the profile
+ * allows is loaded as its own dictionary, from most to least frequent, so devices which only load
+ * the first, smallest tier still get fast suggestions for the most common words.
+ *
+ * Tiers warm up progressively. A tier can be looked up as soon as its
+ * [SymConfig.defaultWarmUpCount] most frequent words are committed, after which the rest of the
+ * tier is folded in [SymConfig.defaultFoldCount] words at a time. Until every tier has been
+ * fully loaded, lookups return a [SuggestResult] which is not complete.
+ *
+ * Complete results are kept in an LRU cache, so backspacing and retyping are served from memory,
+ * and a word typed out past the profile's prefix length reuses the candidates of the previous
+ * keystroke's lookup. See [cacheStats].
+ *
+ * Input of several words, or of words run together without spaces, is also corrected as a
+ * phrase, within [SymConfig.defaultPhraseBudgetMillis]. See [lookupPhrases].
+ *
+ * Words the user opens are [learn]ed. They are kept in a small dictionary of their own, with
+ * counts which rank them above every word of the corpus, and appended to a [LearnedWordLog]
+ * which is replayed at startup.
+ *
+ * When a profile loads every tier with the default max edit distance and prefix length, the
+ * dictionary is instead opened from a prebuilt [SymSpellIndex], generated from the corpus at build
+ * time, which is memory-mapped straight out of the APK.
+ *
  * TODO port JavaSymSpell to Kotlin
  *
  * TODO further optimize memory use and corpus data for Words-specific use case.
  * TODO this could include the ability to learn the most common word frequency range a user
  * TODO typically searches for and initialize in-memory SymSpell instances targeting those
  * TODO ranges.
- *
- * TODO check available memory and don't init SymSpell if there is not enough available
  */
-class SymSpellStore(context: Context) : CoroutineScope {
+class SymSpellStore(
+    context: Context,
+    private val profile: SymSpellProfile = SymSpellProfile.fromDevice(context)
+) : CoroutineScope {
+
+    companion object {
+        private const val TAG = "SymSpellStore"
+    }
 
     override val coroutineContext: CoroutineContext
         get() = Dispatchers.IO
 
-    private var symSpell: SymSpell = SymSpell(
-        -1,
-        3,
-        -1,
-        SymConfig.defaultTargetCount,
-        Long.MAX_VALUE
+    /**
+     * A tier's dictionary, and the lock which keeps lookups out while words are folded into it.
+     */
+    private class Tier(val symSpell: SymSpell) {
+        val lock = ReentrantReadWriteLock()
+    }
+
+    // Each tier which can be looked up, from most to least frequent
+    @Volatile
+    private var tiers: List<Tier> = emptyList()
+
+    // Whether every tier of the profile has been fully loaded
+    @Volatile
+    private var isComplete = false
+
+    // The words the user has opened, with SymConfig.defaultLearnedCount for each time they
+    // were opened. Its words may also be in a tier, in which case their counts are added.
+    private val learned = Tier(
+        SymSpell(-1, profile.maxEditDistance, profile.prefixLength, 1L, Long.MAX_VALUE)
     )
+    private val learnedLog = LearnedWordLog(File(context.filesDir, SymConfig.defaultLearnedLogPath))
+
+    @Volatile
+    private var hasLearned = false
+
+    // Completed once the learned word log has been replayed. A word learned before then would be
+    // both in the log being replayed and committed by learn, so learn waits for it.
+    private val learnedReplayed = CompletableDeferred<Unit>()
+
+    private data class LookupKey(
+        val input: String,
+        val verbosity: SymSpell.Verbosity,
+        val maxEditDistance: Int
+    )
+
+    // Recent complete results. Results found while warming up would go stale as words are folded
+    // in, so they are never cached.
+    private val cache = LruCache<LookupKey, SuggestResult>(SymConfig.defaultSuggestCacheSize)
+
+    // Incremented each time learned counts are committed. Only changed while holding cache's
+    // lock, so a lookup's result is only cached if no commit has happened since it began.
+    @Volatile
+    private var learnedGeneration = 0L
+
+    // Lookups for search input run on their own small pool, so a burst of typing can't tie up
+    // more than a few threads or hold up Dispatchers.IO
+    private val suggestionPipeline = SuggestionPipeline(
+        Executors.newFixedThreadPool(SymConfig.defaultLookupThreads).asCoroutineDispatcher(),
+        SymConfig.defaultDebounceMillis
+    ) { lookup(it) }
+
+    /**
+     * How many lookups [suggestions] has started, cancelled and delivered.
+     */
+    val lookupStats: LookupStats
+        get() = suggestionPipeline.stats
+
+    /**
+     * How many lookups have been served from memory.
+     */
+    val cacheStats: SuggestCacheStats
+        get() = SuggestCacheStats(
+            cache.hitCount().toLong(),
+            cache.missCount().toLong(),
+            tiers.sumOf { it.symSpell.candidateReuseCount }
+        )
 
     init {
         launch {
-            val inputStream = context.assets.open(SymConfig.defaultCorpusPath)
-            if (!symSpell.loadDictionary(
-                    inputStream,
-                    SymConfig.defaultTermIndex,
-                    SymConfig.defaultCountIndex
-                )) throw FileNotFoundException("${SymConfig.defaultCorpusPath} not found")
+            try {
+                replayLearned()
+            } finally {
+                learnedReplayed.complete(Unit)
+            }
+            if (profile.tiers < SymConfig.defaultTierMinCounts.size || !loadIndex(context)) {
+                loadTiers(context)
+            }
+        }
+    }
+
+    private fun newSymSpell(minCount: Long): SymSpell = SymSpell(
+        -1,
+        profile.maxEditDistance,
+        profile.prefixLength,
+        SymSpell.endCapturePercentage(minCount),
+        SymSpell.RangeShift.End
+    )
+
+    /**
+     * Add the words of the learned word log to the learned dictionary.
+     */
+    private fun replayLearned() {
+        val opens = try {
+            learnedLog.replay()
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to replay learned words", e)
+            return
+        }
+        if (opens.isEmpty()) return
+        commitLearned(opens.mapValues { (_, count) -> count * SymConfig.defaultLearnedCount })
+    }
+
+    private fun commitLearned(counts: Map<String, Long>) {
+        learned.lock.write {
+            val staging = SuggestionStage(counts.size * 16)
+            counts.forEach { (word, count) ->
+                learned.symSpell.createDictionaryEntry(word, count, staging)
+            }
+            learned.symSpell.commitStaged(staging)
+        }
+        hasLearned = true
+        // Cached results, and those of lookups which read the old counts, no longer reflect the
+        // learned counts
+        synchronized(cache) {
+            learnedGeneration++
+            cache.evictAll()
+        }
+    }
+
+    /**
+     * Rank [word] higher in future suggestions, as the user has opened it. Only the learned
+     * dictionary is updated, so this neither rebuilds the tiers' deletes nor rereads the corpus.
+     */
+    fun learn(word: String) {
+        if (word.isBlank()) return
+        launch {
+            learnedReplayed.await()
+            try {
+                learnedLog.append(word)
+            } catch (e: IOException) {
+                Log.w(TAG, "Unable to log learned word", e)
+            }
+            commitLearned(mapOf(word to SymConfig.defaultLearnedCount))
+        }
+    }
+
+    /**
+     * Open the prebuilt index asset, covering every tier. The asset is stored uncompressed so it
+     * can be mapped directly from the APK without being copied or parsed.
+     *
+     * @return true if the index was opened and the dictionary is ready for lookups
+     */
+    private fun loadIndex(context: Context): Boolean {
+        val symSpell = newSymSpell(SymConfig.defaultTierMinCounts.last())
+        val loaded = try {
+            context.assets.openFd(SymConfig.defaultIndexPath).use { fd ->
+                FileInputStream(fd.fileDescriptor).channel.use { channel ->
+                    val buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY,
+                        fd.startOffset,
+                        fd.declaredLength
+                    )
+                    symSpell.loadIndex(buffer)
+                }
+            }
+        } catch (e: IOException) {
+            Log.w(TAG, "Unable to open ${SymConfig.defaultIndexPath}", e)
+            false
+        } catch (e: IllegalArgumentException) {
+            Log.w(TAG, "Unable to read ${SymConfig.defaultIndexPath}", e)
+            false
+        }
+        if (loaded) {
+            tiers = listOf(Tier(symSpell))
+            isComplete = true
         }
+        return loaded
     }
 
     /**
-     * Find all possible correct spellings/alternatives for the given [input]
+     * Build the profile's tiers from the text corpus, deriving every delete. Each tier only holds
+     * the words with counts between its own min count and the previous tier's.
      */
-    fun lookup(input: String): List<SuggestItem> {
-        return symSpell.lookup(
+    private fun loadTiers(context: Context) {
+        var maxCount = Long.MAX_VALUE
+        SymConfig.defaultTierMinCounts.take(profile.tiers).forEach { minCount ->
+            val tier = Tier(newSymSpell(minCount))
+            val minCountThreshold = tier.symSpell.minCountThreshold
+            val chunk = mutableListOf<Pair<String, Long>>()
+            var chunkSize = SymConfig.defaultWarmUpCount
+            // The corpus is ordered from most to least frequent, so the first chunk committed is
+            // the tier's most frequent words
+            context.assets.open(SymConfig.defaultCorpusPath).bufferedReader().useLines { lines ->
+                lines.forEach { line ->
+                    val parts = line.split(' ')
+                    val count = parts.getOrNull(SymConfig.defaultCountIndex)?.toLongOrNull()
+                    if (count != null && count >= minCountThreshold && count < maxCount) {
+                        chunk.add(parts[SymConfig.defaultTermIndex] to count)
+                        if (chunk.size == chunkSize) {
+                            commit(tier, chunk)
+                            chunkSize = SymConfig.defaultFoldCount
+                        }
+                    }
+                }
+            }
+            commit(tier, chunk)
+            maxCount = minCountThreshold
+        }
+        isComplete = true
+    }
+
+    /**
+     * Add a chunk of words to a tier, making the tier available for lookups if it isn't already.
+     */
+    private fun commit(tier: Tier, chunk: MutableList<Pair<String, Long>>) {
+        if (chunk.isEmpty()) return
+        tier.lock.write {
+            val staging = SuggestionStage(chunk.size * 16)
+            chunk.forEach { (term, count) ->
+                tier.symSpell.createDictionaryEntry(term, count, staging)
+            }
+            // Deletes are created on every core, each into its own stage
+            tier.symSpell.commitStaged(
+                staging,
+                Dispatchers.Default.asExecutor(),
+                Runtime.getRuntime().availableProcessors()
+            )
+        }
+        chunk.clear()
+        if (!tiers.contains(tier)) tiers = tiers + tier
+    }
+
+    /**
+     * Find the best [SymConfig.defaultMaxSuggestions] correct spellings/alternatives for the
+     * given [input].
+     *
+     * The lookup itself reuses the calling thread's scratch space, so only the returned
+     * [SuggestItem]s are allocated.
+     */
+    fun lookup(input: String): SuggestResult {
+        val key = LookupKey(input, SymConfig.defaultVerbosity, profile.maxEditDistance)
+        cache.get(key)?.let { return it }
+
+        // Read before looking up, so a lookup racing the last commit is reported as partial, and
+        // one racing a learned commit isn't cached
+        val complete = isComplete
+        val generation = learnedGeneration
+        val words = lookupTiers(key)
+        val phrases = lookupPhrases(input, words)
+        val result = SuggestResult(
             input,
-            SymConfig.defaultVerbosity,
-            SymConfig.defaultMaxEditDistanceLookup
+            (phrases.orEmpty() + words).distinctBy { it.term }.take(SymConfig.defaultMaxSuggestions),
+            complete
         )
+        // A lookup which ran out of time for phrases may be complete the next time round
+        if (complete && phrases != null) {
+            synchronized(cache) {
+                if (generation == learnedGeneration) cache.put(key, result)
+            }
+        }
+        return result
     }
 
-
     /**
-     * Find all possible correct spellings/alterations for the given [input].
+     * Find corrections of [input] as a phrase, if it's several words or a single word which
+     * isn't in the dictionary but might be several words run together.
+     *
+     * Separate words are corrected by [SymSpell.lookupCompound], which also merges words split by
+     * a stray space and splits words missing one. Words run together are segmented by
+     * [SymSpell.wordSegmentation]. Each lookup only looks up each of its terms once, and both
+     * stop after [SymConfig.defaultPhraseBudgetMillis].
      *
-     * @return A LiveData object containing a List of [SuggestItem]s
+     * @param words The suggestions already found for [input] as a single word
+     * @return The phrases, ordered by edit distance and then by frequency, or null if the lookup
+     *  ran out of time
      */
-    fun lookupLive(input: String): LiveData<List<SuggestItem>> {
-        val liveData = MutableLiveData<List<SuggestItem>>()
-        launch(Dispatchers.Main) {
-            val results = lookup(input)
-            liveData.value = results
+    private fun lookupPhrases(input: String, words: List<SuggestItem>): List<SuggestItem>? {
+        val phrase = input.trim().toLowerCase(Locale.ROOT)
+        val isSeveralWords = phrase.any { it.isWhitespace() }
+        if (!isSeveralWords) {
+            if (phrase.length < SymConfig.defaultMinSegmentationLength) return emptyList()
+            if (words.any { it.distance == 0 }) return emptyList()
         }
-        return liveData
+
+        val deadline = System.nanoTime() +
+            TimeUnit.MILLISECONDS.toNanos(SymConfig.defaultPhraseBudgetMillis)
+        val phrases = mutableListOf<SuggestItem>()
+        if (isSeveralWords) {
+            val compound = SymSpell.lookupCompound(
+                phrase,
+                profile.maxEditDistance,
+                SymSpell.memoize { lookupTop(it, profile.maxEditDistance) },
+                deadline
+            )
+            if (compound.isEmpty()) return null
+            phrases += compound
+        }
+        phrases += SymSpell.wordSegmentation(
+            phrase,
+            (tiers + learned).maxOf { it.symSpell.maxLength },
+            SymSpell.memoize { lookupTop(it, SymConfig.defaultSegmentationEditDistance) },
+            deadline
+        ) ?: return null
+
+        // A single word is only shown as several if that's no further from what was typed
+        val wordDistance = words.firstOrNull()?.distance ?: Int.MAX_VALUE
+        return phrases
+            .filter { it.term != phrase && it.term.contains(' ') }
+            .filter { isSeveralWords || it.distance <= wordDistance }
+            .sorted()
+            .distinctBy { it.term }
+    }
+
+    private fun lookupTop(term: String, maxEditDistance: Int): SuggestItem? {
+        return lookupTiers(LookupKey(term, SymSpell.Verbosity.Top, maxEditDistance)).firstOrNull()
+    }
+
+    private fun lookupTiers(key: LookupKey): List<SuggestItem> {
+        val hasLearned = hasLearned
+        val tiers = if (hasLearned) tiers + learned else tiers
+        val verbosity = key.verbosity
+        val suggestions = tiers.flatMap { tier ->
+            tier.lock.read {
+                tier.symSpell.lookup(
+                    key.input,
+                    verbosity,
+                    key.maxEditDistance,
+                    SymConfig.defaultMaxSuggestions
+                ).suggestions
+            }
+        }
+        if (tiers.size <= 1) return suggestions
+
+        // Tiers hold disjoint words, so their best suggestions can be merged as if they had
+        // come from a single dictionary. A learned word may also be in a tier, in which case its
+        // learned count is added to its corpus count.
+        val merged = if (hasLearned) {
+            suggestions.groupBy { it.term }.map { (term, items) ->
+                SuggestItem(term, items[0].distance, items.sumOf { it.count })
+            }
+        } else {
+            suggestions
+        }
+        val sorted = merged.sorted()
+        return when (verbosity) {
+            SymSpell.Verbosity.Top -> sorted.take(1)
+            SymSpell.Verbosity.Closest -> sorted.takeWhile { it.distance == sorted[0].distance }
+            else -> sorted
+        }.take(SymConfig.defaultMaxSuggestions)
+    }
+
+    /**
+     * Find the best correct spellings/alternatives for each [input] a user settles on.
+     *
+     * Input is debounced by [SymConfig.defaultDebounceMillis] and a lookup still running when
+     * newer input arrives is cancelled, so results for superseded input are never emitted.
+     */
+    @FlowPreview
+    @ExperimentalCoroutinesApi
+    fun suggestions(input: Flow<String>): Flow<SuggestResult> {
+        return suggestionPipeline.suggestions(input)
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package space.narrate.waylan.core.data.spell;
+
+import java.util.Arrays;
+
+/// <summary>The words of a SymSpell dictionary, packed back to back into a single char arena.</summary>
+/// <remarks>Each word is assigned the next word id when added. Words are found through an
+/// open-addressed table of word ids, so no String, boxed count or map entry is kept per
+/// word.</remarks>
+public class WordArena implements Words {
+    private char[] chars;
+    private int charCount;
+    private int[] offsets; // start of word id i is offsets[i], its end offsets[i + 1]
+    private long[] counts;
+    private int size;
+
+    private int[] table; // word id + 1, 0 = empty
+    private int mask;
+
+    public WordArena(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        chars = new char[capacity * 8];
+        offsets = new int[capacity + 1];
+        counts = new long[capacity];
+        table = new int[DeleteTable.tableCapacity(capacity)];
+        mask = table.length - 1;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public long count(int id) { return counts[id]; }
+
+    @Override
+    public int length(int id) { return offsets[id + 1] - offsets[id]; }
+
+    @Override
+    public char charAt(int id, int index) { return chars[offsets[id] + index]; }
+
+    @Override
+    public String get(int id) {
+        return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+    @Override
+    public int find(CharSequence word) {
+        int slot = DeleteTable.mix(hash(word)) & mask;
+        int id;
+        while ((id = table[slot] - 1) >= 0) {
+            if (counts[id] >= 0 && equals(id, word)) return id;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /// <summary>Add a word which is not yet in the arena.</summary>
+    /// <returns>The word id of the added word.</returns>
+    public int add(String word, long count) {
+        if (size == counts.length) {
+            int capacity = size + (size >> 1);
+            counts = Arrays.copyOf(counts, capacity);
+            offsets = Arrays.copyOf(offsets, capacity + 1);
+        }
+        if (charCount + word.length() > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length + (chars.length >> 1), charCount + word.length()));
+        }
+        if (DeleteTable.tableCapacity(size + 1) > table.length) rehash(table.length << 1);
+
+        int id = size++;
+        word.getChars(0, word.length(), chars, charCount);
+        charCount += word.length();
+        offsets[id + 1] = charCount;
+        counts[id] = count;
+
+        int slot = DeleteTable.mix(word.hashCode()) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = id + 1;
+        return id;
+    }
+
+    /// <summary>Update the frequency count of a word id.</summary>
+    public void setCount(int id, long count) {
+        counts[id] = count;
+    }
+
+    /// <summary>Remove a word id. The id stays allocated so deletes pointing to it remain
+    /// valid, but the word can no longer be found.</summary>
+    public void remove(int id) {
+        counts[id] = -1;
+    }
+
+    /// <summary>Gets the sum of the frequency counts of all words.</summary>
+    public long totalCount() {
+        long total = 0;
+        for (int id = 0; id < size; id++) {
+            if (counts[id] > 0) total += counts[id];
+        }
+        return total;
+    }
+
+    private boolean equals(int id, CharSequence word) {
+        int start = offsets[id];
+        int len = offsets[id + 1] - start;
+        if (len != word.length()) return false;
+        for (int i = 0; i < len; i++) {
+            if (chars[start + i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = DeleteTable.mix(hash(chars, offsets[id], offsets[id + 1])) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    // The same hash as String.hashCode, so Strings can use their cached hash
+    static int hash(CharSequence word) {
+        if (word instanceof String) return word.hashCode();
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) hash = 31 * hash + word.charAt(i);
+        return hash;
+    }
+
+    static int hash(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) hash = 31 * hash + chars[i];
+        return hash;
+    }
+}
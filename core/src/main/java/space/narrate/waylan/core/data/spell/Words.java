@@ -0,0 +1,26 @@
+package space.narrate.waylan.core.data.spell;
+
+/// <summary>Read access to the words of a SymSpell dictionary.</summary>
+/// <remarks>Words are addressed by a dense int word id, which is what the deletes of a
+/// dictionary point to. A removed word keeps its id, but reports a count of -1 and can no
+/// longer be found.</remarks>
+public interface Words {
+    /// <summary>Gets the number of word ids, including those of removed words.</summary>
+    int size();
+
+    /// <summary>Find the word id of a word.</summary>
+    /// <returns>The word id, or -1 if the word is not in the dictionary.</returns>
+    int find(CharSequence word);
+
+    /// <summary>Gets the frequency count of a word id, or -1 if the word has been removed.</summary>
+    long count(int id);
+
+    /// <summary>Gets the length of a word id.</summary>
+    int length(int id);
+
+    /// <summary>Gets a char of a word id.</summary>
+    char charAt(int id, int index);
+
+    /// <summary>Gets the word for a word id.</summary>
+    String get(int id);
+}
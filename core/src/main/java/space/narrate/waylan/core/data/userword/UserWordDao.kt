@@ -0,0 +1,102 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.lifecycle.LiveData
+import androidx.room.Dao
+import androidx.room.Insert
+import androidx.room.OnConflictStrategy
+import androidx.room.Query
+import androidx.room.Transaction
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+
+@Dao
+abstract class UserWordDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    abstract suspend fun insertAll(entries: List<UserWordEntry>)
+
+    @Query("SELECT * FROM user_words WHERE uid = :uid AND id = :id")
+    abstract suspend fun getImmediate(uid: String, id: String): UserWordEntry?
+
+    @Query("SELECT * FROM user_words WHERE uid = :uid AND id IN (:ids)")
+    abstract suspend fun getAllImmediate(uid: String, ids: List<String>): List<UserWordEntry>
+
+    /**
+     * Get the user's most recently viewed words, read in order from the (uid, recent, modified)
+     * index.
+     */
+    @Query("""
+        SELECT * FROM user_words
+        WHERE uid = :uid AND recent = 1
+        ORDER BY modified DESC
+        LIMIT :limit
+    """)
+    abstract fun getRecent(uid: String, limit: Long): LiveData<List<UserWordEntry>>
+
+    /**
+     * Get the user's most recently modified favorites, read in order from the
+     * (uid, favorited, modified) index.
+     */
+    @Query("""
+        SELECT * FROM user_words
+        WHERE uid = :uid AND favorited = 1
+        ORDER BY modified DESC
+        LIMIT :limit
+    """)
+    abstract fun getFavorited(uid: String, limit: Long): LiveData<List<UserWordEntry>>
+
+    @Query("""
+        SELECT * FROM user_words
+        WHERE uid = :uid AND recent = 1 AND modified > :after AND modified <= :upTo
+    """)
+    abstract suspend fun getRecentBetween(uid: String, after: Long, upTo: Long): List<UserWordEntry>
+
+    @Query("""
+        SELECT * FROM user_words
+        WHERE uid = :uid AND favorited = 1 AND modified > :after AND modified <= :upTo
+    """)
+    abstract suspend fun getFavoritedBetween(
+        uid: String,
+        after: Long,
+        upTo: Long
+    ): List<UserWordEntry>
+
+    /**
+     * Insert [entries] of a single user, each replacing the stored entry only if it was modified
+     * at the same time or later, so an older copy never overwrites a newer one.
+     */
+    @Transaction
+    open suspend fun reconcile(uid: String, entries: List<UserWordEntry>) {
+        val stored = getAllImmediate(uid, entries.map { it.id }).associateBy { it.id }
+        val newer = entries.filter { entry ->
+            stored[entry.id]?.let { entry.modified >= it.modified } ?: true
+        }
+        if (newer.isNotEmpty()) insertAll(newer)
+    }
+
+    /**
+     * Reconcile [entries], a page of a user's words of [type] read from Firestore, which holds
+     * every word of [type] modified after [after] and up to [upTo]. Stored words of [type] in that
+     * range which aren't in the page have since lost [type], so it's cleared from them.
+     */
+    @Transaction
+    open suspend fun reconcilePage(
+        uid: String,
+        type: UserWordType,
+        entries: List<UserWordEntry>,
+        after: Long,
+        upTo: Long
+    ) {
+        reconcile(uid, entries)
+        val ids = entries.map { it.id }.toSet()
+        val stale = when (type) {
+            UserWordType.RECENT -> getRecentBetween(uid, after, upTo)
+                .filterNot { it.id in ids }
+                .map { it.copy(recent = false) }
+            UserWordType.FAVORITED -> getFavoritedBetween(uid, after, upTo)
+                .filterNot { it.id in ids }
+                .map { it.copy(favorited = false) }
+            UserWordType.EDITED -> emptyList()
+        }
+        if (stale.isNotEmpty()) insertAll(stale)
+    }
+}
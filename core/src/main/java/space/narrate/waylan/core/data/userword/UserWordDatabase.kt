@@ -0,0 +1,50 @@
+package space.narrate.waylan.core.data.userword
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import androidx.room.Database
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.TypeConverters
+
+/**
+ * Database which acts as a local mirror of the user's [UserWordEntry]s in Firestore. Recent and
+ * favorited words are read from here, so they show straight away on a cold start or without a
+ * connection, while [UserWordMirror] keeps it in sync with Firestore in the background.
+ *
+ * Everything here can be fetched from Firestore again, so it's rebuilt rather than migrated.
+ */
+@Database(
+    entities = [
+        UserWordEntry::class
+    ],
+    version = 1
+)
+@TypeConverters(UserWordTypeConverters::class)
+abstract class UserWordDatabase : RoomDatabase() {
+
+    abstract fun userWordDao(): UserWordDao
+
+    companion object {
+
+        @VisibleForTesting
+        private const val DATABASE_NAME = "user-word-db"
+
+        @Volatile
+        private var instance: UserWordDatabase? = null
+
+        fun getInstance(context: Context): UserWordDatabase =
+            instance ?: synchronized(this) {
+                instance ?: (buildDatabase(context.applicationContext, DATABASE_NAME)).also {
+                    instance = it
+                }
+            }
+
+        private fun buildDatabase(context: Context, dbName: String): UserWordDatabase {
+            return Room
+                .databaseBuilder(context, UserWordDatabase::class.java, dbName)
+                .fallbackToDestructiveMigration()
+                .build()
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.room.Entity
+import androidx.room.Index
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+import java.util.*
+
+/**
+ * A local copy of a [UserWord], kept by [UserWordMirror].
+ *
+ * [UserWord.types] are stored as a column per type, and indexed with [modified] so the most
+ * recent or favorited words of a user are read straight from an index in order.
+ *
+ * @property uid The user the [UserWord] belongs to
+ * @property modified [UserWord.modified] in milliseconds, used to keep whichever of a local and
+ *  a Firestore copy was modified last
+ */
+@Entity(
+    tableName = "user_words",
+    primaryKeys = ["uid", "id"],
+    indices = [
+        Index("uid", "recent", "modified"),
+        Index("uid", "favorited", "modified")
+    ]
+)
+data class UserWordEntry(
+    val uid: String,
+    val id: String,
+    val word: String,
+    val modified: Long,
+    val recent: Boolean,
+    val favorited: Boolean,
+    val partOfSpeechPreview: Map<String, String>,
+    val defPreview: Map<String, String>,
+    val synonymPreview: Map<String, String>,
+    val labelsPreview: Map<String, String>
+) {
+
+    fun toUserWord(): UserWord {
+        val types = mutableMapOf<String, Boolean>()
+        if (recent) types[UserWordType.RECENT.name] = true
+        if (favorited) types[UserWordType.FAVORITED.name] = true
+        return UserWord(
+            id,
+            word,
+            modified = Date(modified),
+            types = types,
+            partOfSpeechPreview = partOfSpeechPreview.toMutableMap(),
+            defPreview = defPreview.toMutableMap(),
+            synonymPreview = synonymPreview.toMutableMap(),
+            labelsPreview = labelsPreview.toMutableMap()
+        )
+    }
+
+    companion object {
+        fun fromUserWord(uid: String, userWord: UserWord): UserWordEntry {
+            return UserWordEntry(
+                uid,
+                userWord.id,
+                userWord.word,
+                userWord.modified.time,
+                userWord.types[UserWordType.RECENT.name] == true,
+                userWord.types[UserWordType.FAVORITED.name] == true,
+                userWord.partOfSpeechPreview,
+                userWord.defPreview,
+                userWord.synonymPreview,
+                userWord.labelsPreview
+            )
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MediatorLiveData
+import com.google.firebase.firestore.Query
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import space.narrate.waylan.core.data.Result
+import space.narrate.waylan.core.data.firestore.FirestoreStore
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+import space.narrate.waylan.core.data.firestore.util.FirestoreListenerRegistry
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import space.narrate.waylan.core.util.isMoreThanOneMinuteAgo
+import java.util.Date
+
+/**
+ * A local mirror of the user's recent and favorited [UserWord]s, which lists are read from
+ * instead of straight from Firestore.
+ *
+ * Reading a list returns the words stored in [db] straight away, while the first page of the
+ * matching Firestore query is listened to in the background and its changes reconciled into
+ * [db]. Older pages are loaded once, as the list is scrolled, and reconciled the same way, with
+ * any mirrored word in a page's range which the page no longer holds losing the page's type. Words
+ * the user views or favorites are written to [db] immediately, ahead of the write to Firestore,
+ * whose snapshot then reconciles with them. Whichever copy of a word was modified last is kept.
+ */
+class UserWordMirror(
+    private val db: UserWordDatabase,
+    private val wordsetDb: WordsetDatabase,
+    private val firestoreStore: FirestoreStore,
+    private val listeners: FirestoreListenerRegistry,
+    private val ioDispatcher: CoroutineDispatcher
+) : CoroutineScope by CoroutineScope(ioDispatcher) {
+
+    companion object {
+        const val DEFAULT_LIMIT = 25L
+    }
+
+    // Local writes read and then replace an entry, so they're made one at a time
+    private val writeMutex = Mutex()
+
+    fun getRecents(uid: String, limit: Long?): LiveData<List<UserWord>> {
+        return mirror(
+            uid,
+            UserWordType.RECENT,
+            firestoreStore.getUserWordsRecentQuery(uid, DEFAULT_LIMIT),
+            db.userWordDao().getRecent(uid, limit ?: DEFAULT_LIMIT)
+        )
+    }
+
+    fun getFavorites(uid: String, limit: Long?): LiveData<List<UserWord>> {
+        return mirror(
+            uid,
+            UserWordType.FAVORITED,
+            firestoreStore.getUserWordsFavoriteQuery(uid, DEFAULT_LIMIT),
+            db.userWordDao().getFavorited(uid, limit ?: DEFAULT_LIMIT)
+        )
+    }
+
+    /**
+     * Load the [limit] recent words from [from] on into the mirror, which then shows them in any
+     * list of recents long enough to hold them.
+     */
+    suspend fun loadRecentsPage(uid: String, from: UserWord, limit: Long): Result<List<UserWord>> {
+        val page = firestoreStore.getUserWordsRecentPage(uid, from, limit)
+        return reconcile(uid, UserWordType.RECENT, from, limit, page)
+    }
+
+    /**
+     * Load the [limit] favorites from [from] on into the mirror, which then shows them in any
+     * list of favorites long enough to hold them.
+     */
+    suspend fun loadFavoritesPage(
+        uid: String,
+        from: UserWord,
+        limit: Long
+    ): Result<List<UserWord>> {
+        val page = firestoreStore.getUserWordsFavoritePage(uid, from, limit)
+        return reconcile(uid, UserWordType.FAVORITED, from, limit, page)
+    }
+
+    // A page holds every word of type modified up to from's time and, if it's full, after its
+    // last word's time. Words sharing the last word's time may continue on the next page.
+    private suspend fun reconcile(
+        uid: String,
+        type: UserWordType,
+        from: UserWord,
+        limit: Long,
+        page: Result<List<UserWord>>
+    ): Result<List<UserWord>> {
+        if (page is Result.Success) {
+            val entries = page.data.map { UserWordEntry.fromUserWord(uid, it) }
+            val after = if (entries.size >= limit) entries.last().modified else Long.MIN_VALUE
+            db.userWordDao().reconcilePage(uid, type, entries, after, from.modified.time)
+        }
+        return page
+    }
+
+    /**
+     * Make the word with [id] recent in the mirror, ahead of it being written to Firestore. A word
+     * which is already recent and was modified in the last minute is left as it is, so viewing a
+     * word again and again doesn't rewrite it each time.
+     *
+     * @return Whether the word was made recent, and so should be written to Firestore
+     */
+    suspend fun setRecent(uid: String, id: String): Boolean {
+        return write(uid, id) {
+            if (recent && !Date(modified).isMoreThanOneMinuteAgo) null else copy(recent = true)
+        }
+    }
+
+    /**
+     * Favorite or unfavorite the word with [id] in the mirror, which also makes it recent, ahead
+     * of it being written to Firestore.
+     */
+    fun setFavorite(uid: String, id: String, favorite: Boolean) {
+        launch { write(uid, id) { copy(recent = true, favorited = favorite) } }
+    }
+
+    private fun mirror(
+        uid: String,
+        type: UserWordType,
+        query: Query,
+        local: LiveData<List<UserWordEntry>>
+    ): LiveData<List<UserWord>> {
+        val sync = listeners.share(query, UserWordSyncLiveData::class.java) {
+            UserWordSyncLiveData(query, type, DEFAULT_LIMIT, uid, db.userWordDao(), ioDispatcher)
+        }
+        return MediatorLiveData<List<UserWord>>().apply {
+            // Keep the query listened to while the list is observed
+            addSource(sync) { }
+            addSource(local) { entries -> value = entries.map { it.toUserWord() } }
+        }
+    }
+
+    // Apply update to the entry for id, unless it returns null. Returns whether it was applied.
+    private suspend fun write(
+        uid: String,
+        id: String,
+        update: UserWordEntry.() -> UserWordEntry?
+    ): Boolean {
+        return writeMutex.withLock {
+            val dao = db.userWordDao()
+            val entry = dao.getImmediate(uid, id) ?: fromWordset(uid, id) ?: return false
+            val updated = entry.update() ?: return false
+            dao.insertAll(listOf(updated.copy(modified = System.currentTimeMillis())))
+            true
+        }
+    }
+
+    // A new entry for a word the mirror doesn't have yet, with the previews it's written to
+    // Firestore with
+    private fun fromWordset(uid: String, id: String): UserWordEntry? {
+        val word = wordsetDb.wordDao().get(id) ?: return null
+        val previews = UserWordPreviews.fromWordset(wordsetDb.meaningDao().get(id).orEmpty())
+        return UserWordEntry(
+            uid,
+            id,
+            word.word,
+            System.currentTimeMillis(),
+            recent = false,
+            favorited = false,
+            partOfSpeechPreview = previews.partOfSpeech,
+            defPreview = previews.def,
+            synonymPreview = previews.synonym,
+            labelsPreview = previews.labels
+        )
+    }
+}
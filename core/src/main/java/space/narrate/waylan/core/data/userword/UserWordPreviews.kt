@@ -0,0 +1,33 @@
+package space.narrate.waylan.core.data.userword
+
+import space.narrate.waylan.core.data.firestore.DataOwners
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.wordset.Meaning
+
+/**
+ * The previews a [UserWord] holds of a WordSet word's meanings, so lists of [UserWord]s show
+ * definitions and the like without a subsequent query. Each preview is owned by
+ * [DataOwners.WORDSET].
+ *
+ * Previews are taken from WordSet the same way whether a word is mirrored locally or written to
+ * Firestore, so both copies agree.
+ */
+data class UserWordPreviews(
+    val partOfSpeech: Map<String, String>,
+    val def: Map<String, String>,
+    val synonym: Map<String, String>,
+    val labels: Map<String, String>
+) {
+
+    companion object {
+        fun fromWordset(meanings: List<Meaning>): UserWordPreviews {
+            val owner = DataOwners.WORDSET.name
+            return UserWordPreviews(
+                meanings.associate { it.partOfSpeech to owner },
+                meanings.associate { it.def to owner },
+                meanings.flatMap { it.synonyms }.associate { it.synonym to owner },
+                meanings.flatMap { it.labels }.associate { it.name to owner }
+            )
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package space.narrate.waylan.core.data.userword
+
+import com.google.firebase.firestore.DocumentChange
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.ListenerRegistration
+import com.google.firebase.firestore.Query
+import com.google.firebase.firestore.QuerySnapshot
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.launch
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+import space.narrate.waylan.core.data.firestore.util.SnapshotListenerLiveData
+import java.util.Date
+
+/**
+ * Copies the [UserWord]s of [uid] matched by [query], the [limit] most recently modified words of
+ * [type], into [dao] for as long as it's observed. It never has a value of its own; observers
+ * read the mirrored words from [dao].
+ *
+ * Only the documents each snapshot adds, modifies or removes are parsed and written. A document
+ * is removed from the query either because it lost [type], which is cleared from its entry, or
+ * because newer words pushed it past [limit], in which case it's still of [type] and left as it
+ * is.
+ */
+class UserWordSyncLiveData(
+    private val query: Query,
+    private val type: UserWordType,
+    private val limit: Long,
+    private val uid: String,
+    private val dao: UserWordDao,
+    private val ioDispatcher: CoroutineDispatcher
+) : SnapshotListenerLiveData<Unit>() {
+
+    override fun addSnapshotListener(): ListenerRegistration {
+        return query.addSnapshotListener { querySnapshot, firebaseFirestoreException ->
+            if (firebaseFirestoreException != null) {
+                firebaseFirestoreException.printStackTrace()
+                return@addSnapshotListener
+            }
+            if (querySnapshot == null) return@addSnapshotListener
+
+            val (removed, changed) = querySnapshot.documentChanges
+                .partition { it.type == DocumentChange.Type.REMOVED }
+            val lostType = removed.map { it.document }.filterNot { isPastLimit(querySnapshot, it) }
+            if (changed.isEmpty() && lostType.isEmpty()) return@addSnapshotListener
+
+            launch(ioDispatcher) {
+                val entries = changed.mapNotNull { toEntry(it.document) } +
+                    lostType.mapNotNull { toEntry(it)?.withoutType() }
+                dao.reconcile(uid, entries)
+            }
+        }
+    }
+
+    // Whether the removed document was pushed out of a full page by newer words
+    private fun isPastLimit(snapshot: QuerySnapshot, removed: DocumentSnapshot): Boolean {
+        if (snapshot.size() < limit) return false
+        val last = snapshot.documents.last().modified() ?: return false
+        val modified = removed.modified() ?: return false
+        return !modified.after(last)
+    }
+
+    private fun DocumentSnapshot.modified(): Date? {
+        return getDate("modified", DocumentSnapshot.ServerTimestampBehavior.ESTIMATE)
+    }
+
+    private fun toEntry(document: DocumentSnapshot): UserWordEntry? {
+        return document.toObject(UserWord::class.java, DocumentSnapshot.ServerTimestampBehavior.ESTIMATE)
+            ?.let { UserWordEntry.fromUserWord(uid, it) }
+    }
+
+    private fun UserWordEntry.withoutType(): UserWordEntry = when (type) {
+        UserWordType.RECENT -> copy(recent = false)
+        UserWordType.FAVORITED -> copy(favorited = false)
+        UserWordType.EDITED -> this
+    }
+}
@@ -0,0 +1,28 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.room.TypeConverter
+import space.narrate.waylan.core.util.SeparatedText
+import space.narrate.waylan.core.util.SeparatedText.UNIT_SEPARATOR
+
+/**
+ * Type converters for unsupported types in Room objects
+ *
+ * A [UserWordEntry]'s previews are stored as [SeparatedText], a record per entry of its key and
+ * value.
+ */
+object UserWordTypeConverters {
+
+    @TypeConverter
+    @JvmStatic
+    fun toStringMap(value: String): Map<String, String> {
+        return SeparatedText.split(value).associate {
+            it.substringBefore(UNIT_SEPARATOR) to it.substringAfter(UNIT_SEPARATOR, "")
+        }
+    }
+
+    @TypeConverter
+    @JvmStatic
+    fun fromStringMap(value: Map<String, String>): String {
+        return SeparatedText.join(value.entries) { SeparatedText.record(it.key, it.value) }
+    }
+}
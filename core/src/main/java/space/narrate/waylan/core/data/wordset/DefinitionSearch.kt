@@ -0,0 +1,131 @@
+package space.narrate.waylan.core.data.wordset
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Locale
+import kotlin.math.ln
+
+/**
+ * A reverse dictionary search, which finds words by a description of what they mean, like
+ * "fear of heights" for "acrophobia".
+ *
+ * A description is turned into a query of [MeaningFts] matching any of its words, and matches
+ * are ranked by BM25. FTS4 has no ranking function of its own, so each match's score is computed
+ * from its matchinfo. Every match has to be read to be ranked, so words which match too many
+ * meanings to read quickly are left out of the query. They'd add little to a score anyway, since
+ * BM25 weighs a word by how rare it is.
+ */
+object DefinitionSearch {
+
+    const val MAX_RESULTS = 25
+
+    // The most meanings a word can match and still be queried, unless it's the rarest word of a
+    // description
+    const val MAX_TERM_MATCHES = 1_000
+
+    // The most matches read for a single query, however many words it has
+    const val MAX_CANDIDATES = 5_000
+
+    /**
+     * The matchinfo format [MeaningDao.match] selects: the number of phrases and columns, the
+     * number of rows, the average and this row's number of tokens in each column, and the hits
+     * of each phrase in each column of this row and of every row.
+     */
+    const val MATCH_INFO = "pcnalx"
+
+    // BM25 term frequency saturation and length normalization
+    private const val K1 = 1.2
+    private const val B = 0.75
+
+    // The weight of each column of MeaningFts. A description rarely contains the word it
+    // describes, so matches of the headword count for less.
+    private val COLUMN_WEIGHTS = doubleArrayOf(0.5, 1.0, 1.0)
+
+    // Words which carry no meaning of their own in a description
+    private val STOP_WORDS = setOf(
+        "a", "an", "and", "are", "as", "at", "be", "being", "by", "for", "from", "in", "is",
+        "it", "its", "means", "meaning", "of", "on", "or", "someone", "something", "that", "the",
+        "to", "which", "who", "with", "word"
+    )
+
+    /**
+     * Build a full-text query matching any of the words of [description].
+     *
+     * @return The query, or null if the description has no words to match
+     */
+    fun toMatchQuery(description: String): String? = toMatchQuery(toTerms(description))
+
+    /**
+     * Build a full-text query matching any of [terms].
+     *
+     * @return The query, or null if there are no terms
+     */
+    fun toMatchQuery(terms: List<String>): String? {
+        return if (terms.isEmpty()) null else terms.joinToString(" OR ")
+    }
+
+    /**
+     * The distinct words of [description] which carry meaning, each a full-text term.
+     */
+    fun toTerms(description: String): List<String> {
+        return description.toLowerCase(Locale.ROOT)
+            .split(Regex("[^\\p{L}\\p{N}]+"))
+            .filter { it.isNotEmpty() && it !in STOP_WORDS }
+            .distinct()
+    }
+
+    /**
+     * Pick the terms worth querying from [matchCounts], the number of meanings each term
+     * matches: every term matching at most [MAX_TERM_MATCHES], or if there are none, the rarest
+     * term which matches anything.
+     */
+    fun selectTerms(matchCounts: Map<String, Int>): List<String> {
+        val rare = matchCounts.filterValues { it in 1..MAX_TERM_MATCHES }.keys
+        if (rare.isNotEmpty()) return rare.toList()
+        return listOfNotNull(matchCounts.filterValues { it > 0 }.minByOrNull { it.value }?.key)
+    }
+
+    /**
+     * Order the words of [matches] from best to worst match, by the score of each word's best
+     * matching meaning.
+     */
+    fun rank(matches: List<MeaningMatch>, maxResults: Int = MAX_RESULTS): List<String> {
+        return matches
+            .groupBy { it.parentWord }
+            .map { (word, meanings) -> word to meanings.maxOf { bm25(it.matchInfo) } }
+            .sortedByDescending { it.second }
+            .take(maxResults)
+            .map { it.first }
+    }
+
+    /**
+     * Score a match by Okapi BM25, summing the score of each phrase in each column. Inverse
+     * document frequencies are kept positive, so a phrase found in most rows never lowers a
+     * score.
+     */
+    fun bm25(matchInfo: ByteArray): Double {
+        val info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phrases = info[0]
+        val columns = info[1]
+        val rows = info[2].toDouble()
+        val averageLengths = 3
+        val lengths = averageLengths + columns
+        val hits = lengths + columns
+
+        var score = 0.0
+        for (phrase in 0 until phrases) {
+            for (column in 0 until minOf(columns, COLUMN_WEIGHTS.size)) {
+                val x = hits + 3 * (phrase * columns + column)
+                val frequency = info[x].toDouble()
+                if (frequency == 0.0) continue
+                val rowsWithHits = info[x + 2].toDouble()
+                val idf = ln(1 + (rows - rowsWithHits + 0.5) / (rowsWithHits + 0.5))
+                val averageLength = info[averageLengths + column].toDouble().coerceAtLeast(1.0)
+                val length = info[lengths + column].toDouble()
+                val norm = K1 * (1 - B + B * length / averageLength)
+                score += COLUMN_WEIGHTS[column] * idf * frequency * (K1 + 1) / (frequency + norm)
+            }
+        }
+        return score
+    }
+}
@@ -0,0 +1,146 @@
+package space.narrate.waylan.core.data.wordset
+
+import java.util.Locale
+
+/**
+ * An in-memory index of WordSet headwords for the queries [WordDao] can only answer by scanning
+ * every row: crossword-style patterns, where `?` stands for any one letter and `*` for any run of
+ * letters, and anagrams.
+ *
+ * Headwords are kept sorted, and sorted again spelled backwards, so a pattern is only matched
+ * against the headwords which start with its literal prefix, like "c" of "c?t", or end with its
+ * literal suffix, like "ology" of "*ology", whichever is longer. Anagrams are grouped by their
+ * letters in sorted order, so "tinsel" and "listen" are both found under "eilnst".
+ *
+ * Matching, comparisons and anagrams ignore case, but headwords are returned as they're spelled
+ * in [Word.word].
+ */
+class HeadwordIndex(headwords: Collection<String>) {
+
+    companion object {
+        const val MAX_RESULTS = 50
+        // How long a pattern may be matched for before returning what's been found so far
+        const val BUDGET_MILLIS = 30L
+
+        // How many headwords are matched between checks of the deadline
+        private const val DEADLINE_STRIDE = 256
+
+        private const val ANY_CHAR = '?'
+        private const val ANY_RUN = '*'
+
+        private fun String.normalized(): String = trim().toLowerCase(Locale.ROOT)
+
+        private fun signature(word: String): String {
+            val letters = word.filter { it.isLetter() }.toCharArray()
+            letters.sort()
+            return String(letters)
+        }
+    }
+
+    // Lower cased headwords and, in the same order, the headwords as they're spelled
+    private class SortedWords(val keys: Array<String>, val words: Array<String>)
+
+    private val forward: SortedWords
+    private val backward: SortedWords
+    private val anagrams: Map<String, List<String>>
+
+    init {
+        val distinct = headwords.distinct()
+        forward = sortedBy(distinct) { it.normalized() }
+        backward = sortedBy(distinct) { it.normalized().reversed() }
+        anagrams = forward.words.groupBy { signature(it.normalized()) }
+    }
+
+    private fun sortedBy(headwords: List<String>, key: (String) -> String): SortedWords {
+        val keyed = headwords.map { key(it) to it }.sortedBy { it.first }
+        return SortedWords(
+            keyed.map { it.first }.toTypedArray(),
+            keyed.map { it.second }.toTypedArray()
+        )
+    }
+
+    /**
+     * Find the headwords matching [pattern], in alphabetical order.
+     *
+     * @return At most [maxResults] headwords. If matching runs past [BUDGET_MILLIS], only the
+     *  headwords matched by then.
+     */
+    fun match(
+        pattern: String,
+        maxResults: Int = MAX_RESULTS,
+        budgetMillis: Long = BUDGET_MILLIS
+    ): List<String> {
+        val deadline = System.nanoTime() + budgetMillis * 1_000_000L
+        val normalized = pattern.normalized()
+        val prefix = normalized.takeWhile { it != ANY_CHAR && it != ANY_RUN }
+        val suffix = normalized.takeLastWhile { it != ANY_CHAR && it != ANY_RUN }
+
+        // Match from whichever end narrows the headwords down the most
+        val (sorted, literal, target) = if (prefix.length >= suffix.length) {
+            Triple(forward, prefix, normalized)
+        } else {
+            Triple(backward, suffix.reversed(), normalized.reversed())
+        }
+
+        // Headwords matched backwards aren't in alphabetical order, so every one is matched and
+        // sorted before the first maxResults are taken
+        val limit = if (sorted === forward) maxResults else Int.MAX_VALUE
+        val results = mutableListOf<String>()
+        val end = lowerBound(sorted.keys, literal + Char.MAX_VALUE)
+        var i = lowerBound(sorted.keys, literal)
+        while (i < end && results.size < limit) {
+            if (i % DEADLINE_STRIDE == 0 && System.nanoTime() > deadline) break
+            if (matches(sorted.keys[i], target)) results.add(sorted.words[i])
+            i++
+        }
+        return if (sorted === forward) results else results.sortedBy { it.normalized() }.take(maxResults)
+    }
+
+    /**
+     * Find the headwords spelled with exactly the letters of [word], other than [word] itself,
+     * in alphabetical order.
+     */
+    fun anagrams(word: String, maxResults: Int = MAX_RESULTS): List<String> {
+        val normalized = word.normalized()
+        val letters = signature(normalized)
+        if (letters.isEmpty()) return emptyList()
+        return anagrams[letters].orEmpty()
+            .filter { it.normalized() != normalized }
+            .take(maxResults)
+    }
+
+    // The index of the first key which isn't less than key
+    private fun lowerBound(keys: Array<String>, key: String): Int {
+        var low = 0
+        var high = keys.size
+        while (low < high) {
+            val mid = (low + high) ushr 1
+            if (keys[mid] < key) low = mid + 1 else high = mid
+        }
+        return low
+    }
+
+    // Whether word matches pattern, backtracking to the last ANY_RUN on a mismatch
+    private fun matches(word: String, pattern: String): Boolean {
+        var w = 0
+        var p = 0
+        var run = -1
+        var runStart = 0
+        while (w < word.length) {
+            if (p < pattern.length && (pattern[p] == ANY_CHAR || pattern[p] == word[w])) {
+                w++
+                p++
+            } else if (p < pattern.length && pattern[p] == ANY_RUN) {
+                run = p++
+                runStart = w
+            } else if (run >= 0) {
+                p = run + 1
+                w = ++runStart
+            } else {
+                return false
+            }
+        }
+        while (p < pattern.length && pattern[p] == ANY_RUN) p++
+        return p == pattern.length
+    }
+}
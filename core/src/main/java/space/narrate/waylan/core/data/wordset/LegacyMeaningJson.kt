@@ -0,0 +1,49 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.gson.JsonArray
+import com.google.gson.JsonObject
+import com.google.gson.JsonParseException
+import com.google.gson.JsonParser
+
+/**
+ * Reads the json [Meaning.examples], [Meaning.synonyms] and [Meaning.labels] were stored as
+ * before [WordsetTypeConverters] stored them as separated text, dropping the timestamps each
+ * element used to carry. Only used to migrate the shipped meanings.
+ */
+object LegacyMeaningJson {
+
+    private val parser = JsonParser()
+
+    fun toExampleList(value: String?): List<Example> {
+        return objects(value).mapNotNull { it.string("example") }.map { Example(it) }
+    }
+
+    fun toSynonymList(value: String?): List<Synonym> {
+        return objects(value).mapNotNull { it.string("synonym") }.map { Synonym(it) }
+    }
+
+    fun toLabelList(value: String?): List<Label> {
+        return objects(value).mapNotNull {
+            val name = it.string("name") ?: return@mapNotNull null
+            Label(name, it.boolean("isDialect") ?: false)
+        }
+    }
+
+    private fun objects(value: String?): List<JsonObject> {
+        if (value.isNullOrEmpty()) return emptyList()
+        val array: JsonArray = try {
+            parser.parse(value).takeIf { it.isJsonArray }?.asJsonArray ?: return emptyList()
+        } catch (e: JsonParseException) {
+            return emptyList()
+        }
+        return array.filter { it.isJsonObject }.map { it.asJsonObject }
+    }
+
+    private fun JsonObject.string(name: String): String? {
+        return get(name)?.takeIf { it.isJsonPrimitive }?.asString
+    }
+
+    private fun JsonObject.boolean(name: String): Boolean? {
+        return get(name)?.takeIf { it.isJsonPrimitive }?.asBoolean
+    }
+}
@@ -21,6 +21,26 @@ interface MeaningDao {
     @Query("SELECT * FROM meanings WHERE parentWord = :word")
     fun get(word: String): List<Meaning>?
 
+    /**
+     * Count the meanings matching a full-text [term], reading only the index.
+     */
+    @Query("SELECT COUNT(*) FROM meanings_fts WHERE meanings_fts MATCH :term")
+    fun countMatches(term: String): Int
+
+    /**
+     * Find the meanings matching a full-text [query] of their headword, definition and synonyms,
+     * with the matchinfo needed to rank them. See [DefinitionSearch]. Matches come back in docid
+     * order rather than best first, so [query] should only hold terms rare enough for [limit]
+     * to be a safety net, not a cut. See [DefinitionSearch.selectTerms].
+     */
+    @Query("""
+        SELECT parentWord, matchinfo(meanings_fts, '${DefinitionSearch.MATCH_INFO}') AS matchInfo
+        FROM meanings_fts
+        WHERE meanings_fts MATCH :query
+        LIMIT :limit
+    """)
+    fun match(query: String, limit: Int): List<MeaningMatch>
+
     @Query("DELETE FROM meanings")
     fun deleteAll()
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package space.narrate.waylan.core.data.wordset
+
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+
+/**
+ * A full-text index of each [Meaning]'s headword, definition and synonyms, so meanings can be
+ * found by what they describe rather than by the word they define. See [DefinitionSearch].
+ *
+ * The index only holds the tokens of [meanings], which it reads its content from, and is kept
+ * in sync with it by triggers. Tokens are stemmed, so "heights" also matches "height".
+ */
+@Fts4(contentEntity = Meaning::class, tokenizer = FtsOptions.TOKENIZER_PORTER)
+@Entity(tableName = "meanings_fts")
+data class MeaningFts(
+    val parentWord: String,
+    val def: String,
+    val synonyms: String
+)
@@ -0,0 +1,23 @@
+package space.narrate.waylan.core.data.wordset
+
+/**
+ * A [Meaning] matched by a full-text query of [MeaningFts].
+ *
+ * @property matchInfo The FTS4 matchinfo of the match, in [DefinitionSearch.MATCH_INFO] format
+ */
+data class MeaningMatch(
+    val parentWord: String,
+    val matchInfo: ByteArray
+) {
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is MeaningMatch) return false
+        return parentWord == other.parentWord && matchInfo.contentEquals(other.matchInfo)
+    }
+
+    override fun hashCode(): Int {
+        var result = parentWord.hashCode()
+        result = 31 * result + matchInfo.contentHashCode()
+        return result
+    }
+}
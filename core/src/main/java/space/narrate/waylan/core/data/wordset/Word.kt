@@ -1,15 +1,34 @@
 package space.narrate.waylan.core.data.wordset
 
+import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
+import java.util.Locale
 import org.threeten.bp.OffsetDateTime
 
-@Entity(tableName = "words")
+/**
+ * A WordSet headword.
+ *
+ * @property popularity How often [word] is used, from [WordPopularity], or
+ *  [WordPopularity.UNKNOWN] if it hasn't been counted.
+ * @property normalizedWord [word] lower cased, which prefix searches are run against so they
+ *  can use an index and ignore case. See [WordDao.loadImmediate].
+ */
+@Entity(
+    tableName = "words",
+    indices = [(Index("normalizedWord", "popularity"))]
+)
 data class Word(
     @PrimaryKey
     val word: String,
     val popularity: Int,
     val created: OffsetDateTime,
-    val modified: OffsetDateTime
-)
-
+    val modified: OffsetDateTime,
+    @ColumnInfo(defaultValue = "")
+    val normalizedWord: String = normalize(word)
+) {
+    companion object {
+        fun normalize(word: String): String = word.toLowerCase(Locale.ROOT)
+    }
+}
@@ -29,8 +29,36 @@ interface WordDao {
     @Query("SELECT * FROM words ORDER BY word ASC")
     fun getAll(): LiveData<List<Word>>
 
-    @Query("SELECT * FROM words WHERE word LIKE :query COLLATE NOCASE LIMIT 25")
-    fun load(query: String): LiveData<List<Word>>
+    @Query("SELECT word FROM words")
+    fun getAllWords(): List<String>
+
+    /**
+     * Get the most popular words whose [Word.normalizedWord] is in the range [[from], [to]).
+     *
+     * The words in range are ranked using only the (normalizedWord, popularity) index, and just
+     * the top [limit] are then read from the table by rowid.
+     */
+    @Query("""
+        SELECT words.* FROM (
+            SELECT rowid AS id, popularity, normalizedWord FROM words
+            WHERE normalizedWord >= :from AND normalizedWord < :to
+            ORDER BY popularity DESC, normalizedWord
+            LIMIT :limit
+        ) AS top
+        JOIN words ON words.rowid = top.id
+        ORDER BY top.popularity DESC, top.normalizedWord
+    """)
+    suspend fun loadImmediate(from: String, to: String, limit: Int): List<Word>
+
+    /**
+     * Set the popularity of [word] if it's still [WordPopularity.UNKNOWN], so a count from one
+     * source doesn't replace a count from another.
+     */
+    @Query("""
+        UPDATE words SET popularity = :popularity
+        WHERE word = :word AND popularity = 0
+    """)
+    suspend fun setPopularityIfUnknown(word: String, popularity: Int)
 
     @Query("DELETE FROM words")
     fun deleteAll()
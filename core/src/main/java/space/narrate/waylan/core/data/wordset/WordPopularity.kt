@@ -0,0 +1,55 @@
+package space.narrate.waylan.core.data.wordset
+
+import java.io.InputStream
+import kotlin.math.ln
+import kotlin.math.roundToInt
+
+/**
+ * Converts how often a word is used into a [Word.popularity], which prefix searches rank words
+ * by. See [WordDao.loadImmediate].
+ *
+ * Counts, like the SymSpell corpus's 23 billion for "the", don't fit an Int, so popularity is
+ * the natural log of a count scaled by [SCALE]. That keeps the order of counts while leaving
+ * room for words which are only counted elsewhere, like by Wordnik, to fall between them.
+ */
+object WordPopularity {
+
+    // The popularity of words which haven't been counted
+    const val UNKNOWN = 0
+
+    // How many popularity steps there are between counts a factor of e apart
+    private const val SCALE = 1000
+
+    /**
+     * The popularity of a word which has been used [count] times, greater than [UNKNOWN] for
+     * any positive count.
+     */
+    fun fromCount(count: Long): Int {
+        if (count <= 0) return UNKNOWN
+        return (ln(count.toDouble()) * SCALE).roundToInt() + 1
+    }
+
+    /**
+     * Read the popularity of every word in a SymSpell frequency corpus, where each line is a
+     * word and its count separated by a space.
+     *
+     * @return Popularity by [Word.normalize]d word. Lines which can't be read are skipped.
+     */
+    fun readCorpus(
+        input: InputStream,
+        termIndex: Int = 0,
+        countIndex: Int = 1
+    ): Map<String, Int> {
+        val popularity = HashMap<String, Int>()
+        input.bufferedReader().useLines { lines ->
+            lines.forEach { line ->
+                val parts = line.split(' ')
+                val word = parts.getOrNull(termIndex) ?: return@forEach
+                val count = parts.getOrNull(countIndex)?.toLongOrNull() ?: return@forEach
+                val key = Word.normalize(word)
+                popularity[key] = maxOf(popularity[key] ?: UNKNOWN, fromCount(count))
+            }
+        }
+        return popularity
+    }
+}
@@ -7,7 +7,10 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import androidx.room.migration.Migration
 import androidx.sqlite.db.SupportSQLiteDatabase
+import space.narrate.waylan.core.BuildConfig
+import space.narrate.waylan.core.data.spell.SymConfig
 import space.narrate.waylan.core.util.RoomTypeConverters
 
 /**
@@ -16,7 +19,8 @@ import space.narrate.waylan.core.util.RoomTypeConverters
  * fetched (cached) Merriam-Webster entry
  *
  * WordSet (<a>https://github.com/wordset/wordset-dictionary</a>) is db that is shipped with
- * Words, pre-populated and copied on first access by [RoomAsset]
+ * Words, pre-populated, gzipped and copied in the background on first launch by
+ * [WordsetDatabaseInstaller]
  *
  * Merriam-Webster is a db that hold all definitions ever retrieved from the Merriam-Webster API.
  * When searching a word on Words, [WordRepository] immediately returns a LiveData object of mwDao.
@@ -25,13 +29,27 @@ import space.narrate.waylan.core.util.RoomTypeConverters
  * been looked up by immediately returning stored Merriam-Webster words while refreshing the data
  * in the background (and then diffing it with the current displayed data before making any
  * UI changes).
+ *
+ * The shipped database is exported at the current version, which is set in core's build.gradle so
+ * the build can check it. The migrations below bring the version 1 database shipped before it
+ * up to date.
+ *
+ * Meanings are full-text indexed by [MeaningFts]. The version 1 database predates the index, so
+ * it's created and populated from its meanings by [MIGRATION_1_2] once copied.
+ *
+ * Prefix searches run against [Word.normalizedWord], which [MIGRATION_2_3] adds to older words.
+ * [PopularityMigration] ranks them by popularity, which older words don't have.
+ *
+ * Older meanings store their examples, synonyms and labels as json, which [MIGRATION_4_5]
+ * rewrites in the format of [WordsetTypeConverters].
  */
 @Database(
     entities = [
         Word::class,
-        Meaning::class
+        Meaning::class,
+        MeaningFts::class
     ],
-    version = 1)
+    version = BuildConfig.WORDSET_DATABASE_VERSION)
 @TypeConverters(RoomTypeConverters::class, WordsetTypeConverters::class)
 abstract class WordsetDatabase: RoomDatabase() {
 
@@ -51,6 +69,85 @@ abstract class WordsetDatabase: RoomDatabase() {
         @Volatile
         private var instance: WordsetDatabase? = null
 
+        @Volatile
+        private var installer: WordsetDatabaseInstaller? = null
+
+        // Create the full-text index of meanings, with the triggers Room uses to keep an
+        // external content table in sync, and index every meaning already in the database.
+        @VisibleForTesting
+        val MIGRATION_1_2 = object : Migration(1, 2) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `meanings_fts` USING FTS4(`parentWord` TEXT NOT NULL, `def` TEXT NOT NULL, `synonyms` TEXT NOT NULL, tokenize=porter, content=`meanings`)")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meanings_fts_BEFORE_UPDATE BEFORE UPDATE ON `meanings` BEGIN DELETE FROM `meanings_fts` WHERE `docid`=OLD.`rowid`; END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meanings_fts_BEFORE_DELETE BEFORE DELETE ON `meanings` BEGIN DELETE FROM `meanings_fts` WHERE `docid`=OLD.`rowid`; END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meanings_fts_AFTER_UPDATE AFTER UPDATE ON `meanings` BEGIN INSERT INTO `meanings_fts`(`docid`, `parentWord`, `def`, `synonyms`) VALUES (NEW.`rowid`, NEW.`parentWord`, NEW.`def`, NEW.`synonyms`); END")
+                database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_meanings_fts_AFTER_INSERT AFTER INSERT ON `meanings` BEGIN INSERT INTO `meanings_fts`(`docid`, `parentWord`, `def`, `synonyms`) VALUES (NEW.`rowid`, NEW.`parentWord`, NEW.`def`, NEW.`synonyms`); END")
+                database.execSQL("INSERT INTO `meanings_fts`(`meanings_fts`) VALUES ('rebuild')")
+            }
+        }
+
+        // Add and index a lower cased copy of each word. SQLite's lower() only folds ASCII,
+        // which covers the shipped words.
+        @VisibleForTesting
+        val MIGRATION_2_3 = object : Migration(2, 3) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                database.execSQL("ALTER TABLE `words` ADD COLUMN `normalizedWord` TEXT NOT NULL DEFAULT ''")
+                database.execSQL("UPDATE `words` SET `normalizedWord` = lower(`word`)")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_words_normalizedWord` ON `words` (`normalizedWord`)")
+            }
+        }
+
+        // Fill in the popularity of every shipped word which is in the SymSpell corpus, then
+        // replace the normalizedWord index with one which also covers popularity, so prefix
+        // searches can rank words without reading the table.
+        @VisibleForTesting
+        class PopularityMigration(private val context: Context) : Migration(3, 4) {
+            override fun migrate(database: SupportSQLiteDatabase) {
+                val popularity = context.assets.open(SymConfig.defaultCorpusPath).use {
+                    WordPopularity.readCorpus(it, SymConfig.defaultTermIndex, SymConfig.defaultCountIndex)
+                }
+                val update = database.compileStatement("UPDATE `words` SET `popularity` = ? WHERE `normalizedWord` = ?")
+                for ((word, value) in popularity) {
+                    update.bindLong(1, value.toLong())
+                    update.bindString(2, word)
+                    update.executeUpdateDelete()
+                }
+
+                database.execSQL("DROP INDEX IF EXISTS `index_words_normalizedWord`")
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_words_normalizedWord_popularity` ON `words` (`normalizedWord`, `popularity`)")
+            }
+        }
+
+        // Rewrite every meaning's json examples, synonyms and labels as separated text. Meanings
+        // are read a page at a time by id so the cursor isn't reading rows as they're updated.
+        // Updating synonyms also re-indexes them through the meanings_fts triggers.
+        @VisibleForTesting
+        val MIGRATION_4_5 = object : Migration(4, 5) {
+            private val pageSize = 1000
+
+            override fun migrate(database: SupportSQLiteDatabase) {
+                val update = database.compileStatement("UPDATE `meanings` SET `examples` = ?, `synonyms` = ?, `labels` = ? WHERE `id` = ?")
+                var lastId = -1L
+                while (true) {
+                    val page = database.query(
+                        "SELECT `id`, `examples`, `synonyms`, `labels` FROM `meanings` WHERE `id` > ? ORDER BY `id` LIMIT $pageSize",
+                        arrayOf(lastId)
+                    )
+                    val count = page.use { cursor ->
+                        while (cursor.moveToNext()) {
+                            lastId = cursor.getLong(0)
+                            update.bindString(1, WordsetTypeConverters.fromExampleList(LegacyMeaningJson.toExampleList(cursor.getString(1))))
+                            update.bindString(2, WordsetTypeConverters.fromSynonymList(LegacyMeaningJson.toSynonymList(cursor.getString(2))))
+                            update.bindString(3, WordsetTypeConverters.fromLabelList(LegacyMeaningJson.toLabelList(cursor.getString(3))))
+                            update.bindLong(4, lastId)
+                            update.executeUpdateDelete()
+                        }
+                        cursor.count
+                    }
+                    if (count < pageSize) break
+                }
+            }
+        }
 
         fun getInstance(context: Context): WordsetDatabase =
             instance ?: synchronized(this) {
@@ -65,6 +162,21 @@ abstract class WordsetDatabase: RoomDatabase() {
                 }
             }
 
+        /**
+         * Get the installer of the shipped database, which starts copying it the first time
+         * it's created.
+         */
+        fun getInstaller(context: Context): WordsetDatabaseInstaller =
+            installer ?: synchronized(this) {
+                installer ?: WordsetDatabaseInstaller(
+                    context.applicationContext,
+                    if (SHOULD_SEED_DATABASE) null else "databases/$DATABASE_NAME.db",
+                    "$DATABASE_NAME.db"
+                ).also {
+                    installer = it
+                }
+            }
+
         // Used if building the database instead of copying an included .db file
         private fun seedAndBuildDatabase(context: Context, dbName: String): WordsetDatabase {
             return Room
@@ -81,7 +193,8 @@ abstract class WordsetDatabase: RoomDatabase() {
         private fun buildDatabase(context: Context, dbName: String): WordsetDatabase {
             return Room
                 .databaseBuilder(context, WordsetDatabase::class.java, "$dbName.db")
-                .createFromAsset("databases/$dbName.db")
+                .openHelperFactory(getInstaller(context).openHelperFactory())
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, PopularityMigration(context), MIGRATION_4_5)
                 .build()
         }
     }
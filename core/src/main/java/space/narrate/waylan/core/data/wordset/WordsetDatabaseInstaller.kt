@@ -0,0 +1,184 @@
+package space.narrate.waylan.core.data.wordset
+
+import android.content.Context
+import android.util.Log
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteOpenHelper
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.launch
+import java.io.File
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+import java.util.concurrent.CountDownLatch
+import java.util.zip.GZIPInputStream
+import kotlin.coroutines.CoroutineContext
+
+/**
+ * Installs the prebuilt WordSet database, shipped gzipped next to [assetPath], in the background
+ * the first time the app is launched. Builds which don't ship the gzipped database copy the
+ * uncompressed one at [assetPath] instead.
+ *
+ * Room's createFromAsset copies its asset the first time the database is opened, on whichever
+ * thread happens to query it first, which blocks the first search until the whole database is
+ * copied. Instead, the asset is inflated into [databaseName] as soon as the installer is created,
+ * reporting [progress] as it goes, and then opened once so Room's migrations run before anything
+ * needs it. Until then, [isInstalled] is false and clients should avoid querying the database.
+ *
+ * The database's [openHelperFactory] waits for the asset to be copied before opening it, so
+ * queries which can't wait for [isInstalled] are never run against an empty database. If the
+ * copy failed, opening the database tries it again rather than failing for good.
+ *
+ * @param assetPath The database, or null if the database shouldn't be copied, like when it's
+ *  being seeded
+ */
+class WordsetDatabaseInstaller(
+    private val context: Context,
+    private val assetPath: String?,
+    private val databaseName: String
+) : CoroutineScope {
+
+    companion object {
+        private const val TAG = "WordsetInstaller"
+        private const val BUFFER_SIZE = 64 * 1024
+    }
+
+    override val coroutineContext: CoroutineContext
+        get() = Dispatchers.IO
+
+    private val _progress = MutableStateFlow(0F)
+
+    /**
+     * The fraction of the database which has been installed, from 0 to 1. It's only 1 once the
+     * database has been copied and opened.
+     */
+    val progress: StateFlow<Float>
+        get() = _progress
+
+    val isInstalled: Boolean
+        get() = _progress.value >= 1F
+
+    private val copied = CountDownLatch(1)
+
+    // Held while copying, so a retry from openHelperFactory can't race the first copy
+    private val copyLock = Any()
+
+    private val file: File
+        get() = context.getDatabasePath(databaseName)
+
+    init {
+        launch {
+            val isCopied = try {
+                copyIfNeeded()
+                true
+            } catch (e: IOException) {
+                Log.e(TAG, "Unable to copy $assetPath", e)
+                false
+            } finally {
+                copied.countDown()
+            }
+            // Run any migrations now rather than on the first query. Opening marks the database
+            // installed.
+            if (isCopied) WordsetDatabase.getInstance(context).openHelper.writableDatabase
+        }
+    }
+
+    private fun copyIfNeeded() {
+        synchronized(copyLock) {
+            if (assetPath != null && !file.exists()) copy(assetPath)
+        }
+    }
+
+    /**
+     * Inflate the gzipped asset, or else copy the uncompressed one, next to the database,
+     * reporting how much of the asset has been read, and only move it into place once fully
+     * written.
+     */
+    private fun copy(assetPath: String) {
+        val gzipped = "$assetPath.gz"
+        val isGzipped = context.assets.list(gzipped.substringBeforeLast('/', ""))
+            ?.contains(gzipped.substringAfterLast('/')) == true
+        val source = if (isGzipped) gzipped else assetPath
+        val length = try {
+            context.assets.openFd(source).use { it.length }
+        } catch (e: IOException) {
+            // Compressed by aapt, so its length isn't known up front. Builds keep .db assets
+            // uncompressed, so this is only hit by builds which don't.
+            -1L
+        }
+
+        file.parentFile?.mkdirs()
+        val inflated = File(file.path + ".tmp")
+        CountingInputStream(context.assets.open(source)).use { counting ->
+            val stream = if (isGzipped) GZIPInputStream(counting, BUFFER_SIZE) else counting
+            stream.use { input ->
+                inflated.outputStream().use { output ->
+                    val buffer = ByteArray(BUFFER_SIZE)
+                    var read = input.read(buffer)
+                    while (read >= 0) {
+                        output.write(buffer, 0, read)
+                        if (length > 0) {
+                            // Leave the last step for opening the database
+                            _progress.value = minOf(counting.count.toFloat() / length, 0.99F)
+                        }
+                        read = input.read(buffer)
+                    }
+                }
+            }
+        }
+        if (!inflated.renameTo(file)) throw IOException("Unable to replace $file")
+    }
+
+    /**
+     * A factory of open helpers which wait for the asset to be copied before opening the
+     * database. Databases are only opened off the main thread, so waiting doesn't block the UI.
+     */
+    fun openHelperFactory(
+        delegate: SupportSQLiteOpenHelper.Factory = FrameworkSQLiteOpenHelperFactory()
+    ): SupportSQLiteOpenHelper.Factory = SupportSQLiteOpenHelper.Factory { configuration ->
+        InstalledOpenHelper(delegate.create(configuration))
+    }
+
+    /**
+     * Wait for the first copy, and if it failed, copy again. A copy which fails again throws, so
+     * the query opening the database fails instead of running against an empty one, and the next
+     * query tries once more.
+     */
+    private fun awaitCopied() {
+        copied.await()
+        try {
+            copyIfNeeded()
+        } catch (e: IOException) {
+            throw IllegalStateException("Unable to copy $assetPath", e)
+        }
+    }
+
+    private inner class InstalledOpenHelper(
+        private val delegate: SupportSQLiteOpenHelper
+    ) : SupportSQLiteOpenHelper by delegate {
+
+        override fun getWritableDatabase(): SupportSQLiteDatabase {
+            awaitCopied()
+            return delegate.writableDatabase.also { _progress.value = 1F }
+        }
+
+        override fun getReadableDatabase(): SupportSQLiteDatabase {
+            awaitCopied()
+            return delegate.readableDatabase.also { _progress.value = 1F }
+        }
+    }
+
+    private class CountingInputStream(input: InputStream) : FilterInputStream(input) {
+        var count = 0L
+            private set
+
+        override fun read(): Int = super.read().also { if (it >= 0) count++ }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int =
+            super.read(b, off, len).also { if (it > 0) count += it }
+    }
+}
@@ -6,24 +6,26 @@ import android.app.Service
 import android.content.Intent
 import android.os.Build
 import android.os.IBinder
+import android.util.Log
 import androidx.core.app.NotificationCompat
-import com.google.gson.Gson
 import com.google.gson.annotations.SerializedName
-import com.google.gson.reflect.TypeToken
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import org.threeten.bp.OffsetDateTime
 import space.narrate.waylan.core.R
+import space.narrate.waylan.core.data.spell.SymConfig
 import kotlin.coroutines.CoroutineContext
 
 /**
  * A helper [Service] that loads, converts and inserts WordSet json dictionary files into
- * [WordDao]. This is only used if a pre-built Room db file is not included (and to be copied) or
- * if we need to build the database from scratch, extract it and include an updated version.
+ * [WordDao] with a [WordsetSeeder]. This is only used if a pre-built Room db file is not included
+ * (and to be copied) or if we need to build the database from scratch, extract it and include an
+ * updated version.
  *
  * After the database has been seeded, use the following command to extract the .db file and copy
- * it to assets/databases/:
+ * it to core/src/main/databases/, from where it's gzipped into assets at build time. A seeded
+ * database is created at the current version, so it's installed without running any migrations,
+ * and the build fails if it's at any other version:
  *
  * adb -d shell "run-as space.narrate.words.android cat databases/word-db" > word-db.db
  *
@@ -71,79 +73,32 @@ class WordsetDatabaseSeedService: Service(), CoroutineScope {
     }
 
 
-    private fun seed() {
+    private suspend fun seed() {
         //Get db instance
         val db = WordsetDatabase.getInstance(applicationContext)
 
         //Delete all data
         db.wordDao().deleteAll()
 
-        //Seed all data from JSON
-        val gson = Gson()
-        val files = assets.list("wordset")!!
-
-        for (file in files) {
-            // Get json string from asset file
-            try {
-                val jsonString = getJsonFromAsset("wordset/$file")
-                // Parse into BaseWord object mapTransform
-                val letter: Map<String, BaseWord> = gson.fromJson(jsonString, object: TypeToken<Map<String, BaseWord>>() {}.type)
-
-                val words: MutableList<Word> = mutableListOf()
-                val meanings: MutableList<Meaning> = mutableListOf()
-
-                for ((_, value) in letter) {
-                    val word = Word(
-                        value.word,
-                        0,
-                        OffsetDateTime.now(),
-                        OffsetDateTime.now()
-                    )
-                    //insert word
-                    words.add(word)
-
-                    for (m in value.meanings ?: emptyList()) {
-                        val meaning = Meaning(
-                            value.word,
-                            m.def ?: "",
-                            if (m.example == null) emptyList() else listOf(Example(m.example, OffsetDateTime.now(), OffsetDateTime.now())),
-                            m.speechPart ?: "unknown part of speech",
-                            m.synonyms?.filter { it != null }?.map { Synonym(it!!, OffsetDateTime.now(), OffsetDateTime.now()) }
-                                ?: emptyList(),
-                            value.labels?.map {
-                                Label(it.name
-                                    ?: "unknown region", it.isDialect
-                                    ?: false, OffsetDateTime.now(), OffsetDateTime.now())
-                            } ?: emptyList()
-                        )
-                        //insert meaning
-                        meanings.add(meaning)
-                    }
-                }
-
-                db.wordDao().insertAll(*words.toTypedArray())
-                db.meaningDao().insertAll(*meanings.toTypedArray())
-            } catch (e: Exception) {
-                e.printStackTrace()
-            }
+        //Rank words by how often they're used in the SymSpell corpus
+        val popularity = assets.open(SymConfig.defaultCorpusPath).use {
+            WordPopularity.readCorpus(it, SymConfig.defaultTermIndex, SymConfig.defaultCountIndex)
         }
 
-
-
-
+        //Stream all data from JSON
+        val files = assets.list("wordset")!!.toList()
+        try {
+            val stats = WordsetSeeder(db, popularity)
+                .seed(files) { assets.open("wordset/$it") }
+            Log.i(TAG, "Seeded $stats")
+        } catch (e: Exception) {
+            Log.e(TAG, "Unable to seed database", e)
+        }
 
         stopForeground(true)
         stopSelf()
     }
 
-    private fun getJsonFromAsset(name: String): String {
-        return resources.assets.open(name).use {
-            val buffer = ByteArray(it.available())
-            it.read(buffer)
-            String(buffer, Charsets.UTF_8)
-        }
-    }
-
     private fun createDataNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             //Create notification channel
@@ -0,0 +1,168 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.gson.Gson
+import com.google.gson.stream.JsonReader
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import org.threeten.bp.OffsetDateTime
+import space.narrate.waylan.core.data.wordset.WordsetDatabaseSeedService.BaseWord
+import java.io.InputStream
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.min
+
+/**
+ * Seeds a [WordsetDatabase] from WordSet json dictionary files, one per letter.
+ *
+ * Files are streamed a word at a time, so only [BATCH_SIZE] words of each file are held in memory
+ * rather than the whole file. Up to [PARSE_WORKERS] files are parsed in parallel, handing their
+ * batches to a single writer through a queue of at most [QUEUED_BATCHES]. The writer inserts each
+ * batch through [WordDao] and [MeaningDao] in one transaction, since SQLite only has one writer
+ * and a transaction per row would sync the journal for every word.
+ *
+ * A file which can't be read or parsed is skipped, leaving the other files to be seeded. The
+ * batches it was read into before failing have already been written and are kept.
+ *
+ * @param popularity The [Word.popularity] of each [Word.normalize]d word
+ */
+class WordsetSeeder(
+    private val database: WordsetDatabase,
+    private val popularity: Map<String, Int>
+) {
+
+    companion object {
+        const val BATCH_SIZE = 500
+        const val QUEUED_BATCHES = 4
+        val PARSE_WORKERS = min(4, Runtime.getRuntime().availableProcessors())
+
+        private val gson = Gson()
+
+        /**
+         * Read the words of a WordSet json file, an object of headwords to their [BaseWord],
+         * [batchSize] words at a time.
+         */
+        fun batches(
+            input: InputStream,
+            popularity: Map<String, Int>,
+            now: OffsetDateTime,
+            batchSize: Int = BATCH_SIZE
+        ): Sequence<Batch> = sequence {
+            JsonReader(input.bufferedReader()).use { reader ->
+                var batch = Batch()
+                reader.beginObject()
+                while (reader.hasNext()) {
+                    reader.nextName()
+                    val base: BaseWord? = gson.fromJson(reader, BaseWord::class.java)
+                    if (base?.word != null) batch.add(base, popularity, now)
+                    if (batch.words.size >= batchSize) {
+                        yield(batch)
+                        batch = Batch()
+                    }
+                }
+                reader.endObject()
+                if (batch.words.isNotEmpty()) yield(batch)
+            }
+        }
+    }
+
+    class Batch {
+        val words = mutableListOf<Word>()
+        val meanings = mutableListOf<Meaning>()
+
+        fun add(base: BaseWord, popularity: Map<String, Int>, now: OffsetDateTime) {
+            words.add(Word(
+                base.word,
+                popularity[Word.normalize(base.word)] ?: WordPopularity.UNKNOWN,
+                now,
+                now
+            ))
+            for (m in base.meanings ?: emptyList()) {
+                meanings.add(Meaning(
+                    base.word,
+                    m.def ?: "",
+                    if (m.example == null) emptyList() else listOf(Example(m.example)),
+                    m.speechPart ?: "unknown part of speech",
+                    m.synonyms?.filterNotNull()?.map { Synonym(it) } ?: emptyList(),
+                    base.labels?.map {
+                        Label(it.name ?: "unknown region", it.isDialect ?: false)
+                    } ?: emptyList()
+                ))
+            }
+        }
+    }
+
+    data class Stats(
+        val words: Int,
+        val meanings: Int,
+        val elapsedMillis: Long,
+        val peakHeapBytes: Long,
+        val skippedFiles: Int
+    ) {
+        val rowsPerSecond: Long
+            get() = (words + meanings) * 1000L / maxOf(elapsedMillis, 1L)
+
+        override fun toString(): String =
+            "$words words and $meanings meanings in ${elapsedMillis}ms " +
+                "($rowsPerSecond rows/s, peak heap ${peakHeapBytes / (1024 * 1024)}MB, " +
+                "$skippedFiles files skipped)"
+    }
+
+    /**
+     * Seed every file in [files], opened with [open].
+     */
+    suspend fun seed(files: List<String>, open: (String) -> InputStream): Stats = coroutineScope {
+        val start = System.nanoTime()
+        val now = OffsetDateTime.now()
+        val pending = Channel<String>(Channel.UNLIMITED)
+        files.forEach { pending.offer(it) }
+        pending.close()
+
+        val queue = Channel<Batch>(QUEUED_BATCHES)
+        val skipped = AtomicInteger()
+        val workers = List(min(PARSE_WORKERS, files.size)) {
+            launch(Dispatchers.Default) {
+                for (file in pending) {
+                    try {
+                        open(file).use { input ->
+                            batches(input, popularity, now).forEach { queue.send(it) }
+                        }
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        e.printStackTrace()
+                        skipped.incrementAndGet()
+                    }
+                }
+            }
+        }
+        launch {
+            workers.forEach { it.join() }
+            queue.close()
+        }
+
+        var words = 0
+        var meanings = 0
+        var peakHeap = 0L
+        withContext(Dispatchers.IO) {
+            for (batch in queue) {
+                write(batch)
+                words += batch.words.size
+                meanings += batch.meanings.size
+                peakHeap = maxOf(peakHeap, usedHeap())
+            }
+        }
+        Stats(words, meanings, (System.nanoTime() - start) / 1_000_000L, peakHeap, skipped.get())
+    }
+
+    private fun write(batch: Batch) {
+        database.runInTransaction {
+            database.wordDao().insertAll(*batch.words.toTypedArray())
+            database.meaningDao().insertAll(*batch.meanings.toTypedArray())
+        }
+    }
+
+    private fun usedHeap(): Long = Runtime.getRuntime().let { it.totalMemory() - it.freeMemory() }
+}
@@ -1,56 +1,59 @@
 package space.narrate.waylan.core.data.wordset
 
 import androidx.room.TypeConverter
-import com.google.gson.GsonBuilder
-import com.google.gson.reflect.TypeToken
-import org.aaronhe.threetengson.ThreeTenGsonAdapter
-import org.threeten.bp.format.DateTimeFormatter
+import space.narrate.waylan.core.util.SeparatedText
+import space.narrate.waylan.core.util.SeparatedText.UNIT_SEPARATOR
 
 /**
  * Type converters for unsupported types in Room objects
+ *
+ * Lists are stored as [SeparatedText], a record per element, and a [Label]'s name and whether
+ * it's a dialect as the fields of its record. [MeaningFts] tokenizes the separators like spaces,
+ * so synonyms are indexed as plain words.
  */
 object WordsetTypeConverters {
 
-    private val formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME
-    private val gson = ThreeTenGsonAdapter.registerOffsetDateTime(GsonBuilder()).create()
+    private const val DIALECT = "1"
+    private const val NOT_DIALECT = "0"
 
     @TypeConverter
     @JvmStatic
     fun toExampleList(value: String): List<Example> {
-        val type = object : TypeToken<List<Example>>() {}.type
-        return gson.fromJson(value, type)
+        return SeparatedText.split(value).map { Example(it) }
     }
 
     @TypeConverter
     @JvmStatic
     fun fromExampleList(value: List<Example>): String {
-        return gson.toJson(value)
+        return SeparatedText.join(value) { SeparatedText.clean(it.example) }
     }
 
     @TypeConverter
     @JvmStatic
     fun toSynonymList(value: String): List<Synonym> {
-        val type = object : TypeToken<List<Synonym>>() {}.type
-        return gson.fromJson(value, type)
+        return SeparatedText.split(value).map { Synonym(it) }
     }
 
     @TypeConverter
     @JvmStatic
     fun fromSynonymList(value: List<Synonym>): String {
-        return gson.toJson(value)
+        return SeparatedText.join(value) { SeparatedText.clean(it.synonym) }
     }
 
     @TypeConverter
     @JvmStatic
     fun toLabelList(value: String): List<Label> {
-        val type = object : TypeToken<List<Label>>() {}.type
-        return gson.fromJson(value, type)
+        return SeparatedText.split(value).map {
+            val name = it.substringBeforeLast(UNIT_SEPARATOR)
+            Label(name, it.substringAfterLast(UNIT_SEPARATOR, NOT_DIALECT) == DIALECT)
+        }
     }
 
     @TypeConverter
     @JvmStatic
     fun fromLabelList(value: List<Label>): String {
-        return gson.toJson(value)
+        return SeparatedText.join(value) {
+            SeparatedText.record(it.name, if (it.isDialect) DIALECT else NOT_DIALECT)
+        }
     }
 }
-
@@ -9,27 +9,53 @@ import org.koin.dsl.module
 import space.narrate.waylan.core.BuildConfig
 import space.narrate.waylan.core.data.firestore.AuthenticationStore
 import space.narrate.waylan.core.data.firestore.FirestoreStore
+import space.narrate.waylan.core.data.firestore.UserWordWriteQueue
+import space.narrate.waylan.core.data.firestore.util.FirestoreListenerRegistry
 import space.narrate.waylan.core.data.prefs.PreferenceStore
 import space.narrate.waylan.core.data.prefs.RotationManager
 import space.narrate.waylan.core.data.prefs.UserPreferenceStore
 import space.narrate.waylan.core.repo.AnalyticsRepository
 import space.narrate.waylan.core.repo.UserRepository
 import space.narrate.waylan.core.repo.WordRepository
+import space.narrate.waylan.core.data.spell.PhoneticStore
 import space.narrate.waylan.core.data.spell.SymSpellStore
+import space.narrate.waylan.core.data.userword.UserWordDatabase
+import space.narrate.waylan.core.data.userword.UserWordMirror
 import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import java.io.File
 
 val coreModule = module {
 
     // Stores
+    // Created at start so the shipped WordSet database is copied as soon as the app launches
+    single(createdAtStart = true) { WordsetDatabase.getInstaller(androidContext()) }
+
     single { WordsetDatabase.getInstance(androidContext()) }
 
     single { PreferenceStore(androidContext()) }
 
     single { SymSpellStore(androidContext()) }
 
+    single { PhoneticStore(androidContext(), get()) }
+
     single { AuthenticationStore(FirebaseAuth.getInstance(), get(), get()) }
 
-    single { FirestoreStore(FirebaseFirestore.getInstance(), get()) }
+    single {
+        UserWordWriteQueue(
+            FirebaseFirestore.getInstance(),
+            get(),
+            File(androidContext().filesDir, "firestore/user_words.journal"),
+            Dispatchers.IO
+        )
+    }
+
+    single { FirestoreListenerRegistry() }
+
+    single { FirestoreStore(FirebaseFirestore.getInstance(), get(), get()) }
+
+    single { UserWordDatabase.getInstance(androidContext()) }
+
+    single { UserWordMirror(get(), get(), get(), get(), Dispatchers.IO) }
 
     single { UserPreferenceStore(androidContext(), get()) }
 
@@ -41,7 +67,7 @@ val coreModule = module {
         AnalyticsRepository(firebaseAnalytics, get())
     }
 
-    single { WordRepository(get(), get(), get(), get(), Dispatchers.IO) }
+    single { WordRepository(get(), get(), get(), get(), get(), get(), get(), Dispatchers.IO) }
 
     single { UserRepository(get(), get(), get(), get()) }
 
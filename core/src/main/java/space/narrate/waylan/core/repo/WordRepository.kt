@@ -1,22 +1,33 @@
 package space.narrate.waylan.core.repo
 
 import androidx.lifecycle.LiveData
+import androidx.lifecycle.asLiveData
+import androidx.lifecycle.liveData
 import com.google.firebase.firestore.FirebaseFirestoreException
 import java.lang.Exception
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.launch
 import space.narrate.waylan.core.data.firestore.AuthenticationStore
 import space.narrate.waylan.core.data.firestore.FirestoreStore
 import space.narrate.waylan.core.data.firestore.Period
+import space.narrate.waylan.core.data.firestore.QueryPage
 import space.narrate.waylan.core.data.firestore.users.UserWord
 import space.narrate.waylan.core.data.firestore.words.GlobalWord
-import space.narrate.waylan.core.data.spell.SuggestItem
+import space.narrate.waylan.core.data.spell.PhoneticStore
+import space.narrate.waylan.core.data.spell.SuggestResult
 import space.narrate.waylan.core.data.spell.SymSpellStore
+import space.narrate.waylan.core.data.userword.UserWordMirror
+import space.narrate.waylan.core.data.wordset.DefinitionSearch
+import space.narrate.waylan.core.data.wordset.HeadwordIndex
 import space.narrate.waylan.core.data.wordset.Word
 import space.narrate.waylan.core.data.wordset.WordAndMeanings
 import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import space.narrate.waylan.core.data.wordset.WordsetDatabaseInstaller
 import space.narrate.waylan.core.util.switchMapTransform
 import kotlin.coroutines.CoroutineContext
 import space.narrate.waylan.core.data.Result
@@ -25,31 +36,118 @@ import space.narrate.waylan.core.data.firestore.users.UserWordExample
 
 /**
  * A repository for all data access to all underlying dictionaries, including from WordSet,
- * Merriam-Webster, SymSpell, Firestore [UserWord]s and Firestore [GlobalWord]s. Clients should
+ * Merriam-Webster, SymSpell, sound-alike words, Firestore [UserWord]s and Firestore [GlobalWord]s. Clients should
  * access word-related data through [WordRepository].
  */
 class WordRepository(
     private val db: WordsetDatabase,
+    private val wordsetInstaller: WordsetDatabaseInstaller,
     private val authenticationStore: AuthenticationStore,
     private val firestoreStore: FirestoreStore,
     private val symSpellStore: SymSpellStore,
+    private val phoneticStore: PhoneticStore,
+    private val userWordMirror: UserWordMirror,
     private val ioDispatcher: CoroutineDispatcher
 ) : CoroutineScope by CoroutineScope(ioDispatcher) {
 
+    // Built from every headword the first time a pattern or anagram is searched for
+    private val headwordIndex by lazy { HeadwordIndex(db.wordDao().getAllWords()) }
+
     fun getWordsetWord(word: String): LiveData<Word?> {
         return db.wordDao().getLive(word)
     }
 
-    fun getWordsetWords(input: String): LiveData<List<Word>> {
-        return db.wordDao().load("$input%")
+    /**
+     * Get how much of the shipped WordSet database has been installed, from 0 to 1.
+     */
+    fun getWordsetInstallProgress(): LiveData<Float> {
+        return wordsetInstaller.progress.asLiveData()
+    }
+
+    /**
+     * Get the most popular WordSet words starting with [input], ignoring case. This is a one-shot
+     * query for type-ahead, rather than one which observes the words table.
+     *
+     * Until the WordSet database is installed, no words are found, rather than waiting on the
+     * install, so search only suggests SymSpell's words.
+     */
+    suspend fun getWordsetWordsImmediate(input: String, limit: Int = 25): List<Word> {
+        val from = Word.normalize(input)
+        if (from.isEmpty() || !wordsetInstaller.isInstalled) return emptyList()
+        // The first string after every string starting with from
+        val to = from.dropLast(1) + (from.last() + 1)
+        return db.wordDao().loadImmediate(from, to, limit)
+    }
+
+    /**
+     * Get the WordSet headwords matching a crossword-style [pattern], where `?` stands for any
+     * one letter and `*` for any run of letters, like "c?t" or "*ology".
+     */
+    fun getWordsetWordsMatching(pattern: String): LiveData<List<String>> {
+        return liveData(ioDispatcher) {
+            emit(headwordIndex.match(pattern))
+        }
+    }
+
+    /**
+     * Get the WordSet headwords spelled with exactly the letters of [word], like "listen" for
+     * "tinsel".
+     */
+    fun getWordsetAnagrams(word: String): LiveData<List<String>> {
+        return liveData(ioDispatcher) {
+            emit(headwordIndex.anagrams(word))
+        }
+    }
+
+    /**
+     * Get the WordSet headwords whose meanings best match a [description], like "acrophobia"
+     * for "a word that means fear of heights".
+     */
+    fun getWordsetWordsDescribedBy(description: String): LiveData<List<String>> {
+        return liveData(ioDispatcher) {
+            val dao = db.meaningDao()
+            val counts = DefinitionSearch.toTerms(description).associateWith { dao.countMatches(it) }
+            val query = DefinitionSearch.toMatchQuery(DefinitionSearch.selectTerms(counts))
+            if (query == null) {
+                emit(emptyList())
+            } else {
+                val matches = dao.match(query, DefinitionSearch.MAX_CANDIDATES)
+                emit(DefinitionSearch.rank(matches))
+            }
+        }
     }
 
     fun getWordsetWordAndMeanings(word: String): LiveData<WordAndMeanings?> {
         return db.wordDao().getWordAndMeanings(word)
     }
 
-    fun getSuggestItems(input: String): LiveData<List<SuggestItem>> {
-        return symSpellStore.lookupLive(input)
+    /**
+     * Get spelling suggestions for each [input] a user settles on. While the dictionary is still
+     * warming up, a [SuggestResult] is not complete and only holds suggestions from the most
+     * frequent words.
+     */
+    @FlowPreview
+    @ExperimentalCoroutinesApi
+    fun getSuggestItems(input: Flow<String>): Flow<SuggestResult> {
+        return symSpellStore.suggestions(input)
+    }
+
+    /**
+     * Get the words which sound like [input], for input whose spelling is too far off for
+     * [getSuggestItems].
+     */
+    fun getSoundAlikes(input: String): LiveData<List<String>> {
+        return liveData(ioDispatcher) {
+            emit(phoneticStore.lookup(input))
+        }
+    }
+
+    /**
+     * Let spelling suggestions know the user opened [word], so it ranks higher in future
+     * suggestions.
+     */
+    fun learnWord(word: String) {
+        symSpellStore.learn(word)
     }
 
     fun getUserWord(id: String): LiveData<UserWord> {
@@ -65,35 +163,70 @@ class WordRepository(
         return firestoreStore.getGlobalWordsTrendingLive(limit, filter)
     }
 
+    /**
+     * Get the [limit] trending words which follow the page [after], or the first [limit] if
+     * [after] is null.
+     */
+    suspend fun getGlobalWordTrendingPage(
+        after: QueryPage<GlobalWord>?,
+        limit: Long,
+        filter: List<Period> = emptyList()
+    ): Result<QueryPage<GlobalWord>> {
+        return firestoreStore.getGlobalWordsTrendingPage(after, limit, filter)
+    }
+
+    /**
+     * Get the user's favorites, read from [UserWordMirror] so they show without waiting on
+     * Firestore.
+     */
     fun getUserWordFavorites(limit: Long? = null) : LiveData<List<UserWord>> {
         return authenticationStore.uid.switchMapTransform {
-            firestoreStore.getUserWordsFavoriteLive(it, limit)
+            userWordMirror.getFavorites(it, limit)
         }
     }
 
+    /**
+     * Load the [limit] favorites from [from], the last word of the list so far, on. They're
+     * added to the lists from [getUserWordFavorites] long enough to hold them.
+     */
+    suspend fun loadUserWordFavoritesPage(from: UserWord, limit: Long): Result<List<UserWord>> {
+        val uid = authenticationStore.uid.value ?: return Result.Error(Exception("No authorized user"))
+        return userWordMirror.loadFavoritesPage(uid, from, limit)
+    }
+
     fun setUserWordFavorite(id: String, favorite: Boolean) {
         if (id.isBlank()) return
         val uid = authenticationStore.uid.value ?: return
 
-        // Launch and forget
-        launch {
-            firestoreStore.setFavorite(id, uid, favorite)
-        }
+        userWordMirror.setFavorite(uid, id, favorite)
+        firestoreStore.setFavorite(id, uid, favorite)
     }
 
+    /**
+     * Get the user's recently viewed words, read from [UserWordMirror] so they show without
+     * waiting on Firestore.
+     */
     fun getUserWordRecents(limit: Long? = null): LiveData<List<UserWord>> {
         return authenticationStore.uid.switchMapTransform {
-            firestoreStore.getUserWordsRecentLive(it, limit)
+            userWordMirror.getRecents(it, limit)
         }
     }
 
+    /**
+     * Load the [limit] recent words from [from], the last word of the list so far, on. They're
+     * added to the lists from [getUserWordRecents] long enough to hold them.
+     */
+    suspend fun loadUserWordRecentsPage(from: UserWord, limit: Long): Result<List<UserWord>> {
+        val uid = authenticationStore.uid.value ?: return Result.Error(Exception("No authorized user"))
+        return userWordMirror.loadRecentsPage(uid, from, limit)
+    }
+
     fun setUserWordRecent(id: String) {
         if (id.isBlank()) return
         val uid = authenticationStore.uid.value ?: return
 
-        // Launch and forget
         launch {
-            firestoreStore.setRecent(id, uid)
+            if (userWordMirror.setRecent(uid, id)) firestoreStore.setRecent(id, uid)
         }
     }
 
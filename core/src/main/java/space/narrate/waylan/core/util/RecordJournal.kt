@@ -0,0 +1,75 @@
+package space.narrate.waylan.core.util
+
+import java.io.ByteArrayInputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+
+/**
+ * A file of records of type [T], which are appended one at a time and read back in order.
+ *
+ * Appending a record is a single small write to the end of [file]. A record left partially
+ * written by a crash part way through an append is dropped on [replay], and [compact] rewrites
+ * the file with only the records still needed, replacing it only once fully written.
+ *
+ * A journal isn't thread safe, so its owner makes its calls one at a time.
+ *
+ * @param write Writes a record with [DataOutputStream]'s methods
+ * @param read Reads a record written by [write]
+ */
+class RecordJournal<T>(
+    private val file: File,
+    private val write: DataOutputStream.(T) -> Unit,
+    private val read: DataInputStream.() -> T
+) {
+
+    @Throws(IOException::class)
+    fun append(record: T) {
+        file.parentFile?.mkdirs()
+        DataOutputStream(FileOutputStream(file, true).buffered()).use { it.write(record) }
+    }
+
+    /**
+     * Read every complete record, passing each to [onRecord] in the order they were appended.
+     *
+     * @return Whether the journal ends with a record cut short, which is left in the file until
+     *  it's [compact]ed
+     */
+    @Throws(IOException::class)
+    fun replay(onRecord: (T) -> Unit): Boolean {
+        if (!file.exists()) return false
+
+        // Journals are small enough to read in one go
+        val bytes = file.readBytes()
+        val input = DataInputStream(ByteArrayInputStream(bytes))
+        var end = 0
+        try {
+            while (true) {
+                onRecord(input.read())
+                end = bytes.size - input.available()
+            }
+        } catch (e: EOFException) {
+            // The end of the journal, or a record cut short by a crash
+        }
+        return end < bytes.size
+    }
+
+    /**
+     * Replace the journal with [records], deleting it if there are none.
+     */
+    @Throws(IOException::class)
+    fun compact(records: Collection<T>) {
+        if (records.isEmpty()) {
+            file.delete()
+            return
+        }
+        val compacted = File(file.path + ".tmp")
+        DataOutputStream(FileOutputStream(compacted).buffered()).use { out ->
+            records.forEach { out.write(it) }
+        }
+        if (!compacted.renameTo(file)) throw IOException("Unable to replace $file")
+    }
+}
@@ -0,0 +1,41 @@
+package space.narrate.waylan.core.util
+
+/**
+ * Stores lists and maps of text in a single column as records separated by [RECORD_SEPARATOR],
+ * and the fields of a record by [UNIT_SEPARATOR], so reading them back only splits strings
+ * rather than parsing json.
+ *
+ * The separators are control characters which dictionary and user text don't use, and which
+ * FTS tokenizers treat like spaces. They can't be escaped, so any which do find their way into
+ * text are replaced with spaces.
+ */
+object SeparatedText {
+
+    const val RECORD_SEPARATOR = '\u001E'
+    const val UNIT_SEPARATOR = '\u001F'
+
+    /**
+     * Split [value] into its records, none if it's empty.
+     */
+    fun split(value: String): List<String> {
+        return if (value.isEmpty()) emptyList() else value.split(RECORD_SEPARATOR)
+    }
+
+    /**
+     * Join [values] into records, each the [text] of a value.
+     */
+    fun <T> join(values: Iterable<T>, text: (T) -> String): String {
+        return values.joinToString(RECORD_SEPARATOR.toString(), transform = text)
+    }
+
+    /**
+     * Join [fields] into a record, each cleaned of separators.
+     */
+    fun record(vararg fields: String): String {
+        return fields.joinToString(UNIT_SEPARATOR.toString()) { clean(it) }
+    }
+
+    fun clean(text: String): String {
+        return text.replace(RECORD_SEPARATOR, ' ').replace(UNIT_SEPARATOR, ' ')
+    }
+}
@@ -0,0 +1,37 @@
+package space.narrate.waylan.core.data.firestore
+
+import com.google.common.truth.Truth.assertThat
+import com.google.firebase.Timestamp
+import org.junit.Test
+import java.util.Date
+
+class FirestoreStoreTest {
+
+    @Test
+    fun endOfMillisecond_shouldBeLastNanosecondOfMillisecond() {
+        val timestamp = FirestoreStore.endOfMillisecond(Date(1_234_567L))
+
+        assertThat(timestamp.seconds).isEqualTo(1_234L)
+        assertThat(timestamp.nanoseconds).isEqualTo(567_999_999)
+    }
+
+    @Test
+    fun endOfMillisecond_wholeSecond_shouldStayInSecond() {
+        val timestamp = FirestoreStore.endOfMillisecond(Date(5_000L))
+
+        assertThat(timestamp.seconds).isEqualTo(5L)
+        assertThat(timestamp.nanoseconds).isEqualTo(999_999)
+    }
+
+    @Test
+    fun endOfMillisecond_shouldFollowEveryTimestampInMillisecond() {
+        val date = Date(1_234_567L)
+        val end = FirestoreStore.endOfMillisecond(date)
+
+        // Firestore keeps microseconds, which Date drops, so a page started at the end of the
+        // millisecond holds words modified at any point in it
+        assertThat(Timestamp(1_234L, 567_999_000)).isLessThan(end)
+        assertThat(Timestamp(date)).isLessThan(end)
+        assertThat(Timestamp(1_234L, 568_000_000)).isGreaterThan(end)
+    }
+}
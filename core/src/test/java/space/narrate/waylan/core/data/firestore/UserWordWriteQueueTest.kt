@@ -0,0 +1,83 @@
+package space.narrate.waylan.core.data.firestore
+
+import com.google.common.truth.Truth.assertThat
+import com.google.firebase.firestore.FirebaseFirestore
+import kotlinx.coroutines.test.TestCoroutineDispatcher
+import java.io.File
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import org.robolectric.RobolectricTestRunner
+import space.narrate.waylan.core.data.firestore.UserWordWriteQueue.Update
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
+
+@RunWith(RobolectricTestRunner::class)
+class UserWordWriteQueueTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val firestore = mock(FirebaseFirestore::class.java)
+    private val db = mock(WordsetDatabase::class.java)
+
+    private val journal: File
+        get() = File(folder.root, "firestore/user_words.journal")
+
+    // A queue which journals updates as they're queued, and won't flush during a test
+    private fun queue() = UserWordWriteQueue(firestore, db, journal, TestCoroutineDispatcher(), 60_000L)
+
+    @Test
+    fun then_shouldKeepLatestFavorite() {
+        val favorited = Update(true, true)
+        val viewed = Update(true, null)
+        val unfavorited = Update(true, false)
+
+        assertThat(favorited.then(viewed)).isEqualTo(Update(true, true))
+        assertThat(favorited.then(unfavorited)).isEqualTo(Update(true, false))
+        assertThat(Update(false, null).then(viewed)).isEqualTo(Update(true, null))
+    }
+
+    @Test
+    fun enqueue_repeatedUpdates_shouldMerge() {
+        val queue = queue()
+        queue.enqueue("abc", "quiescent", Update(true, null))
+        queue.enqueue("abc", "quiescent", Update(true, true))
+        queue.enqueue("abc", "quiescent", Update(true, null))
+        queue.enqueue("bcd", "quiescent", Update(true, null))
+
+        assertThat(queue.pendingUpdates).containsExactly(
+            "abc" to "quiescent", Update(true, true),
+            "bcd" to "quiescent", Update(true, null)
+        ).inOrder()
+    }
+
+    @Test
+    fun journal_shouldSurviveProcessDeath() {
+        val queue = queue()
+        queue.enqueue("abc", "quiescent", Update(true, true))
+        queue.enqueue("abc", "waylan", Update(true, null))
+        queue.enqueue("abc", "quiescent", Update(true, false))
+
+        // A new queue, as created after the process is restarted, replays the journal
+        val replayed = queue().pendingUpdates
+
+        assertThat(replayed).containsExactly(
+            "abc" to "quiescent", Update(true, false),
+            "abc" to "waylan", Update(true, null)
+        ).inOrder()
+    }
+
+    @Test
+    fun journal_tornRecord_shouldBeDropped() {
+        val queue = queue()
+        queue.enqueue("abc", "quiescent", Update(true, true))
+        queue.enqueue("abc", "waylan", Update(true, null))
+        journal.writeBytes(journal.readBytes().copyOf(journal.length().toInt() - 2))
+
+        val replayed = queue().pendingUpdates
+
+        assertThat(replayed).containsExactly("abc" to "quiescent", Update(true, true))
+    }
+}
@@ -0,0 +1,72 @@
+package space.narrate.waylan.core.data.firestore.util
+
+import com.google.common.truth.Truth.assertThat
+import com.google.firebase.firestore.DocumentChange
+import com.google.firebase.firestore.DocumentSnapshot
+import com.google.firebase.firestore.QueryDocumentSnapshot
+import org.junit.Test
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.`when`
+
+class FirestoreCollectionLiveDataTest {
+
+    private val parsed = mutableListOf<String>()
+
+    private val parse: (DocumentSnapshot) -> String = { document ->
+        document.id.also { parsed.add(it) }
+    }
+
+    private fun change(
+        type: DocumentChange.Type,
+        id: String,
+        oldIndex: Int,
+        newIndex: Int
+    ): DocumentChange {
+        val document = mock(QueryDocumentSnapshot::class.java)
+        `when`(document.id).thenReturn(id)
+        val change = mock(DocumentChange::class.java)
+        `when`(change.type).thenReturn(type)
+        `when`(change.document).thenReturn(document)
+        `when`(change.oldIndex).thenReturn(oldIndex)
+        `when`(change.newIndex).thenReturn(newIndex)
+        return change
+    }
+
+    @Test
+    fun applyChanges_added_shouldInsertAtNewIndex() {
+        val documents = mutableListOf<String>()
+
+        FirestoreCollectionLiveData.applyChanges(documents, listOf(
+            change(DocumentChange.Type.ADDED, "quiescent", -1, 0),
+            change(DocumentChange.Type.ADDED, "quill", -1, 1),
+            change(DocumentChange.Type.ADDED, "quiet", -1, 1)
+        ), parse)
+
+        assertThat(documents).containsExactly("quiescent", "quiet", "quill").inOrder()
+    }
+
+    @Test
+    fun applyChanges_modified_shouldOnlyParseChangedDocuments() {
+        val documents = mutableListOf("quiescent", "quiet", "quill")
+
+        FirestoreCollectionLiveData.applyChanges(documents, listOf(
+            change(DocumentChange.Type.MODIFIED, "quill", 2, 0)
+        ), parse)
+
+        assertThat(documents).containsExactly("quill", "quiescent", "quiet").inOrder()
+        assertThat(parsed).containsExactly("quill")
+    }
+
+    @Test
+    fun applyChanges_removed_shouldRemoveAtOldIndexWithoutParsing() {
+        val documents = mutableListOf("quiescent", "quiet", "quill")
+
+        FirestoreCollectionLiveData.applyChanges(documents, listOf(
+            change(DocumentChange.Type.REMOVED, "quiet", 1, -1),
+            change(DocumentChange.Type.MODIFIED, "quill", 1, 1)
+        ), parse)
+
+        assertThat(documents).containsExactly("quiescent", "quill").inOrder()
+        assertThat(parsed).containsExactly("quill")
+    }
+}
@@ -0,0 +1,95 @@
+package space.narrate.waylan.core.data.firestore.util
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import androidx.lifecycle.Observer
+import com.google.common.truth.Truth.assertThat
+import com.google.firebase.firestore.EventListener
+import com.google.firebase.firestore.ListenerRegistration
+import com.google.firebase.firestore.Query
+import com.google.firebase.firestore.QuerySnapshot
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import org.junit.Rule
+import org.junit.Test
+import org.mockito.ArgumentMatchers.any
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.never
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
+import org.mockito.Mockito.`when`
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.test_common.CoroutinesTestRule
+
+@ExperimentalCoroutinesApi
+class FirestoreListenerRegistryTest {
+
+    @get:Rule
+    val coroutinesTestRule = CoroutinesTestRule()
+
+    @get:Rule
+    val instantExecutorRule = InstantTaskExecutorRule()
+
+    private val registration = mock(ListenerRegistration::class.java)
+    private val query = mock(Query::class.java).also {
+        `when`(it.addSnapshotListener(any<EventListener<QuerySnapshot>>())).thenReturn(registration)
+    }
+
+    private val observer = Observer<List<UserWord>> { }
+
+    @Test
+    fun liveData_sameQueryWhileListening_shouldShareListener() {
+        val registry = FirestoreListenerRegistry(0L)
+
+        val first = registry.liveData(query, UserWord::class.java)
+        first.observeForever(observer)
+        val second = registry.liveData(query, UserWord::class.java)
+        second.observeForever(observer)
+
+        assertThat(second).isSameInstanceAs(first)
+        verify(query, times(1)).addSnapshotListener(any<EventListener<QuerySnapshot>>())
+        assertThat(registry.stats).isEqualTo(FirestoreListenerStats(1, 1L, 1L))
+    }
+
+    @Test
+    fun liveData_sameQueryBeforeObserved_shouldShareListener() {
+        val registry = FirestoreListenerRegistry(0L)
+
+        val first = registry.liveData(query, UserWord::class.java)
+        val second = registry.liveData(query, UserWord::class.java)
+        first.observeForever(observer)
+        second.observeForever(observer)
+
+        assertThat(second).isSameInstanceAs(first)
+        verify(query, times(1)).addSnapshotListener(any<EventListener<QuerySnapshot>>())
+        assertThat(registry.stats).isEqualTo(FirestoreListenerStats(1, 1L, 1L))
+    }
+
+    @Test
+    fun observedAgainWithinGracePeriod_shouldKeepListener() {
+        val registry = FirestoreListenerRegistry(5_000L)
+        val liveData = registry.liveData(query, UserWord::class.java)
+
+        liveData.observeForever(observer)
+        liveData.removeObserver(observer)
+        coroutinesTestRule.testDispatcher.advanceTimeBy(1_000L)
+        liveData.observeForever(observer)
+        coroutinesTestRule.testDispatcher.advanceTimeBy(10_000L)
+
+        verify(registration, never()).remove()
+        verify(query, times(1)).addSnapshotListener(any<EventListener<QuerySnapshot>>())
+        assertThat(registry.stats).isEqualTo(FirestoreListenerStats(1, 1L, 0L))
+    }
+
+    @Test
+    fun unobservedPastGracePeriod_shouldRemoveListener() {
+        val registry = FirestoreListenerRegistry(5_000L)
+        val liveData = registry.liveData(query, UserWord::class.java)
+
+        liveData.observeForever(observer)
+        liveData.removeObserver(observer)
+        coroutinesTestRule.testDispatcher.advanceTimeBy(5_000L)
+
+        verify(registration, times(1)).remove()
+        assertThat(registry.stats.activeListeners).isEqualTo(0)
+        assertThat(registry.liveData(query, UserWord::class.java)).isNotSameInstanceAs(liveData)
+    }
+}
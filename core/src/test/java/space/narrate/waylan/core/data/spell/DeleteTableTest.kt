@@ -0,0 +1,88 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class DeleteTableTest {
+
+    private fun DeleteTable.suggestions(deleteHash: Int): List<Int> {
+        val slot = find(deleteHash)
+        if (slot < 0) return emptyList()
+        return (0 until suggestionCount(slot)).map { suggestion(slot, it) }
+    }
+
+    @Test
+    fun addAll_shouldGroupSuggestionsByDelete() {
+        val table = DeleteTable(4)
+        val staging = SuggestionStage(4)
+        staging.add(10, 1)
+        staging.add(20, 2)
+        staging.add(10, 3)
+
+        table.addAll(staging)
+
+        assertThat(table.size()).isEqualTo(2)
+        assertThat(table.poolSize()).isEqualTo(3)
+        assertThat(table.suggestions(10)).containsExactly(3, 1).inOrder()
+        assertThat(table.suggestions(20)).containsExactly(2)
+        assertThat(table.find(30)).isEqualTo(-1)
+    }
+
+    @Test
+    fun addAll_shouldAppendToExistingDeletes() {
+        val table = DeleteTable(1)
+        table.addAll(SuggestionStage(1).apply { add(10, 1) })
+        table.addAll(SuggestionStage(1).apply { add(10, 2) })
+
+        assertThat(table.size()).isEqualTo(1)
+        assertThat(table.suggestions(10)).containsExactly(1, 2).inOrder()
+    }
+
+    @Test
+    fun addAll_shouldGrowTable() {
+        val table = DeleteTable(1)
+        val staging = SuggestionStage(1000)
+        (0 until 1000).forEach { staging.add(it, it) }
+
+        table.addAll(staging)
+
+        assertThat(table.size()).isEqualTo(1000)
+        assertThat(table.capacity()).isAtLeast(1000)
+        (0 until 1000).forEach { assertThat(table.suggestions(it)).containsExactly(it) }
+    }
+
+    @Test
+    fun addAll_severalStages_shouldAppendInStageOrder() {
+        val table = DeleteTable(1)
+        val first = SuggestionStage(1).apply {
+            add(10, 4)
+            add(10, 5)
+        }
+        val second = SuggestionStage(1).apply {
+            (0 until 100).forEach { add(100 + it, it) }
+            add(10, 1)
+        }
+
+        table.addAll(first, second)
+
+        assertThat(table.size()).isEqualTo(101)
+        assertThat(table.suggestions(10)).containsExactly(5, 4, 1).inOrder()
+        (0 until 100).forEach { assertThat(table.suggestions(100 + it)).containsExactly(it) }
+    }
+
+    @Test
+    fun addAll_manySmallStages_shouldKeepEveryRun() {
+        val table = DeleteTable(1)
+        (0 until 200).forEach { word ->
+            table.addAll(SuggestionStage(1).apply {
+                add(10, word)
+                add(1000 + word, word)
+            })
+        }
+
+        assertThat(table.size()).isEqualTo(201)
+        assertThat(table.poolSize()).isEqualTo(400)
+        assertThat(table.suggestions(10)).containsExactlyElementsIn(0 until 200).inOrder()
+        (0 until 200).forEach { assertThat(table.suggestions(1000 + it)).containsExactly(it) }
+    }
+}
@@ -0,0 +1,96 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.util.Random
+import org.junit.BeforeClass
+import org.junit.Test
+
+class EditDistanceTest {
+
+    companion object {
+        private const val CORPUS = "src/main/assets/corpus/frequency_dictionary_en_82_765.txt"
+
+        private lateinit var words: List<String>
+
+        @BeforeClass
+        @JvmStatic
+        fun setUpClass() {
+            words = File(CORPUS).readLines().map { it.substringBefore(' ') }
+        }
+
+        /**
+         * Misspell a word with up to [edits] random deletes, inserts, substitutions and
+         * adjacent transpositions.
+         */
+        private fun misspell(word: String, edits: Int, random: Random): String {
+            val chars = "abcdeéüвг"
+            val sb = StringBuilder(word)
+            repeat(random.nextInt(edits + 1)) {
+                if (sb.isEmpty()) return@repeat
+                val i = random.nextInt(sb.length)
+                when (random.nextInt(4)) {
+                    0 -> sb.deleteCharAt(i)
+                    1 -> sb.insert(i, chars[random.nextInt(chars.length)])
+                    2 -> sb.setCharAt(i, chars[random.nextInt(chars.length)])
+                    else -> if (i + 1 < sb.length) {
+                        val c = sb[i]
+                        sb.setCharAt(i, sb[i + 1])
+                        sb.setCharAt(i + 1, c)
+                    }
+                }
+            }
+            return sb.toString()
+        }
+    }
+
+    @Test
+    fun damerauBitParallel_shouldMatchDamerau() {
+        val random = Random(42)
+        val damerau = EditDistance(EditDistance.DistanceAlgorithm.Damerau)
+        val bitParallel = EditDistance(EditDistance.DistanceAlgorithm.DamerauBitParallel)
+
+        repeat(50_000) {
+            val base = words[random.nextInt(words.size)]
+            val other = if (random.nextBoolean()) {
+                misspell(base, 4, random)
+            } else {
+                words[random.nextInt(words.size)]
+            }
+            damerau.setBaseString(base)
+            bitParallel.setBaseString(base)
+            (-1..4).forEach { maxDistance ->
+                assertThat(bitParallel.compare(other, maxDistance))
+                    .isEqualTo(damerau.compare(other, maxDistance))
+            }
+        }
+    }
+
+    @Test
+    fun damerauBitParallel_transposition_shouldCostOne() {
+        val editDistance = EditDistance("bank", EditDistance.DistanceAlgorithm.DamerauBitParallel)
+
+        assertThat(editDistance.compare("bnak", 3)).isEqualTo(1)
+        assertThat(editDistance.compare("kanb", 3)).isEqualTo(2)
+        assertThat(editDistance.compare("xban", 1)).isEqualTo(-1)
+    }
+
+    @Test
+    fun damerauBitParallel_longStrings_shouldMatchDamerau() {
+        // a base of 64 chars fills the bit vectors, one of 65 falls back to Damerau
+        listOf(64, 65).forEach { length ->
+            val base = "a".repeat(length - 40) + "bc".repeat(15) + "d".repeat(10)
+            val other = "a".repeat(length - 41) + "cb".repeat(15) + "e".repeat(32)
+
+            (-1..50).forEach { maxDistance ->
+                assertThat(
+                    EditDistance(base, EditDistance.DistanceAlgorithm.DamerauBitParallel)
+                        .compare(other, maxDistance)
+                ).isEqualTo(
+                    EditDistance(base, EditDistance.DistanceAlgorithm.Damerau)
+                        .compare(other, maxDistance)
+                )
+            }
+        }
+    }
+}
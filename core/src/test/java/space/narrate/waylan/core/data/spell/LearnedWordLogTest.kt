@@ -0,0 +1,60 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class LearnedWordLogTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val file: File
+        get() = File(folder.root, "symspell/learned.log")
+
+    @Test
+    fun replay_shouldSumOpensOfEachWord() {
+        val log = LearnedWordLog(file)
+        log.append("quiescent")
+        log.append("waylan")
+        log.append("quiescent", 2)
+
+        val opens = LearnedWordLog(file).replay()
+
+        assertThat(opens).containsExactly("quiescent", 3L, "waylan", 1L).inOrder()
+    }
+
+    @Test
+    fun replay_missingLog_shouldBeEmpty() {
+        assertThat(LearnedWordLog(file).replay()).isEmpty()
+    }
+
+    @Test
+    fun replay_tornRecord_shouldCompact() {
+        val log = LearnedWordLog(file)
+        log.append("quiescent")
+        log.append("waylan")
+        file.writeBytes(file.readBytes().copyOf(file.length().toInt() - 3))
+
+        assertThat(log.replay()).containsExactly("quiescent", 1L)
+
+        // Appending after a torn record would leave it unreadable, so it was compacted away
+        log.append("waylan")
+        assertThat(log.replay()).containsExactly("quiescent", 1L, "waylan", 1L).inOrder()
+    }
+
+    @Test
+    fun replay_manyRecords_shouldCompact() {
+        val log = LearnedWordLog(file)
+        repeat(300) { log.append(if (it % 2 == 0) "quiescent" else "waylan") }
+        val length = file.length()
+
+        val opens = log.replay()
+
+        assertThat(opens).containsExactly("quiescent", 150L, "waylan", 150L).inOrder()
+        assertThat(file.length()).isLessThan(length)
+        assertThat(log.replay()).isEqualTo(opens)
+    }
+}
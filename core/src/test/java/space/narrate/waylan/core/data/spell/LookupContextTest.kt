@@ -0,0 +1,85 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.BeforeClass
+import org.junit.Test
+
+class LookupContextTest {
+
+    companion object {
+        private const val CORPUS = "src/main/assets/corpus/frequency_dictionary_en_82_765.txt"
+
+        private val INPUTS = listOf(
+            "recieve", "teh", "speling", "occured", "definately", "langauge", "a", "wrd", "xyzzy",
+            "", "thequick", "abcdefghijklmnopqrstuvwxyz"
+        )
+
+        private lateinit var symSpell: SymSpell
+
+        @BeforeClass
+        @JvmStatic
+        fun setUpClass() {
+            symSpell = SymSpell(
+                -1,
+                SymConfig.defaultDictionaryEditDistance,
+                -1,
+                SymConfig.defaultTargetCount,
+                Long.MAX_VALUE
+            )
+            symSpell.loadDictionary(
+                CORPUS,
+                SymConfig.defaultTermIndex,
+                SymConfig.defaultCountIndex
+            )
+        }
+    }
+
+    @Test
+    fun boundedLookup_shouldReturnBestSuggestions() {
+        SymSpell.Verbosity.values().forEach { verbosity ->
+            (1..SymConfig.defaultDictionaryEditDistance).forEach { distance ->
+                INPUTS.forEach { input ->
+                    val all = symSpell.lookup(input, verbosity, distance)
+                    val bounded = symSpell.lookup(input, verbosity, distance, 5).suggestions
+                    assertThat(bounded.toString()).isEqualTo(all.take(5).toString())
+                }
+            }
+        }
+    }
+
+    @Test
+    fun boundedLookup_shouldReuseContext() {
+        val first = symSpell.lookup("recieve", SymSpell.Verbosity.All, 2, 10)
+        val second = symSpell.lookup("teh", SymSpell.Verbosity.All, 2, 10)
+
+        assertThat(second).isSameInstanceAs(first)
+        assertThat(second.size()).isEqualTo(10)
+        assertThat(second.term(0)).isEqualTo("the")
+        assertThat(second.distance(0)).isEqualTo(1)
+    }
+
+    @Test
+    fun typedLookups_shouldReuseCandidates() {
+        val typed = listOf("d", "de", "def", "defi", "defin", "defina", "definat", "definate",
+            "definatel", "definately", "definatel", "definate", "definat", "definit")
+
+        val expected = typed.map { input ->
+            // a Top lookup derives only some candidates, so the next lookup can't reuse them
+            symSpell.lookup("xyzzy", SymSpell.Verbosity.Top, 2, 1)
+            symSpell.lookup(input, SymSpell.Verbosity.All, 2, 20).suggestions.toString()
+        }
+        val reuses = symSpell.candidateReuseCount
+        val actual = typed.map { input ->
+            symSpell.lookup(input, SymSpell.Verbosity.All, 2, 20).suggestions.toString()
+        }
+
+        assertThat(actual).isEqualTo(expected)
+        // every lookup after "definat" shares its 7 char prefix
+        assertThat(symSpell.candidateReuseCount - reuses).isEqualTo(6)
+    }
+
+    @Test
+    fun boundedLookup_zeroResultsShouldBeEmpty() {
+        assertThat(symSpell.lookup("recieve", SymSpell.Verbosity.All, 2, 0).size()).isEqualTo(0)
+    }
+}
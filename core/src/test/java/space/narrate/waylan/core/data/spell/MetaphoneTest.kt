@@ -0,0 +1,41 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class MetaphoneTest {
+
+    @Test
+    fun encode_soundAlikes_shouldShareKey() {
+        assertThat(Metaphone.encode("fonetik", 12)).isEqualTo("FNTK")
+        assertThat(Metaphone.encode("phonetic", 12)).isEqualTo("FNTK")
+        assertThat(Metaphone.encode("nolij", 12)).isEqualTo(Metaphone.encode("knowledge", 12))
+        assertThat(Metaphone.encode("kat", 12)).isEqualTo(Metaphone.encode("cat", 12))
+    }
+
+    @Test
+    fun encode_silentLetters_shouldBeDropped() {
+        assertThat(Metaphone.encode("knight", 12)).isEqualTo("NT")
+        assertThat(Metaphone.encode("thumb", 12)).isEqualTo("0M")
+        assertThat(Metaphone.encode("signed", 12)).isEqualTo("SNT")
+        assertThat(Metaphone.encode("wright", 12)).isEqualTo("RT")
+    }
+
+    @Test
+    fun encode_shouldIgnoreCaseAndNonLetters() {
+        assertThat(Metaphone.encode("Phone-tic!", 12)).isEqualTo("FNTK")
+        assertThat(Metaphone.encode("123", 12)).isEmpty()
+    }
+
+    @Test
+    fun encode_maxLength_shouldTruncateKey() {
+        assertThat(Metaphone.encode("quiescent", 3)).isEqualTo("KSN")
+    }
+
+    @Test
+    fun pack_distinctKeys_shouldNotCollide() {
+        assertThat(Metaphone.pack("")).isEqualTo(0L)
+        assertThat(Metaphone.pack("FNTK")).isNotEqualTo(Metaphone.pack("FNT"))
+        assertThat(Metaphone.pack("0")).isNotEqualTo(Metaphone.pack("T"))
+    }
+}
@@ -0,0 +1,83 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.ByteBuffer
+import org.junit.BeforeClass
+import org.junit.Test
+
+class PhoneticIndexTest {
+
+    companion object {
+        private const val CORPUS = "src/main/assets/corpus/frequency_dictionary_en_82_765.txt"
+
+        private lateinit var words: List<String>
+        private lateinit var index: PhoneticIndex
+
+        private fun write(words: List<String>, source: Int = 0): ByteArray {
+            val out = ByteArrayOutputStream()
+            PhoneticIndex.write(words, SymConfig.defaultPhoneticKeyLength, source, out)
+            return out.toByteArray()
+        }
+
+        @BeforeClass
+        @JvmStatic
+        fun setUpClass() {
+            words = File(CORPUS).readLines().map { it.split(' ')[0] }
+            index = PhoneticIndex.open(ByteBuffer.wrap(write(words)))
+        }
+    }
+
+    @Test
+    fun lookup_misspelling_shouldFindSoundAlike() {
+        assertThat(index.lookup("fonetik", 10)).contains("phonetic")
+        assertThat(index.lookup("nolij", 10)).contains("knowledge")
+        assertThat(index.lookup("rithm", 10)).contains("rhythm")
+    }
+
+    @Test
+    fun lookup_shouldMatchScanningEveryWord() {
+        listOf("fonetik", "nolij", "kat", "sykology", "definately").forEach { input ->
+            val key = Metaphone.encode(input, SymConfig.defaultPhoneticKeyLength)
+            val scanned = words.filter {
+                Metaphone.encode(it, SymConfig.defaultPhoneticKeyLength) == key
+            }
+
+            assertThat(index.lookup(input, Int.MAX_VALUE)).containsExactlyElementsIn(scanned).inOrder()
+        }
+    }
+
+    @Test
+    fun lookup_maxResults_shouldKeepMostFrequent() {
+        val all = index.lookup("kat", Int.MAX_VALUE)
+
+        assertThat(index.lookup("kat", 3)).isEqualTo(all.take(3))
+    }
+
+    @Test
+    fun lookup_noLetters_shouldBeEmpty() {
+        assertThat(index.lookup("123", 10)).isEmpty()
+    }
+
+    @Test
+    fun write_repeatedWords_shouldBeIndexedOnce() {
+        val repeated = PhoneticIndex.open(ByteBuffer.wrap(write(listOf("cat", "kat", "cat"))))
+
+        assertThat(repeated.size()).isEqualTo(2)
+        assertThat(repeated.lookup("cot", 10)).containsExactly("cat", "kat").inOrder()
+    }
+
+    @Test
+    fun open_shouldReadSource() {
+        val sourced = PhoneticIndex.open(ByteBuffer.wrap(write(listOf("cat"), source = 0x5EED)))
+
+        assertThat(sourced.source).isEqualTo(0x5EED)
+        assertThat(sourced.keyLength).isEqualTo(SymConfig.defaultPhoneticKeyLength)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun open_notAnIndex_shouldThrow() {
+        PhoneticIndex.open(ByteBuffer.wrap(ByteArray(64)))
+    }
+}
@@ -0,0 +1,84 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.FlowPreview
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.Rule
+import org.junit.Test
+import space.narrate.waylan.test_common.CoroutinesTestRule
+
+@FlowPreview
+@ExperimentalCoroutinesApi
+class SuggestionPipelineTest {
+
+    @get:Rule
+    val coroutinesTestRule = CoroutinesTestRule()
+
+    private val lookups = mutableListOf<String>()
+
+    private fun newPipeline(lookupMillis: Long = 0L) = SuggestionPipeline(
+        coroutinesTestRule.testDispatcher,
+        100L
+    ) { input ->
+        lookups.add(input)
+        delay(lookupMillis)
+        SuggestResult(input, listOf(SuggestItem(input, 0, 1L)), true)
+    }
+
+    @Test
+    fun fastInput_shouldOnlyLookUpSettledInput() = coroutinesTestRule.testDispatcher.runBlockingTest {
+        val pipeline = newPipeline()
+        val input = flow {
+            emit("r")
+            delay(50L)
+            emit("re")
+            delay(50L)
+            emit("rec")
+            delay(200L)
+            emit("reci")
+        }
+
+        val results = pipeline.suggestions(input).toList()
+
+        assertThat(lookups).containsExactly("rec", "reci").inOrder()
+        assertThat(results.map { it.items.single().term }).containsExactly("rec", "reci").inOrder()
+        assertThat(pipeline.stats).isEqualTo(LookupStats(2, 0, 2))
+    }
+
+    @Test
+    fun unchangedInput_shouldNotLookUpAgain() = coroutinesTestRule.testDispatcher.runBlockingTest {
+        val pipeline = newPipeline()
+        val input = flow {
+            emit("teh")
+            delay(200L)
+            emit("tehr")
+            delay(50L)
+            emit("teh")
+        }
+
+        pipeline.suggestions(input).toList()
+
+        assertThat(lookups).containsExactly("teh")
+        assertThat(pipeline.stats).isEqualTo(LookupStats(1, 0, 1))
+    }
+
+    @Test
+    fun slowLookup_shouldBeCancelledByNewerInput() = coroutinesTestRule.testDispatcher.runBlockingTest {
+        val pipeline = newPipeline(lookupMillis = 500L)
+        val input = flow {
+            emit("a")
+            delay(200L)
+            emit("ab")
+        }
+
+        val results = pipeline.suggestions(input).toList()
+
+        assertThat(lookups).containsExactly("a", "ab").inOrder()
+        assertThat(results.map { it.items.single().term }).containsExactly("ab")
+        assertThat(pipeline.stats).isEqualTo(LookupStats(2, 1, 1))
+    }
+}
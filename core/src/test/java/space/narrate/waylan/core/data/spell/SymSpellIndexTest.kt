@@ -0,0 +1,81 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import java.io.ByteArrayOutputStream
+import java.nio.ByteBuffer
+import org.junit.BeforeClass
+import org.junit.Test
+
+class SymSpellIndexTest {
+
+    companion object {
+        private const val CORPUS = "src/main/assets/corpus/frequency_dictionary_en_82_765.txt"
+
+        private val INPUTS = listOf(
+            "recieve", "teh", "hte", "speling", "occured", "definately", "acommodate",
+            "beleive", "langauge", "a", "ab", "wrd", "xyzzy", "", "thequick",
+            "abcdefghijklmnopqrstuvwxyz"
+        )
+
+        private lateinit var textSymSpell: SymSpell
+        private lateinit var indexBytes: ByteArray
+
+        private fun newSymSpell() = SymSpell(
+            -1,
+            SymConfig.defaultDictionaryEditDistance,
+            -1,
+            SymConfig.defaultTargetCount,
+            Long.MAX_VALUE
+        )
+
+        @BeforeClass
+        @JvmStatic
+        fun setUpClass() {
+            textSymSpell = newSymSpell()
+            textSymSpell.loadDictionary(
+                CORPUS,
+                SymConfig.defaultTermIndex,
+                SymConfig.defaultCountIndex
+            )
+            indexBytes = ByteArrayOutputStream().use {
+                textSymSpell.writeIndex(it)
+                it.toByteArray()
+            }
+        }
+    }
+
+    @Test
+    fun loadIndex_lookupsMatchTextDictionary() {
+        val indexSymSpell = newSymSpell()
+        assertThat(indexSymSpell.loadIndex(ByteBuffer.wrap(indexBytes))).isTrue()
+
+        SymSpell.Verbosity.values().forEach { verbosity ->
+            (0..SymConfig.defaultDictionaryEditDistance).forEach { distance ->
+                INPUTS.forEach { input ->
+                    assertThat(indexSymSpell.lookup(input, verbosity, distance).toString())
+                        .isEqualTo(textSymSpell.lookup(input, verbosity, distance).toString())
+                }
+            }
+        }
+    }
+
+    @Test
+    fun loadIndex_mismatchedConfiguration_shouldNotLoad() {
+        val symSpell = SymSpell(-1, 2, -1, SymConfig.defaultTargetCount, Long.MAX_VALUE)
+
+        assertThat(symSpell.loadIndex(ByteBuffer.wrap(indexBytes))).isFalse()
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun loadIndex_notAnIndex_shouldThrow() {
+        newSymSpell().loadIndex(ByteBuffer.wrap(ByteArray(128)))
+    }
+
+    @Test(expected = IllegalStateException::class)
+    fun createDictionaryEntry_afterLoadIndex_shouldThrow() {
+        val symSpell = newSymSpell()
+        symSpell.loadIndex(ByteBuffer.wrap(indexBytes))
+
+        symSpell.createDictionaryEntry("waylan", SymConfig.defaultTargetCount, null)
+    }
+}
@@ -0,0 +1,59 @@
+package space.narrate.waylan.core.data.spell
+
+import android.app.ActivityManager
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+
+@RunWith(RobolectricTestRunner::class)
+class SymSpellProfileTest {
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    private val activityManager =
+        context.getSystemService(Context.ACTIVITY_SERVICE) as ActivityManager
+
+    private fun setTotalMemory(gigabytes: Long) {
+        shadowOf(activityManager).setMemoryInfo(ActivityManager.MemoryInfo().apply {
+            totalMem = gigabytes * 1024 * 1024 * 1024
+        })
+    }
+
+    @Test
+    fun fromDevice_lowRamDevice_shouldBeLow() {
+        shadowOf(activityManager).setIsLowRamDevice(true)
+        setTotalMemory(8)
+
+        assertThat(SymSpellProfile.fromDevice(context)).isEqualTo(SymSpellProfile.LOW)
+    }
+
+    @Test
+    fun fromDevice_shouldScaleWithTotalMemory() {
+        setTotalMemory(1)
+        assertThat(SymSpellProfile.fromDevice(context)).isEqualTo(SymSpellProfile.LOW)
+
+        setTotalMemory(3)
+        assertThat(SymSpellProfile.fromDevice(context)).isEqualTo(SymSpellProfile.MEDIUM)
+
+        setTotalMemory(6)
+        assertThat(SymSpellProfile.fromDevice(context)).isEqualTo(SymSpellProfile.HIGH)
+    }
+
+    @Test
+    fun endCapturePercentage_shouldCaptureTierMinCounts() {
+        SymConfig.defaultTierMinCounts.forEach { minCount ->
+            val symSpell = SymSpell(
+                -1,
+                SymConfig.defaultDictionaryEditDistance,
+                -1,
+                SymSpell.endCapturePercentage(minCount),
+                SymSpell.RangeShift.End
+            )
+            assertThat(symSpell.minCountThreshold).isEqualTo(minCount)
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import java.util.concurrent.Executors
+import org.junit.BeforeClass
+import org.junit.Test
+
+class SymSpellTest {
+
+    companion object {
+        private const val CORPUS = "src/main/assets/corpus/frequency_dictionary_en_82_765.txt"
+
+        private val INPUTS = listOf(
+            "recieve", "teh", "speling", "occured", "definately", "langauge", "a", "wrd", "xyzzy",
+            "thequick", "the"
+        )
+
+        private lateinit var corpus: List<Pair<String, Long>>
+        private lateinit var symSpell: SymSpell
+
+        private fun newSymSpell() = SymSpell(
+            -1,
+            SymConfig.defaultDictionaryEditDistance,
+            -1,
+            SymConfig.defaultTargetCount,
+            Long.MAX_VALUE
+        )
+
+        @BeforeClass
+        @JvmStatic
+        fun setUpClass() {
+            corpus = File(CORPUS).readLines().map { line ->
+                val parts = line.split(' ')
+                parts[0] to parts[1].toLong()
+            }
+            symSpell = newSymSpell()
+            symSpell.loadDictionary(
+                CORPUS,
+                SymConfig.defaultTermIndex,
+                SymConfig.defaultCountIndex
+            )
+        }
+    }
+
+    @Test
+    fun commitStaged_inChunks_shouldMatchLoadDictionary() {
+        val chunked = newSymSpell()
+        corpus.chunked(SymConfig.defaultFoldCount).forEach { chunk ->
+            val staging = SuggestionStage(chunk.size * 16)
+            chunk.forEach { (term, count) -> chunked.createDictionaryEntry(term, count, staging) }
+            chunked.commitStaged(staging)
+        }
+
+        assertThat(chunked.deletes.size()).isEqualTo(symSpell.deletes.size())
+        SymSpell.Verbosity.values().forEach { verbosity ->
+            INPUTS.forEach { input ->
+                assertThat(chunked.lookup(input, verbosity, 2).toString())
+                    .isEqualTo(symSpell.lookup(input, verbosity, 2).toString())
+            }
+        }
+    }
+
+    @Test
+    fun commitStaged_onSeveralWorkers_shouldMatchLoadDictionary() {
+        val executor = Executors.newFixedThreadPool(4)
+        val parallel = newSymSpell()
+        try {
+            File(CORPUS).bufferedReader().use { reader ->
+                parallel.loadDictionary(
+                    reader,
+                    SymConfig.defaultTermIndex,
+                    SymConfig.defaultCountIndex,
+                    executor,
+                    4
+                )
+            }
+        } finally {
+            executor.shutdown()
+        }
+
+        assertThat(parallel.deletes.size()).isEqualTo(symSpell.deletes.size())
+        SymSpell.Verbosity.values().forEach { verbosity ->
+            INPUTS.forEach { input ->
+                assertThat(parallel.lookup(input, verbosity, 3).toString())
+                    .isEqualTo(symSpell.lookup(input, verbosity, 3).toString())
+            }
+        }
+    }
+
+    @Test
+    fun commitStaged_warmUpCount_shouldBeQueryable() {
+        val warm = newSymSpell()
+        val staging = SuggestionStage(SymConfig.defaultWarmUpCount * 16)
+        corpus.take(SymConfig.defaultWarmUpCount).forEach { (term, count) ->
+            warm.createDictionaryEntry(term, count, staging)
+        }
+        warm.commitStaged(staging)
+
+        assertThat(warm.lookup("recieve", SymSpell.Verbosity.Top, 2)[0].term).isEqualTo("receive")
+    }
+
+    @Test
+    fun lookupCompound_severalWords_shouldCorrectPhrase() {
+        val phrase = symSpell.lookupCompound("whereis th elove", 2)
+
+        assertThat(phrase.map { it.term }).containsExactly("where is the love")
+        assertThat(phrase[0].distance).isEqualTo(2)
+    }
+
+    @Test
+    fun lookupCompound_pastDeadline_shouldBeEmpty() {
+        val phrase = SymSpell.lookupCompound(
+            "whereis th elove",
+            2,
+            symSpell.termLookup(2),
+            System.nanoTime() - 1
+        )
+
+        assertThat(phrase).isEmpty()
+    }
+
+    @Test
+    fun wordSegmentation_runTogetherWords_shouldInsertSpaces() {
+        val segmented = SymSpell.wordSegmentation(
+            "itwasabrightcolddayinapril",
+            symSpell.maxLength,
+            symSpell.termLookup(0),
+            Long.MAX_VALUE
+        )
+
+        assertThat(segmented.term).isEqualTo("it was a bright cold day in april")
+        // One edit for each inserted space
+        assertThat(segmented.distance).isEqualTo(7)
+    }
+
+    @Test
+    fun wordSegmentation_pastDeadline_shouldBeNull() {
+        val segmented = SymSpell.wordSegmentation(
+            "thequick",
+            symSpell.maxLength,
+            symSpell.termLookup(0),
+            System.nanoTime() - 1
+        )
+
+        assertThat(segmented).isNull()
+    }
+
+    @Test
+    fun memoize_shouldLookUpEachTermOnce() {
+        val terms = mutableListOf<String>()
+        val lookup = SymSpell.memoize { term ->
+            terms.add(term)
+            symSpell.termLookup(0).lookupTop(term)
+        }
+
+        SymSpell.wordSegmentation("thequickbrownfox", symSpell.maxLength, lookup, Long.MAX_VALUE)
+
+        assertThat(terms).containsNoDuplicates()
+        assertThat(terms).contains("quick")
+    }
+
+    private fun SymSpell.termLookup(maxEditDistance: Int) = SymSpell.TermLookup { term ->
+        lookup(term, SymSpell.Verbosity.Top, maxEditDistance).firstOrNull()
+    }
+}
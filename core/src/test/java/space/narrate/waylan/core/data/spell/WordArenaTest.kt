@@ -0,0 +1,32 @@
+package space.narrate.waylan.core.data.spell
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class WordArenaTest {
+
+    @Test
+    fun find_shouldReturnWordId() {
+        val arena = WordArena(1)
+        val ids = listOf("the", "of", "and", "waylan").map { arena.add(it, it.length.toLong()) }
+
+        assertThat(ids).containsExactly(0, 1, 2, 3).inOrder()
+        assertThat(arena.find("waylan")).isEqualTo(3)
+        assertThat(arena.find(StringBuilder("and"))).isEqualTo(2)
+        assertThat(arena.get(1)).isEqualTo("of")
+        assertThat(arena.count(3)).isEqualTo(6L)
+        assertThat(arena.find("words")).isEqualTo(-1)
+    }
+
+    @Test
+    fun remove_removedWordShouldNotBeFound() {
+        val arena = WordArena(1)
+        val id = arena.add("waylan", 10L)
+
+        arena.remove(id)
+
+        assertThat(arena.find("waylan")).isEqualTo(-1)
+        assertThat(arena.count(id)).isEqualTo(-1L)
+        assertThat(arena.get(id)).isEqualTo("waylan")
+    }
+}
@@ -0,0 +1,117 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import space.narrate.waylan.core.data.firestore.users.UserWord
+import space.narrate.waylan.core.data.firestore.users.UserWordType
+import java.util.*
+
+@RunWith(RobolectricTestRunner::class)
+class UserWordDaoTest {
+
+    private val db = Room.inMemoryDatabaseBuilder(
+        ApplicationProvider.getApplicationContext(),
+        UserWordDatabase::class.java
+    ).allowMainThreadQueries().build()
+
+    private val dao = db.userWordDao()
+
+    private fun entry(id: String, modified: Long, recent: Boolean = true, favorited: Boolean = false) =
+        UserWordEntry(
+            "abc",
+            id,
+            id,
+            modified,
+            recent,
+            favorited,
+            mapOf("adjective" to "WORDSET"),
+            mapOf("being quiet or still" to "WORDSET"),
+            emptyMap(),
+            emptyMap()
+        )
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun reconcile_shouldKeepNewerCopy() = runBlocking<Unit> {
+        dao.insertAll(listOf(entry("quiescent", 200L, favorited = true)))
+
+        dao.reconcile("abc", listOf(entry("quiescent", 100L), entry("quiet", 100L)))
+
+        assertThat(dao.getImmediate("abc", "quiescent")).isEqualTo(entry("quiescent", 200L, favorited = true))
+        assertThat(dao.getImmediate("abc", "quiet")).isEqualTo(entry("quiet", 100L))
+
+        dao.reconcile("abc", listOf(entry("quiescent", 300L)))
+
+        assertThat(dao.getImmediate("abc", "quiescent")).isEqualTo(entry("quiescent", 300L))
+    }
+
+    @Test
+    fun reconcilePage_shouldClearTypeOutsidePage() = runBlocking<Unit> {
+        dao.insertAll(listOf(
+            entry("quiescent", 300L),
+            entry("quiet", 200L),
+            entry("still", 100L),
+            entry("calm", 50L)
+        ))
+
+        // "quiet" is no longer recent; "calm" is older than the page
+        dao.reconcilePage(
+            "abc",
+            UserWordType.RECENT,
+            listOf(entry("quiescent", 300L), entry("still", 100L)),
+            after = 100L,
+            upTo = 300L
+        )
+
+        assertThat(dao.getImmediate("abc", "quiet")).isEqualTo(entry("quiet", 200L, recent = false))
+        assertThat(dao.getImmediate("abc", "quiescent")?.recent).isTrue()
+        assertThat(dao.getImmediate("abc", "still")?.recent).isTrue()
+        assertThat(dao.getImmediate("abc", "calm")?.recent).isTrue()
+    }
+
+    @Test
+    fun reconcilePage_shouldKeepOtherTypes() = runBlocking<Unit> {
+        dao.insertAll(listOf(entry("quiet", 200L, favorited = true)))
+
+        dao.reconcilePage("abc", UserWordType.FAVORITED, emptyList(), Long.MIN_VALUE, 300L)
+
+        assertThat(dao.getImmediate("abc", "quiet"))
+            .isEqualTo(entry("quiet", 200L, recent = true, favorited = false))
+    }
+
+    @Test
+    fun previews_shouldRoundTrip() = runBlocking<Unit> {
+        val previews = mapOf("still" to "WORDSET", "quiet\u001Eness" to "WORDSET")
+        dao.insertAll(listOf(entry("quiescent", 100L).copy(synonymPreview = previews)))
+
+        assertThat(dao.getImmediate("abc", "quiescent")?.synonymPreview)
+            .containsExactly("still", "WORDSET", "quiet ness", "WORDSET")
+    }
+
+    @Test
+    fun fromUserWord_shouldFlagTypes() {
+        val userWord = UserWord(
+            "quiescent",
+            "quiescent",
+            modified = Date(100L),
+            types = mutableMapOf(UserWordType.FAVORITED.name to true)
+        )
+
+        val entry = UserWordEntry.fromUserWord("abc", userWord)
+
+        assertThat(entry.recent).isFalse()
+        assertThat(entry.favorited).isTrue()
+        assertThat(entry.toUserWord().types).containsExactly(UserWordType.FAVORITED.name, true)
+        assertThat(entry.toUserWord().modified).isEqualTo(Date(100L))
+    }
+}
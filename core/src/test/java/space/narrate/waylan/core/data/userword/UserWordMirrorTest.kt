@@ -0,0 +1,68 @@
+package space.narrate.waylan.core.data.userword
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.TestCoroutineDispatcher
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.Mockito.mock
+import org.robolectric.RobolectricTestRunner
+import space.narrate.waylan.core.data.firestore.FirestoreStore
+import space.narrate.waylan.core.data.firestore.util.FirestoreListenerRegistry
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
+
+@RunWith(RobolectricTestRunner::class)
+class UserWordMirrorTest {
+
+    private val db = Room.inMemoryDatabaseBuilder(
+        ApplicationProvider.getApplicationContext(),
+        UserWordDatabase::class.java
+    ).allowMainThreadQueries().build()
+
+    private val mirror = UserWordMirror(
+        db,
+        mock(WordsetDatabase::class.java),
+        mock(FirestoreStore::class.java),
+        mock(FirestoreListenerRegistry::class.java),
+        TestCoroutineDispatcher()
+    )
+
+    private fun entry(modified: Long, recent: Boolean) =
+        UserWordEntry("abc", "quiescent", "quiescent", modified, recent, false,
+            emptyMap(), emptyMap(), emptyMap(), emptyMap())
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun setRecent_recentInLastMinute_shouldBeUnchanged() = runBlocking<Unit> {
+        val entry = entry(System.currentTimeMillis() - 10_000L, recent = true)
+        db.userWordDao().insertAll(listOf(entry))
+
+        assertThat(mirror.setRecent("abc", "quiescent")).isFalse()
+        assertThat(db.userWordDao().getImmediate("abc", "quiescent")).isEqualTo(entry)
+    }
+
+    @Test
+    fun setRecent_recentOverAMinuteAgo_shouldBeRecentAgain() = runBlocking<Unit> {
+        val modified = System.currentTimeMillis() - 120_000L
+        db.userWordDao().insertAll(listOf(entry(modified, recent = true)))
+
+        assertThat(mirror.setRecent("abc", "quiescent")).isTrue()
+        assertThat(db.userWordDao().getImmediate("abc", "quiescent")?.modified)
+            .isGreaterThan(modified)
+    }
+
+    @Test
+    fun setRecent_notRecent_shouldBeRecent() = runBlocking<Unit> {
+        db.userWordDao().insertAll(listOf(entry(System.currentTimeMillis(), recent = false)))
+
+        assertThat(mirror.setRecent("abc", "quiescent")).isTrue()
+        assertThat(db.userWordDao().getImmediate("abc", "quiescent")?.recent).isTrue()
+    }
+}
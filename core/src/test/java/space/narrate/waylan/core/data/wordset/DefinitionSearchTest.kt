@@ -0,0 +1,72 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.common.truth.Truth.assertThat
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import org.junit.Test
+
+class DefinitionSearchTest {
+
+    // The matchinfo SQLite returns for "fear OR heights" against four meanings:
+    // acrophobia "an abnormal fear of heights", vertigo "a dizzy feeling of whirling, often at
+    // heights", fear "an emotion of alarm" with the synonym "dread", and height "the distance
+    // from base to top"
+    private val acrophobia = match("acrophobia", 2, 3, 4, 1, 6, 1, 1, 5, 0, 0, 1, 1, 1, 1, 1, 0, 0, 0, 0, 1, 1, 1, 2, 2, 0, 0, 0)
+    private val vertigo = match("vertigo", 2, 3, 4, 1, 6, 1, 1, 8, 0, 0, 1, 1, 0, 1, 1, 0, 0, 0, 0, 1, 1, 1, 2, 2, 0, 0, 0)
+    private val fear = match("fear", 2, 3, 4, 1, 6, 1, 1, 4, 2, 1, 1, 1, 0, 1, 1, 0, 0, 0, 0, 1, 1, 0, 2, 2, 0, 0, 0)
+
+    private fun match(word: String, vararg info: Int): MeaningMatch {
+        val buffer = ByteBuffer.allocate(info.size * 4).order(ByteOrder.nativeOrder())
+        info.forEach { buffer.putInt(it) }
+        return MeaningMatch(word, buffer.array())
+    }
+
+    @Test
+    fun toMatchQuery_shouldMatchAnyMeaningfulWord() {
+        assertThat(DefinitionSearch.toMatchQuery("A word that means fear of heights!"))
+            .isEqualTo("fear OR heights")
+    }
+
+    @Test
+    fun toMatchQuery_onlyStopWords_shouldBeNull() {
+        assertThat(DefinitionSearch.toMatchQuery("the word that means")).isNull()
+        assertThat(DefinitionSearch.toMatchQuery("  ")).isNull()
+    }
+
+    @Test
+    fun selectTerms_shouldSkipCommonTerms() {
+        val counts = mapOf("person" to 20_000, "fear" to 300, "heights" to 40, "zzz" to 0)
+
+        assertThat(DefinitionSearch.selectTerms(counts)).containsExactly("fear", "heights")
+    }
+
+    @Test
+    fun selectTerms_onlyCommonTerms_shouldKeepRarest() {
+        val counts = mapOf("person" to 20_000, "thing" to 8_000)
+
+        assertThat(DefinitionSearch.selectTerms(counts)).containsExactly("thing")
+    }
+
+    @Test
+    fun selectTerms_noMatches_shouldBeEmpty() {
+        assertThat(DefinitionSearch.selectTerms(mapOf("zzz" to 0))).isEmpty()
+    }
+
+    @Test
+    fun bm25_shouldScoreEveryMatchedPhraseHigher() {
+        assertThat(DefinitionSearch.bm25(acrophobia.matchInfo))
+            .isGreaterThan(DefinitionSearch.bm25(vertigo.matchInfo))
+    }
+
+    @Test
+    fun rank_shouldOrderWordsByBestMeaning() {
+        assertThat(DefinitionSearch.rank(listOf(fear, vertigo, acrophobia)))
+            .containsExactly("acrophobia", "vertigo", "fear").inOrder()
+    }
+
+    @Test
+    fun rank_maxResults_shouldKeepBest() {
+        assertThat(DefinitionSearch.rank(listOf(fear, vertigo, acrophobia), 1))
+            .containsExactly("acrophobia")
+    }
+}
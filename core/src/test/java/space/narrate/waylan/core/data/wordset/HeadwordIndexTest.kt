@@ -0,0 +1,60 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class HeadwordIndexTest {
+
+    private val index = HeadwordIndex(
+        listOf(
+            "cat", "cot", "cut", "coat", "act", "biology", "geology", "ology", "listen",
+            "silent", "tinsel", "enlist", "Inlets", "quiescent", "cat"
+        )
+    )
+
+    @Test
+    fun match_anyChar_shouldMatchOneLetter() {
+        assertThat(index.match("c?t")).containsExactly("cat", "cot", "cut").inOrder()
+    }
+
+    @Test
+    fun match_anyRun_shouldMatchAnyLetters() {
+        assertThat(index.match("*ology")).containsExactly("biology", "geology", "ology").inOrder()
+        assertThat(index.match("c*t")).containsExactly("cat", "coat", "cot", "cut").inOrder()
+        assertThat(index.match("*i*n*"))
+            .containsExactly("Inlets", "listen", "quiescent", "silent", "tinsel").inOrder()
+    }
+
+    @Test
+    fun match_shouldIgnoreCase() {
+        assertThat(index.match("INL?TS")).containsExactly("Inlets")
+    }
+
+    @Test
+    fun match_maxResults_shouldLimitResults() {
+        assertThat(index.match("*", maxResults = 2)).hasSize(2)
+    }
+
+    @Test
+    fun match_suffixMaxResults_shouldTakeFirstAlphabetically() {
+        assertThat(index.match("*ology", maxResults = 2))
+            .containsExactly("biology", "geology").inOrder()
+    }
+
+    @Test
+    fun match_pastBudget_shouldStopEarly() {
+        assertThat(index.match("*", budgetMillis = -1)).isEmpty()
+    }
+
+    @Test
+    fun anagrams_shouldFindWordsWithSameLetters() {
+        assertThat(index.anagrams("tinsel"))
+            .containsExactly("enlist", "Inlets", "listen", "silent").inOrder()
+        assertThat(index.anagrams("tac")).containsExactly("act", "cat").inOrder()
+    }
+
+    @Test
+    fun anagrams_noLetters_shouldBeEmpty() {
+        assertThat(index.anagrams("123")).isEmpty()
+    }
+}
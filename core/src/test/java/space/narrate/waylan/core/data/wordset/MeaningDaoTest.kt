@@ -0,0 +1,69 @@
+package space.narrate.waylan.core.data.wordset
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.threeten.bp.OffsetDateTime
+import org.threeten.bp.ZoneOffset
+
+@RunWith(RobolectricTestRunner::class)
+class MeaningDaoTest {
+
+    private val now = OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+
+    private val db = Room.inMemoryDatabaseBuilder(
+        ApplicationProvider.getApplicationContext(),
+        WordsetDatabase::class.java
+    ).allowMainThreadQueries().build()
+
+    private fun insert(word: String, def: String, vararg synonyms: String) {
+        db.wordDao().insertAll(Word(word, WordPopularity.UNKNOWN, now, now))
+        db.meaningDao().insertAll(
+            Meaning(word, def, emptyList(), "noun", synonyms.map { Synonym(it) }, emptyList())
+        )
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun match_shouldRankRealMatchInfo() {
+        insert("height", "the distance from base to top")
+        insert("fear", "an emotion of alarm", "dread")
+        insert("vertigo", "a dizzy feeling of whirling, often at heights")
+        insert("acrophobia", "an abnormal fear of heights")
+
+        val query = DefinitionSearch.toMatchQuery("fear of heights")!!
+        val matches = db.meaningDao().match(query, DefinitionSearch.MAX_CANDIDATES)
+
+        assertThat(matches.map { it.parentWord })
+            .containsExactly("height", "fear", "vertigo", "acrophobia")
+        assertThat(DefinitionSearch.rank(matches).first()).isEqualTo("acrophobia")
+    }
+
+    @Test
+    fun countMatches_shouldCountStemmedMatches() {
+        insert("height", "the distance from base to top")
+        insert("acrophobia", "an abnormal fear of heights")
+        insert("fear", "an emotion of alarm", "dread")
+
+        assertThat(db.meaningDao().countMatches("heights")).isEqualTo(2)
+        assertThat(db.meaningDao().countMatches("dread")).isEqualTo(1)
+        assertThat(db.meaningDao().countMatches("person")).isEqualTo(0)
+    }
+
+    @Test
+    fun match_limit_shouldCapCandidates() {
+        insert("height", "the distance from base to top")
+        insert("acrophobia", "an abnormal fear of heights")
+        insert("vertigo", "a dizzy feeling of whirling, often at heights")
+
+        assertThat(db.meaningDao().match("heights", 2)).hasSize(2)
+    }
+}
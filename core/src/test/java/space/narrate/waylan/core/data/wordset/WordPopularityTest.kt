@@ -0,0 +1,36 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+
+class WordPopularityTest {
+
+    @Test
+    fun fromCount_shouldKeepOrderOfCounts() {
+        val the = WordPopularity.fromCount(23_135_851_162L)
+        val quick = WordPopularity.fromCount(31_447_578L)
+        val aardvark = WordPopularity.fromCount(111_466L)
+        val once = WordPopularity.fromCount(1L)
+
+        assertThat(listOf(the, quick, aardvark, once)).isInStrictOrder(Comparator.reverseOrder<Int>())
+        assertThat(once).isGreaterThan(WordPopularity.UNKNOWN)
+    }
+
+    @Test
+    fun fromCount_uncounted_shouldBeUnknown() {
+        assertThat(WordPopularity.fromCount(0L)).isEqualTo(WordPopularity.UNKNOWN)
+        assertThat(WordPopularity.fromCount(-1L)).isEqualTo(WordPopularity.UNKNOWN)
+    }
+
+    @Test
+    fun readCorpus_shouldKeyByNormalizedWord() {
+        val corpus = "the 23135851162\nThe 2\nquick 31447578\nbroken\naardvark many\n"
+
+        val popularity = WordPopularity.readCorpus(corpus.byteInputStream())
+
+        assertThat(popularity).containsExactly(
+            "the", WordPopularity.fromCount(23_135_851_162L),
+            "quick", WordPopularity.fromCount(31_447_578L)
+        )
+    }
+}
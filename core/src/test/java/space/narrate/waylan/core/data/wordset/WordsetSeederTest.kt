@@ -0,0 +1,100 @@
+package space.narrate.waylan.core.data.wordset
+
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.runBlocking
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.threeten.bp.OffsetDateTime
+import org.threeten.bp.ZoneOffset
+
+@RunWith(RobolectricTestRunner::class)
+class WordsetSeederTest {
+
+    private val now = OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+
+    private val json = """
+        {
+          "quiescent": {
+            "word": "quiescent",
+            "wordset_id": "1",
+            "meanings": [
+              { "id": "2", "def": "being quiet or still", "example": "a quiescent lake", "speech_part": "adjective", "synonyms": ["still", null] },
+              { "id": "3", "def": "not active", "speech_part": "adjective" }
+            ],
+            "labels": [{ "name": "formal", "is_dialect": false }]
+          },
+          "quiet": { "word": "quiet", "wordset_id": "4" },
+          "quill": { "word": "quill", "wordset_id": "5", "editors": ["a"], "contributors": [] }
+        }
+    """.trimIndent()
+
+    private fun batches(batchSize: Int) = WordsetSeeder.batches(
+        json.byteInputStream(),
+        mapOf("quiet" to 42),
+        now,
+        batchSize
+    ).toList()
+
+    @Test
+    fun batches_shouldStreamWordsInBoundedBatches() {
+        val batches = batches(2)
+
+        assertThat(batches.map { batch -> batch.words.map { it.word } })
+            .containsExactly(listOf("quiescent", "quiet"), listOf("quill"))
+            .inOrder()
+    }
+
+    @Test
+    fun batches_shouldConvertMeanings() {
+        val batch = batches(10).single()
+
+        assertThat(batch.meanings).containsExactly(
+            Meaning(
+                "quiescent",
+                "being quiet or still",
+                listOf(Example("a quiescent lake")),
+                "adjective",
+                listOf(Synonym("still")),
+                listOf(Label("formal", false))
+            ),
+            Meaning(
+                "quiescent",
+                "not active",
+                emptyList(),
+                "adjective",
+                emptyList(),
+                listOf(Label("formal", false))
+            )
+        ).inOrder()
+    }
+
+    @Test
+    fun batches_shouldRankByPopularity() {
+        val words = batches(10).single().words
+
+        assertThat(words.map { it.popularity })
+            .containsExactly(WordPopularity.UNKNOWN, 42, WordPopularity.UNKNOWN)
+            .inOrder()
+    }
+
+    @Test
+    fun seed_shouldSkipMalformedFile() = runBlocking<Unit> {
+        val db = Room.inMemoryDatabaseBuilder(
+            ApplicationProvider.getApplicationContext(),
+            WordsetDatabase::class.java
+        ).allowMainThreadQueries().build()
+        val files = mapOf("q.json" to json, "r.json" to "{ \"rabbit\": [")
+
+        val stats = WordsetSeeder(db, emptyMap()).seed(files.keys.toList()) {
+            files.getValue(it).byteInputStream()
+        }
+
+        assertThat(stats.skippedFiles).isEqualTo(1)
+        assertThat(db.wordDao().get("quiescent")).isNotNull()
+        assertThat(db.meaningDao().get("quiescent")).hasSize(2)
+        db.close()
+    }
+}
@@ -0,0 +1,96 @@
+package space.narrate.waylan.core.data.wordset
+
+import com.google.common.truth.Truth.assertThat
+import com.google.gson.GsonBuilder
+import org.aaronhe.threetengson.ThreeTenGsonAdapter
+import org.junit.Test
+import org.threeten.bp.OffsetDateTime
+import org.threeten.bp.ZoneOffset
+
+class WordsetTypeConvertersTest {
+
+    private val examples = listOf(Example("a quiescent lake"), Example("all was quiescent"))
+    private val synonyms = listOf(Synonym("still"), Synonym("dormant"))
+    private val labels = listOf(Label("formal", false), Label("Scotland", true))
+
+    @Test
+    fun exampleList_shouldRoundTrip() {
+        val value = WordsetTypeConverters.fromExampleList(examples)
+        assertThat(WordsetTypeConverters.toExampleList(value)).isEqualTo(examples)
+    }
+
+    @Test
+    fun synonymList_shouldRoundTrip() {
+        val value = WordsetTypeConverters.fromSynonymList(synonyms)
+        assertThat(WordsetTypeConverters.toSynonymList(value)).isEqualTo(synonyms)
+    }
+
+    @Test
+    fun labelList_shouldRoundTrip() {
+        val value = WordsetTypeConverters.fromLabelList(labels)
+        assertThat(WordsetTypeConverters.toLabelList(value)).isEqualTo(labels)
+    }
+
+    @Test
+    fun emptyList_shouldBeEmptyText() {
+        assertThat(WordsetTypeConverters.fromSynonymList(emptyList())).isEmpty()
+        assertThat(WordsetTypeConverters.toSynonymList("")).isEmpty()
+    }
+
+    @Test
+    fun separatorsInText_shouldBeReplaced() {
+        val value = WordsetTypeConverters.fromSynonymList(listOf(Synonym("still\u001Equiet")))
+        assertThat(WordsetTypeConverters.toSynonymList(value)).containsExactly(Synonym("still quiet"))
+    }
+
+    @Test
+    fun legacyJson_shouldDropTimestamps() {
+        val json = legacyGson.toJson(legacyExamples)
+
+        assertThat(LegacyMeaningJson.toExampleList(json)).isEqualTo(examples)
+        assertThat(LegacyMeaningJson.toSynonymList(legacyGson.toJson(legacySynonyms)))
+            .isEqualTo(synonyms)
+        assertThat(LegacyMeaningJson.toLabelList(legacyGson.toJson(legacyLabels)))
+            .isEqualTo(labels)
+        assertThat(LegacyMeaningJson.toExampleList("not json")).isEmpty()
+        assertThat(LegacyMeaningJson.toExampleList(null)).isEmpty()
+    }
+
+    private companion object {
+        val legacyGson = ThreeTenGsonAdapter.registerOffsetDateTime(GsonBuilder()).create()
+        val now: OffsetDateTime = OffsetDateTime.of(2021, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+
+        val legacyExamples = listOf(
+            LegacyExample("a quiescent lake", now, now),
+            LegacyExample("all was quiescent", now, now)
+        )
+        val legacySynonyms = listOf(
+            LegacySynonym("still", now, now),
+            LegacySynonym("dormant", now, now)
+        )
+        val legacyLabels = listOf(
+            LegacyLabel("formal", false, now, now),
+            LegacyLabel("Scotland", true, now, now)
+        )
+    }
+
+    // The elements as they were stored before their timestamps were dropped
+    private data class LegacyExample(
+        val example: String,
+        val created: OffsetDateTime,
+        val modified: OffsetDateTime
+    )
+
+    private data class LegacySynonym(
+        val synonym: String,
+        val created: OffsetDateTime,
+        val modified: OffsetDateTime
+    )
+
+    private data class LegacyLabel(
+        val name: String,
+        val isDialect: Boolean,
+        val created: OffsetDateTime,
+        val modified: OffsetDateTime
+    )
+}
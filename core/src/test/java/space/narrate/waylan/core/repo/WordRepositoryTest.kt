@@ -12,12 +12,17 @@ import org.junit.Test
 import org.mockito.Mockito.mock
 import org.mockito.Mockito.verify
 import org.mockito.Mockito.verifyNoMoreInteractions
+import space.narrate.waylan.core.data.Result
 import space.narrate.waylan.core.data.firestore.AuthenticationStore
+import space.narrate.waylan.core.data.wordset.WordDao
 import space.narrate.waylan.core.data.wordset.WordsetDatabase
+import space.narrate.waylan.core.data.wordset.WordsetDatabaseInstaller
 import space.narrate.waylan.core.data.firestore.FirestoreStore
 import space.narrate.waylan.core.data.firestore.users.UserWord
 import space.narrate.waylan.core.data.firestore.users.UserWordType
+import space.narrate.waylan.core.data.spell.PhoneticStore
 import space.narrate.waylan.core.data.spell.SymSpellStore
+import space.narrate.waylan.core.data.userword.UserWordMirror
 import space.narrate.waylan.core.util.LiveDataUtils
 import space.narrate.waylan.test_common.CoroutinesTestRule
 import space.narrate.waylan.test_common.valueBlocking
@@ -31,12 +36,18 @@ class WordRepositoryTest {
 
     // Mock AppDatabase
     private val db = mock(WordsetDatabase::class.java)
+    // Mock WordsetDatabaseInstaller
+    private val wordsetInstaller = mock(WordsetDatabaseInstaller::class.java)
     // Mock AuthenticationStore
     private val authenticationStore = mock(AuthenticationStore::class.java)
     // Mock FirestoreStore
     private val firestoreStore = mock(FirestoreStore::class.java)
     // Mock SymSpellStore
     private val symSpellStore = mock(SymSpellStore::class.java)
+    // Mock PhoneticStore
+    private val phoneticStore = mock(PhoneticStore::class.java)
+    // Mock UserWordMirror
+    private val userWordMirror = mock(UserWordMirror::class.java)
 
     private val uid: MutableLiveData<String> = MutableLiveData()
     private val user1Word: MutableLiveData<UserWord> = MutableLiveData()
@@ -62,9 +73,12 @@ class WordRepositoryTest {
 
         wordRepository = WordRepository(
             db,
+            wordsetInstaller,
             authenticationStore,
             firestoreStore,
             symSpellStore,
+            phoneticStore,
+            userWordMirror,
             testCoroutineDispatcher
         )
     }
@@ -113,6 +127,7 @@ class WordRepositoryTest {
             wordRepository.setUserWordFavorite(id, favorited)
 
             verify(firestoreStore).setFavorite(id, "abc", favorited)
+            verify(userWordMirror).setFavorite("abc", id, favorited)
         }
 
     @Test
@@ -123,6 +138,62 @@ class WordRepositoryTest {
             wordRepository.setUserWordFavorite("123", true)
 
             verifyNoMoreInteractions(firestoreStore)
+            verifyNoMoreInteractions(userWordMirror)
         }
 
+    @Test
+    fun getWordsetWordsImmediate_shouldQueryNormalizedPrefixRange() =
+        testCoroutineDispatcher.runBlockingTest {
+            val wordDao = mock(WordDao::class.java)
+            whenever(db.wordDao()).thenReturn(wordDao)
+            whenever(wordsetInstaller.isInstalled).thenReturn(true)
+            whenever(wordDao.loadImmediate("qui", "quj", 25)).thenReturn(emptyList())
+
+            wordRepository.getWordsetWordsImmediate("Qui")
+
+            verify(wordDao).loadImmediate("qui", "quj", 25)
+        }
+
+    @Test
+    fun getWordsetWordsImmediate_emptyInput_shouldNotQuery() =
+        testCoroutineDispatcher.runBlockingTest {
+            assertThat(wordRepository.getWordsetWordsImmediate("")).isEmpty()
+
+            verifyNoMoreInteractions(db)
+        }
+
+    @Test
+    fun getWordsetWordsImmediate_notInstalled_shouldNotQuery() =
+        testCoroutineDispatcher.runBlockingTest {
+            whenever(wordsetInstaller.isInstalled).thenReturn(false)
+
+            assertThat(wordRepository.getWordsetWordsImmediate("Qui")).isEmpty()
+
+            verifyNoMoreInteractions(db)
+        }
+
+    @Test
+    fun loadUserWordRecentsPageWithUser_shouldLoadIntoMirror() =
+        testCoroutineDispatcher.runBlockingTest {
+            whenever(authenticationStore.uid).thenReturn(uid)
+            val from = user1Word.value!!
+            whenever(userWordMirror.loadRecentsPage("abc", from, 25L))
+                .thenReturn(Result.Success(emptyList()))
+
+            val result = wordRepository.loadUserWordRecentsPage(from, 25L)
+
+            assertThat(result).isEqualTo(Result.Success(emptyList<UserWord>()))
+            verify(userWordMirror).loadRecentsPage("abc", from, 25L)
+        }
+
+    @Test
+    fun loadUserWordRecentsPageWithoutUser_shouldNotLoad() =
+        testCoroutineDispatcher.runBlockingTest {
+            whenever(authenticationStore.uid).thenReturn(LiveDataUtils.empty())
+
+            val result = wordRepository.loadUserWordRecentsPage(user1Word.value!!, 25L)
+
+            assertThat(result.isSuccessful).isFalse()
+            verifyNoMoreInteractions(userWordMirror)
+        }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package space.narrate.waylan.core.util
+
+import com.google.common.truth.Truth.assertThat
+import java.io.File
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class RecordJournalTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val file: File
+        get() = File(folder.root, "journals/words.journal")
+
+    private fun journal() = RecordJournal<Pair<String, Int>>(
+        file,
+        { (word, count) -> writeUTF(word); writeInt(count) },
+        { readUTF() to readInt() }
+    )
+
+    private fun RecordJournal<Pair<String, Int>>.records(): Pair<List<Pair<String, Int>>, Boolean> {
+        val records = mutableListOf<Pair<String, Int>>()
+        val isTorn = replay { records.add(it) }
+        return records to isTorn
+    }
+
+    @Test
+    fun replay_shouldReadRecordsInOrder() {
+        val journal = journal()
+        journal.append("quiescent" to 1)
+        journal.append("waylan" to 2)
+
+        assertThat(journal().records()).isEqualTo(listOf("quiescent" to 1, "waylan" to 2) to false)
+    }
+
+    @Test
+    fun replay_missingJournal_shouldBeEmpty() {
+        assertThat(journal().records()).isEqualTo(emptyList<Pair<String, Int>>() to false)
+    }
+
+    @Test
+    fun replay_tornRecord_shouldBeDropped() {
+        val journal = journal()
+        journal.append("quiescent" to 1)
+        journal.append("waylan" to 2)
+        // Cut the last record short, as a crash part way through an append would
+        file.writeBytes(file.readBytes().copyOf(file.length().toInt() - 3))
+
+        assertThat(journal.records()).isEqualTo(listOf("quiescent" to 1) to true)
+    }
+
+    @Test
+    fun compact_shouldReplaceRecords() {
+        val journal = journal()
+        journal.append("quiescent" to 1)
+        journal.append("quiescent" to 1)
+
+        journal.compact(listOf("quiescent" to 2))
+        journal.append("waylan" to 1)
+
+        assertThat(journal.records()).isEqualTo(listOf("quiescent" to 2, "waylan" to 1) to false)
+        assertThat(File(file.path + ".tmp").exists()).isFalse()
+    }
+
+    @Test
+    fun compact_noRecords_shouldDeleteJournal() {
+        val journal = journal()
+        journal.append("quiescent" to 1)
+
+        journal.compact(emptyList())
+
+        assertThat(file.exists()).isFalse()
+    }
+}
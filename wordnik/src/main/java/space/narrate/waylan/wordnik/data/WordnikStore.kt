@@ -9,6 +9,8 @@ import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.filterNotNull
 import kotlinx.coroutines.launch
 import org.threeten.bp.OffsetDateTime
+import space.narrate.waylan.core.data.wordset.WordDao
+import space.narrate.waylan.core.data.wordset.WordPopularity
 import space.narrate.waylan.wordnik.BuildConfig
 import space.narrate.waylan.wordnik.data.local.AudioEntry
 import space.narrate.waylan.wordnik.data.local.Definition
@@ -24,6 +26,7 @@ import space.narrate.waylan.wordnik.data.remote.WordnikService
 class WordnikStore(
   private val wordnikService: WordnikService,
   private val wordnikDao: WordnikDao,
+  private val wordDao: WordDao,
   private val ioDispatcher: CoroutineDispatcher
 ) : CoroutineScope by CoroutineScope(ioDispatcher) {
 
@@ -130,6 +133,7 @@ class WordnikStore(
           if (response.isSuccessful && response.body() != null) {
             val entry = FrequencyEntry.fromRemote(word, response.body())
             wordnikDao.insert(entry)
+            fillPopularity(entry)
           } else {
             // TODO: Handle error
             Log.e("WordnikStore", response.errorBody().toString())
@@ -138,12 +142,20 @@ class WordnikStore(
           // TODO: Handle error
           Log.e("WordnikStore", "Retrofit/Okhttp exception: $e")
         }
+      } else {
+        fillPopularity(frequency)
       }
     }
 
     return wordnikDao.getFrequencyEntry(word).filterNotNull().distinctUntilChanged()
   }
 
+  // Rank WordSet words the SymSpell corpus doesn't count by how often Wordnik has seen them
+  private suspend fun fillPopularity(entry: FrequencyEntry) {
+    val popularity = WordPopularity.fromCount(entry.totalCount.toLong())
+    if (popularity != WordPopularity.UNKNOWN) wordDao.setPopularityIfUnknown(entry.word, popularity)
+  }
+
   @ExperimentalCoroutinesApi
   fun getHyphenation(word: String): Flow<HyphenationEntry> {
 
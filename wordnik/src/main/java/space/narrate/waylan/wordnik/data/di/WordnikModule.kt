@@ -3,6 +3,7 @@ package space.narrate.waylan.wordnik.data.di
 import kotlinx.coroutines.Dispatchers
 import org.koin.android.ext.koin.androidContext
 import org.koin.dsl.module
+import space.narrate.waylan.core.data.wordset.WordsetDatabase
 import space.narrate.waylan.wordnik.data.WordnikStore
 import space.narrate.waylan.wordnik.data.local.WordnikDatabase
 import space.narrate.waylan.wordnik.data.remote.RetrofitService
@@ -15,6 +16,7 @@ val wordnikModule = module {
     WordnikStore(
       RetrofitService.getInstance(),
       get<WordnikDatabase>().wordnikDao(),
+      get<WordsetDatabase>().wordDao(),
       Dispatchers.IO
     )
   }